@@ -1,7 +1,11 @@
 package NoobSave._L.garcia.NoobSave.controler;
 
+import NoobSave._L.garcia.NoobSave.dto.EtatTacheSynchronisation;
+import NoobSave._L.garcia.NoobSave.dto.ResumeVersion;
 import NoobSave._L.garcia.NoobSave.entities.Fichier;
+import NoobSave._L.garcia.NoobSave.entities.VersionFichier;
 import NoobSave._L.garcia.NoobSave.service.FichierService;
+import NoobSave._L.garcia.NoobSave.service.TacheSynchronisationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,7 +15,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +25,7 @@ import org.springframework.web.bind.annotation.*;
 import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Contrôleur REST pour gérer les fichiers via des requêtes HTTP.
@@ -29,6 +35,7 @@ import java.util.Optional;
  *   <li>Consulter et gérer les fichiers sauvegardés.</li>
  *   <li>Effectuer des sauvegardes et restaurations.</li>
  *   <li>Télécharger ou supprimer des fichiers spécifiques.</li>
+ *   <li>Consulter et télécharger les versions précédentes d'un fichier.</li>
  * </ul>
  *
  * <strong>Annotations Swagger :</strong>
@@ -47,6 +54,7 @@ import java.util.Optional;
 public class FichierController {
 
     private final FichierService fichierService;
+    private final TacheSynchronisationService tacheSynchronisationService;
 
     /**
      * Récupère la liste de tous les fichiers enregistrés dans la base de données.
@@ -77,33 +85,30 @@ public class FichierController {
     }
 
     /**
-     * Déclenche une sauvegarde manuelle des fichiers.
+     * Déclenche une sauvegarde manuelle des fichiers, exécutée en tâche de fond.
      *
-     * @return Une {@link ResponseEntity} contenant un message de succès ou d'erreur.
+     * @return Une {@link ResponseEntity} contenant un message de succès et l'identifiant de la tâche.
      */
     @Operation(
             summary = "Déclencher une sauvegarde manuelle",
-            description = "Lance une sauvegarde manuelle en synchronisant les fichiers avec le support de stockage configuré.",
+            description = "Lance une sauvegarde manuelle de chaque racine de synchronisation en tâche de fond et renvoie immédiatement. "
+                    + "La progression se consulte via GET /api/sync/jobs/{id}.",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Sauvegarde déclenchée avec succès",
                             content = @Content(
                                     mediaType = MediaType.TEXT_PLAIN_VALUE,
-                                    examples = @ExampleObject(value = "Sauvegarde déclenchée avec succès !")
+                                    examples = @ExampleObject(value = "Sauvegarde déclenchée avec succès ! (tâche 3f1c2a9e-6a7b-4d3e-9b1f-2c4d5e6f7a8b)")
                             )
-                    ),
-                    @ApiResponse(responseCode = "500", description = "Erreur lors de la sauvegarde")
+                    )
             }
     )
     @GetMapping("/save")
     public ResponseEntity<String> declencherSauvegarde() {
-        try {
-            fichierService.saveDeclencher();
-            return ResponseEntity.ok("Sauvegarde déclenchée avec succès !");
-        } catch (IOException e) {
-            return ResponseEntity.status(500).body("Erreur lors de la sauvegarde : " + e.getMessage());
-        }
+        List<EtatTacheSynchronisation> taches = tacheSynchronisationService.demarrerToutes("MANUELLE");
+        return ResponseEntity.ok("Sauvegarde déclenchée avec succès ! (tâche "
+                + taches.stream().map(EtatTacheSynchronisation::getId).collect(Collectors.joining(", ")) + ")");
     }
 
     /**
@@ -128,7 +133,57 @@ public class FichierController {
             }
     )
     @GetMapping("/{id}")
-    public ResponseEntity<ByteArrayResource> telechargerFichier(
+    public ResponseEntity<Resource> telechargerFichier(
+            @Parameter(
+                    name = "id",
+                    description = "Identifiant unique du fichier",
+                    example = "63c2f5e5ab12ef00123",
+                    required = true
+            )
+            @PathVariable String id) {
+        Optional<Fichier> fichierOptional = fichierService.obtenirFichierParId(id);
+        if (fichierOptional.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Fichier fichier = fichierOptional.get();
+        try {
+            // Le contenu est transmis en flux, sans être chargé entièrement en mémoire
+            Resource resource = new InputStreamResource(fichierService.ouvrirContenu(fichier));
+            fichierService.enregistrerTelechargement(fichier);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + fichier.getNom())
+                    .contentType(MediaType.parseMediaType(fichier.getType()))
+                    .body(resource);
+        } catch (IOException e) {
+            return ResponseEntity.status(500).build();
+        }
+    }
+
+    /**
+     * Liste l'historique des versions d'un fichier.
+     *
+     * @param id L'identifiant unique du fichier.
+     * @return Une {@link ResponseEntity} contenant les versions du fichier, de la plus récente à la plus ancienne.
+     */
+    @Operation(
+            summary = "Lister les versions d'un fichier",
+            description = "Renvoie l'historique des versions d'un fichier, de la plus récente à la plus ancienne.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Liste des versions récupérée avec succès",
+                            content = @Content(
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    examples = @ExampleObject(
+                                            value = "[{\"numero\": 2, \"dateVersion\": \"2023-10-15T14:35:30\", \"taille\": 10240, \"instantane\": false}]"
+                                    )
+                            )
+                    ),
+                    @ApiResponse(responseCode = "404", description = "Fichier non trouvé")
+            }
+    )
+    @GetMapping("/{id}/versions")
+    public ResponseEntity<List<ResumeVersion>> listerVersions(
             @Parameter(
                     name = "id",
                     description = "Identifiant unique du fichier",
@@ -137,16 +192,65 @@ public class FichierController {
             )
             @PathVariable String id) {
         return fichierService.obtenirFichierParId(id)
-                .map(fichier -> {
-                    ByteArrayResource resource = new ByteArrayResource(fichier.getContenu());
-                    return ResponseEntity.ok()
-                            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + fichier.getNom())
-                            .contentType(MediaType.parseMediaType(fichier.getType()))
-                            .body(resource);
-                })
+                .map(fichier -> ResponseEntity.ok(fichierService.listerVersions(fichier)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Télécharge une version précédente d'un fichier.
+     *
+     * @param id     L'identifiant unique du fichier.
+     * @param numero Le numéro de la version.
+     * @return Une {@link ResponseEntity} contenant le contenu de la version ou un code 404 si introuvable.
+     */
+    @Operation(
+            summary = "Télécharger une version d'un fichier",
+            description = "Télécharge le contenu d'une version précise d'un fichier.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Version téléchargée avec succès",
+                            content = @Content(
+                                    mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                                    schema = @Schema(type = "string", format = "binary")
+                            )
+                    ),
+                    @ApiResponse(responseCode = "404", description = "Fichier ou version non trouvé")
+            }
+    )
+    @GetMapping("/{id}/versions/{numero}")
+    public ResponseEntity<Resource> telechargerVersion(
+            @Parameter(
+                    name = "id",
+                    description = "Identifiant unique du fichier",
+                    example = "63c2f5e5ab12ef00123",
+                    required = true
+            )
+            @PathVariable String id,
+            @Parameter(
+                    name = "numero",
+                    description = "Numéro de la version",
+                    example = "2",
+                    required = true
+            )
+            @PathVariable int numero) {
+        Optional<Fichier> fichierOptional = fichierService.obtenirFichierParId(id);
+        if (fichierOptional.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Fichier fichier = fichierOptional.get();
+        Optional<VersionFichier> versionOptional = fichierService.obtenirVersion(fichier, numero);
+        if (versionOptional.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        VersionFichier version = versionOptional.get();
+        Resource resource = new InputStreamResource(fichierService.ouvrirContenu(version));
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + fichier.getNom())
+                .contentType(MediaType.parseMediaType(version.getType()))
+                .body(resource);
+    }
+
     /**
      * Supprime un fichier spécifique en fonction de son identifiant.
      *
@@ -1,6 +1,8 @@
 package NoobSave._L.garcia.NoobSave.controler;
 
 import NoobSave._L.garcia.NoobSave.entities.Parametre;
+import NoobSave._L.garcia.NoobSave.entities.RacineSynchronisation;
+import NoobSave._L.garcia.NoobSave.service.LimitationDebitService;
 import NoobSave._L.garcia.NoobSave.service.ParametreService;
 import NoobSave._L.garcia.NoobSave.service.UtilsService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -11,6 +13,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
@@ -25,6 +28,7 @@ import java.util.List;
  *     <li>Sauvegarde automatique</li>
  *     <li>Intervalle de sauvegarde</li>
  *     <li>Extensions de fichiers autorisées</li>
+ *     <li>Règles de filtrage des fichiers</li>
  *     <li>Chemin de sauvegarde</li>
  * </ul>
  */
@@ -36,6 +40,7 @@ import java.util.List;
 public class ParametreController {
 
     private final ParametreService parametreService;
+    private final LimitationDebitService limitationDebitService;
     private final UtilsService utils;
 
     /**
@@ -84,6 +89,66 @@ public class ParametreController {
         parametreService.updateAutoSaveEnabled(enabled);
     }
 
+    /**
+     * Active ou désactive la surveillance en temps réel du répertoire de sauvegarde.
+     *
+     * @param enabled Valeur booléenne indiquant si la surveillance doit être activée (true) ou non (false).
+     */
+    @Operation(
+            summary = "Activer/Désactiver la surveillance en temps réel",
+            description = "Remplace le parcours périodique du répertoire de sauvegarde par la capture des événements du système de fichiers.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "État de la surveillance en temps réel mis à jour avec succès")
+            }
+    )
+    @PostMapping("/toggle-real-time-watch")
+    public void toggleRealTimeWatch(@RequestParam boolean enabled) {
+        parametreService.updateRealTimeWatchEnabled(enabled);
+    }
+
+    /**
+     * Active ou désactive l'intervalle de sauvegarde automatique adaptatif.
+     *
+     * @param enabled Valeur booléenne indiquant si l'intervalle adaptatif doit être activé (true) ou non (false).
+     */
+    @Operation(
+            summary = "Activer/Désactiver l'intervalle de sauvegarde adaptatif",
+            description = "Raccourcit l'intervalle de sauvegarde automatique lorsque les passes trouvent de nombreux changements "
+                    + "et l'allonge lorsqu'elles n'en trouvent aucun. L'intervalle effectif est consultable via GET /api/sync/intervalle.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "État de l'intervalle adaptatif mis à jour avec succès")
+            }
+    )
+    @PostMapping("/toggle-adaptive-interval")
+    public void toggleAdaptiveInterval(@RequestParam boolean enabled) {
+        parametreService.updateAdaptiveIntervalEnabled(enabled);
+    }
+
+    /**
+     * Met à jour les limites de débit de lecture des passes de synchronisation. Les passes en cours
+     * appliquent immédiatement les nouvelles limites.
+     *
+     * @param bytesPerSecond Octets lus par seconde (0 = illimité).
+     * @param filesPerSecond Fichiers parcourus par seconde (0 = illimité).
+     * @param interactive    {@code true} pour les passes déclenchées par un utilisateur, {@code false} pour
+     *                       les passes de fond.
+     */
+    @Operation(
+            summary = "Limiter le débit de lecture des synchronisations",
+            description = "Définit le débit maximal (octets et fichiers par seconde, 0 = illimité) des passes de fond, "
+                    + "ou des passes interactives déclenchées via /api/fichiers/save et /api/sync/jobs.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Limites de débit mises à jour avec succès")
+            }
+    )
+    @PostMapping("/throttle")
+    public void setScanThrottle(@RequestParam long bytesPerSecond,
+                                @RequestParam long filesPerSecond,
+                                @RequestParam(defaultValue = "false") boolean interactive) {
+        parametreService.updateScanThrottle(interactive, bytesPerSecond, filesPerSecond);
+        limitationDebitService.actualiser();
+    }
+
     /**
      * Met à jour l'intervalle de sauvegarde automatique.
      *
@@ -132,6 +197,34 @@ public class ParametreController {
         parametreService.updateAllowedFileExtensions(filetypes);
     }
 
+    /**
+     * Met à jour les règles de filtrage des fichiers, appliquées en plus des extensions autorisées.
+     *
+     * @param included Motifs de chemins inclus (glob, ou expression régulière préfixée par {@code regex:}).
+     * @param excluded Motifs de chemins exclus.
+     * @param minSize  Taille minimale en octets (0 = aucune limite).
+     * @param maxSize  Taille maximale en octets (0 = aucune limite).
+     * @param minAgeMs Âge minimal de la dernière modification en millisecondes (0 = aucune limite).
+     * @param maxAgeMs Âge maximal de la dernière modification en millisecondes (0 = aucune limite).
+     */
+    @Operation(
+            summary = "Mettre à jour les règles de filtrage des fichiers",
+            description = "Définit les motifs de chemins inclus et exclus (glob, ou expression régulière préfixée par regex:), "
+                    + "ainsi que les bornes de taille et d'âge des fichiers à ingérer.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Règles de filtrage mises à jour avec succès")
+            }
+    )
+    @PostMapping("/file-filter")
+    public void setFileFilter(@RequestParam(required = false) List<String> included,
+                              @RequestParam(required = false) List<String> excluded,
+                              @RequestParam(defaultValue = "0") long minSize,
+                              @RequestParam(defaultValue = "0") long maxSize,
+                              @RequestParam(defaultValue = "0") long minAgeMs,
+                              @RequestParam(defaultValue = "0") long maxAgeMs) {
+        parametreService.updateFileFilter(included, excluded, minSize, maxSize, minAgeMs, maxAgeMs);
+    }
+
     /**
      * Met à jour le chemin de sauvegarde.
      *
@@ -171,6 +264,43 @@ public class ParametreController {
         parametreService.deleteSavePath();
     }
 
+    /**
+     * Ajoute ou remplace une racine de synchronisation supplémentaire.
+     *
+     * @param racine Racine à enregistrer ; une racine de même nom est remplacée.
+     */
+    @Operation(
+            summary = "Ajouter une racine de synchronisation",
+            description = "Ajoute (ou remplace, à nom égal) un répertoire synchronisé en plus du chemin de sauvegarde, "
+                    + "avec son intervalle, son parallélisme et ses motifs de chemins propres.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Racine enregistrée avec succès")
+            }
+    )
+    @PostMapping("/sync-roots")
+    public void setSyncRoot(@RequestBody RacineSynchronisation racine) {
+        parametreService.updateSyncRoot(racine);
+    }
+
+    /**
+     * Supprime une racine de synchronisation supplémentaire. Les fichiers déjà sauvegardés sont conservés.
+     *
+     * @param nom Nom de la racine.
+     * @return Un code 200 si la racine a été supprimée, ou 404 si elle est inconnue.
+     */
+    @Operation(
+            summary = "Supprimer une racine de synchronisation",
+            description = "Retire un répertoire synchronisé ; les fichiers déjà sauvegardés sont conservés.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Racine supprimée avec succès"),
+                    @ApiResponse(responseCode = "404", description = "Racine inconnue")
+            }
+    )
+    @DeleteMapping("/sync-roots/{nom}")
+    public ResponseEntity<Void> deleteSyncRoot(@PathVariable String nom) {
+        return parametreService.deleteSyncRoot(nom) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+    }
+
     /**
      * Crée une instance vide de l'utilisateur.
      * Utilisé principalement par les frameworks pour la sérialisation.
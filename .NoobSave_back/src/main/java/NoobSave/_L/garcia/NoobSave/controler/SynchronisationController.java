@@ -0,0 +1,164 @@
+package NoobSave._L.garcia.NoobSave.controler;
+
+import NoobSave._L.garcia.NoobSave.dto.EtatPlanification;
+import NoobSave._L.garcia.NoobSave.dto.EtatTacheSynchronisation;
+import NoobSave._L.garcia.NoobSave.service.TacheSynchronisationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Contrôleur REST des tâches de synchronisation.
+ *
+ * Ce contrôleur permet de :
+ * <ul>
+ *   <li>Lancer une synchronisation en tâche de fond.</li>
+ *   <li>Suivre sa progression (fichiers parcourus, octets lus, débit, temps restant estimé).</li>
+ *   <li>Demander son annulation ; la tâche s'arrête proprement et laisse un point de reprise.</li>
+ *   <li>Consulter l'intervalle effectif des sauvegardes automatiques.</li>
+ * </ul>
+ */
+@RestController
+@CrossOrigin(origins = "http://localhost:3000")
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+@Tag(name = "Synchronisation", description = "API pour lancer, suivre et annuler les tâches de synchronisation.")
+public class SynchronisationController {
+
+    private final TacheSynchronisationService tacheSynchronisationService;
+
+    /**
+     * Lance une synchronisation du répertoire de sauvegarde, ou d'une racine de synchronisation nommée, en
+     * tâche de fond.
+     *
+     * @param racine Nom de la racine à synchroniser ; le répertoire de sauvegarde principal si absent.
+     * @return L'état initial de la tâche créée, ou un code 404 si la racine est inconnue.
+     */
+    @Operation(
+            summary = "Lancer une synchronisation",
+            description = "Crée une tâche de synchronisation du répertoire de sauvegarde (ou de la racine indiquée) "
+                    + "et renvoie immédiatement son état.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "202",
+                            description = "Tâche créée",
+                            content = @Content(
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = EtatTacheSynchronisation.class)
+                            )
+                    ),
+                    @ApiResponse(responseCode = "404", description = "Racine de synchronisation inconnue")
+            }
+    )
+    @PostMapping("/jobs")
+    public ResponseEntity<EtatTacheSynchronisation> demarrer(
+            @Parameter(description = "Nom de la racine de synchronisation", example = "photos")
+            @RequestParam(required = false) String racine) {
+        if (racine == null) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(tacheSynchronisationService.demarrer("MANUELLE"));
+        }
+        return tacheSynchronisationService.demarrerRacine("MANUELLE", racine)
+                .map(etat -> ResponseEntity.status(HttpStatus.ACCEPTED).body(etat))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Liste les tâches de synchronisation connues, de la plus récente à la plus ancienne.
+     *
+     * @return La liste des états des tâches.
+     */
+    @Operation(
+            summary = "Lister les tâches de synchronisation",
+            description = "Renvoie les tâches en cours et les dernières tâches finies.",
+            responses = @ApiResponse(responseCode = "200", description = "Liste des tâches récupérée avec succès")
+    )
+    @GetMapping("/jobs")
+    public ResponseEntity<List<EtatTacheSynchronisation>> lister() {
+        return ResponseEntity.ok(tacheSynchronisationService.lister());
+    }
+
+    /**
+     * Renvoie la progression d'une tâche de synchronisation.
+     *
+     * @param id Identifiant de la tâche.
+     * @return L'état de la tâche ou un code 404 si elle est inconnue.
+     */
+    @Operation(
+            summary = "Obtenir la progression d'une tâche",
+            description = "Renvoie le statut, les compteurs, le débit et le temps restant estimé d'une tâche.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "État de la tâche",
+                            content = @Content(
+                                    mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                    schema = @Schema(implementation = EtatTacheSynchronisation.class)
+                            )
+                    ),
+                    @ApiResponse(responseCode = "404", description = "Tâche introuvable")
+            }
+    )
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<EtatTacheSynchronisation> obtenir(
+            @Parameter(description = "Identifiant de la tâche", required = true) @PathVariable String id) {
+        return tacheSynchronisationService.obtenir(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Demande l'annulation d'une tâche de synchronisation.
+     *
+     * @param id Identifiant de la tâche.
+     * @return L'état de la tâche après la demande, ou un code 404 si elle est inconnue.
+     */
+    @Operation(
+            summary = "Annuler une tâche",
+            description = "Demande l'annulation coopérative d'une tâche. Les écritures en cours sont terminées "
+                    + "et un point de reprise est enregistré ; la tâche suivante reprendra à partir de ce point.",
+            responses = {
+                    @ApiResponse(responseCode = "202", description = "Annulation demandée"),
+                    @ApiResponse(responseCode = "404", description = "Tâche introuvable")
+            }
+    )
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<EtatTacheSynchronisation> annuler(
+            @Parameter(description = "Identifiant de la tâche", required = true) @PathVariable String id) {
+        return tacheSynchronisationService.annuler(id)
+                .map(etat -> ResponseEntity.status(HttpStatus.ACCEPTED).body(etat))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Renvoie l'état de la planification des sauvegardes automatiques.
+     *
+     * @return L'intervalle effectif, ses bornes et la date prévue de la prochaine passe.
+     */
+    @Operation(
+            summary = "Obtenir l'intervalle effectif des sauvegardes automatiques",
+            description = "Renvoie l'intervalle appliqué entre deux passes planifiées (fixe ou adaptatif), ses bornes, "
+                    + "le nombre de changements trouvés par la dernière passe et la date prévue de la prochaine passe.",
+            responses = @ApiResponse(
+                    responseCode = "200",
+                    description = "État de la planification",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = EtatPlanification.class)
+                    )
+            )
+    )
+    @GetMapping("/intervalle")
+    public ResponseEntity<EtatPlanification> obtenirIntervalle() {
+        return ResponseEntity.ok(tacheSynchronisationService.etatPlanification());
+    }
+}
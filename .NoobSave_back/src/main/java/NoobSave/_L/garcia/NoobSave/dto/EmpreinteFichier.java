@@ -0,0 +1,50 @@
+package NoobSave._L.garcia.NoobSave.dto;
+
+import java.util.List;
+
+/**
+ * Projection d'un {@link NoobSave._L.garcia.NoobSave.entities.Fichier} limitée à son identifiant, à
+ * l'empreinte de son contenu et aux références de son contenu (corps séparé, GridFS ou blocs dédupliqués).
+ * <p>
+ * Utilisée par la synchronisation pour détecter un changement de contenu sans transférer le contenu
+ * binaire du fichier depuis la base de données.
+ * </p>
+ */
+public interface EmpreinteFichier {
+
+    /**
+     * @return L'identifiant MongoDB du fichier.
+     */
+    String getId();
+
+    /**
+     * @return Le chemin du fichier relatif au répertoire de sauvegarde.
+     */
+    String getCheminRelatif();
+
+    /**
+     * @return L'empreinte du contenu enregistré, ou {@code null} pour un fichier enregistré avant son introduction.
+     */
+    String getEmpreinte();
+
+    /**
+     * @return L'identifiant du contenu stocké dans GridFS, ou {@code null} s'il n'est pas stocké dans GridFS.
+     */
+    String getContenuId();
+
+    /**
+     * @return L'identifiant du contenu stocké séparément (petits fichiers), ou {@code null} s'il n'est pas stocké ainsi.
+     */
+    String getCorpsId();
+
+    /**
+     * @return Les identifiants ordonnés des blocs composant le contenu, ou {@code null} s'il n'est pas découpé en blocs.
+     */
+    List<String> getBlocs();
+
+    /**
+     * @return Le numéro de la version courante, 0 si le contenu n'est pas versionné, ou {@code null} pour un
+     * fichier enregistré sans numéro de version.
+     */
+    Integer getVersion();
+}
@@ -0,0 +1,61 @@
+package NoobSave._L.garcia.NoobSave.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * État de la planification des sauvegardes automatiques, renvoyé par {@code GET /api/sync/intervalle}.
+ *
+ * Il indique :
+ * <ul>
+ *     <li>Si l'intervalle adaptatif est actif, et ses bornes</li>
+ *     <li>L'intervalle effectivement appliqué entre deux passes planifiées</li>
+ *     <li>Le nombre de changements trouvés par la dernière passe et la date prévue de la prochaine passe</li>
+ * </ul>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "État de la planification des sauvegardes automatiques.")
+public class EtatPlanification {
+
+    /**
+     * Indique si l'intervalle adaptatif est actif.
+     */
+    @Schema(description = "Indique si l'intervalle adaptatif est actif.", example = "true")
+    private boolean adaptatif;
+
+    /**
+     * Intervalle effectif entre deux passes planifiées, en millisecondes.
+     */
+    @Schema(description = "Intervalle effectif entre deux passes planifiées, en millisecondes.", example = "240000")
+    private long intervalleEffectifMs;
+
+    /**
+     * Borne inférieure de l'intervalle adaptatif, en millisecondes.
+     */
+    @Schema(description = "Borne inférieure de l'intervalle adaptatif, en millisecondes.", example = "5000")
+    private long intervalleMinMs;
+
+    /**
+     * Borne supérieure de l'intervalle adaptatif, en millisecondes.
+     */
+    @Schema(description = "Borne supérieure de l'intervalle adaptatif, en millisecondes.", example = "3600000")
+    private long intervalleMaxMs;
+
+    /**
+     * Nombre de fichiers nouveaux ou modifiés trouvés par la dernière passe terminée, ou -1 si aucune.
+     */
+    @Schema(description = "Nombre de fichiers nouveaux ou modifiés trouvés par la dernière passe terminée.", example = "12")
+    private long derniersChangements;
+
+    /**
+     * Date prévue de la prochaine passe planifiée, ou {@code null} si la sauvegarde automatique est inactive.
+     */
+    @Schema(description = "Date prévue de la prochaine passe planifiée.", example = "2023-10-15T14:39:30")
+    private LocalDateTime prochaineSynchronisation;
+}
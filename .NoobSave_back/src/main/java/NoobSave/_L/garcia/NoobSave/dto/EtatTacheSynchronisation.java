@@ -0,0 +1,127 @@
+package NoobSave._L.garcia.NoobSave.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * État instantané d'une tâche de synchronisation, renvoyé par l'API {@code /api/sync/jobs}.
+ *
+ * Il décrit :
+ * <ul>
+ *     <li>L'identité de la tâche : identifiant, origine (manuelle ou planifiée) et répertoire synchronisé</li>
+ *     <li>Son statut et ses dates de début et de fin</li>
+ *     <li>Sa progression : fichiers parcourus et ingérés, octets lus, débit et temps restant estimé</li>
+ * </ul>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "État et progression d'une tâche de synchronisation.")
+public class EtatTacheSynchronisation {
+
+    /**
+     * Statut d'une tâche de synchronisation.
+     */
+    public enum Statut {
+        /** La tâche attend son exécution. */
+        EN_ATTENTE,
+        /** La tâche parcourt le répertoire. */
+        EN_COURS,
+        /** L'annulation a été demandée ; la tâche s'arrête après les écritures en cours. */
+        ANNULATION_DEMANDEE,
+        /** La tâche s'est terminée normalement. */
+        TERMINEE,
+        /** La tâche a été annulée ; la passe suivante reprendra à son point de reprise. */
+        ANNULEE,
+        /** La tâche s'est arrêtée sur une erreur. */
+        ECHOUEE
+    }
+
+    /**
+     * Identifiant de la tâche.
+     */
+    @Schema(description = "Identifiant de la tâche.", example = "3f1c2a9e-6a7b-4d3e-9b1f-2c4d5e6f7a8b")
+    private String id;
+
+    /**
+     * Origine de la tâche.
+     */
+    @Schema(description = "Origine de la tâche.", example = "MANUELLE")
+    private String origine;
+
+    /**
+     * Répertoire synchronisé.
+     */
+    @Schema(description = "Répertoire synchronisé.", example = "/home/user/archive")
+    private String racine;
+
+    /**
+     * Statut de la tâche.
+     */
+    @Schema(description = "Statut de la tâche.", example = "EN_COURS")
+    private Statut statut;
+
+    /**
+     * Date de début de la tâche.
+     */
+    @Schema(description = "Date de début de la tâche.", example = "2023-10-15T14:00:00")
+    private LocalDateTime dateDebut;
+
+    /**
+     * Date de fin de la tâche, si elle est terminée.
+     */
+    @Schema(description = "Date de fin de la tâche, si elle est terminée.", example = "2023-10-15T14:05:12")
+    private LocalDateTime dateFin;
+
+    /**
+     * Nombre de fichiers valides parcourus.
+     */
+    @Schema(description = "Nombre de fichiers valides parcourus.", example = "1200")
+    private long fichiersParcourus;
+
+    /**
+     * Nombre de fichiers nouveaux ou modifiés ingérés.
+     */
+    @Schema(description = "Nombre de fichiers nouveaux ou modifiés ingérés.", example = "35")
+    private long fichiersIngeres;
+
+    /**
+     * Nombre d'octets lus depuis le disque.
+     */
+    @Schema(description = "Nombre d'octets lus depuis le disque.", example = "73400320")
+    private long octetsLus;
+
+    /**
+     * Nombre de fichiers estimé pour la passe (d'après le manifeste).
+     */
+    @Schema(description = "Nombre de fichiers estimé pour la passe (d'après le manifeste).", example = "5000")
+    private long fichiersEstimes;
+
+    /**
+     * Débit de parcours, en fichiers par seconde.
+     */
+    @Schema(description = "Débit de parcours, en fichiers par seconde.", example = "240.5")
+    private double fichiersParSeconde;
+
+    /**
+     * Débit de lecture, en octets par seconde.
+     */
+    @Schema(description = "Débit de lecture, en octets par seconde.", example = "14680064.0")
+    private double octetsParSeconde;
+
+    /**
+     * Temps restant estimé en secondes, ou null s'il est inconnu.
+     */
+    @Schema(description = "Temps restant estimé en secondes, ou null s'il est inconnu.", example = "16")
+    private Long secondesRestantes;
+
+    /**
+     * Message d'erreur si la tâche a échoué.
+     */
+    @Schema(description = "Message d'erreur si la tâche a échoué.", example = "Accès refusé")
+    private String erreur;
+}
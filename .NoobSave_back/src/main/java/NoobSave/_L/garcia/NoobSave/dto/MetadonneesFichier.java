@@ -0,0 +1,52 @@
+package NoobSave._L.garcia.NoobSave.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection d'un {@link NoobSave._L.garcia.NoobSave.entities.Fichier} limitée aux métadonnées utilisées
+ * pour détecter un changement : chemin relatif, taille, date de modification et empreinte.
+ * <p>
+ * Les métadonnées de tous les fichiers sont chargées en une seule requête au début d'une passe de
+ * synchronisation, afin que le parcours ne nécessite aucune requête par fichier.
+ * </p>
+ */
+public interface MetadonneesFichier {
+
+    /**
+     * @return L'identifiant MongoDB du fichier.
+     */
+    String getId();
+
+    /**
+     * @return Le chemin du fichier relatif au répertoire de sauvegarde.
+     */
+    String getCheminRelatif();
+
+    /**
+     * @return La taille du contenu enregistré, en octets, ou {@code null} pour un fichier enregistré avant son
+     * introduction.
+     */
+    Long getTaille();
+
+    /**
+     * Compare la taille enregistrée à celle d'un fichier local. Une taille absente (fichier enregistré avant
+     * son introduction) est considérée comme différente : le fichier est de nouveau ingéré.
+     *
+     * @param taille Taille du fichier local, en octets.
+     * @return {@code true} si la taille enregistrée est connue et égale.
+     */
+    default boolean memeTaille(long taille) {
+        Long enregistree = getTaille();
+        return enregistree != null && enregistree == taille;
+    }
+
+    /**
+     * @return La date de modification du fichier lors de son dernier enregistrement.
+     */
+    LocalDateTime getDateModification();
+
+    /**
+     * @return L'empreinte du contenu enregistré.
+     */
+    String getEmpreinte();
+}
@@ -0,0 +1,47 @@
+package NoobSave._L.garcia.NoobSave.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection d'une {@link NoobSave._L.garcia.NoobSave.entities.VersionFichier} limitée à ses métadonnées.
+ * <p>
+ * Utilisée pour lister l'historique d'un fichier sans transférer la liste des blocs ni les deltas.
+ * </p>
+ */
+public interface ResumeVersion {
+
+    /**
+     * @return Le numéro de la version.
+     */
+    int getNumero();
+
+    /**
+     * @return La date d'enregistrement de la version.
+     */
+    LocalDateTime getDateVersion();
+
+    /**
+     * @return La date de modification du fichier pour cette version.
+     */
+    LocalDateTime getDateModification();
+
+    /**
+     * @return Le type MIME du contenu.
+     */
+    String getType();
+
+    /**
+     * @return L'empreinte du contenu.
+     */
+    String getEmpreinte();
+
+    /**
+     * @return La taille du contenu en octets.
+     */
+    long getTaille();
+
+    /**
+     * @return {@code true} si la version est stockée sous forme d'instantané.
+     */
+    boolean isInstantane();
+}
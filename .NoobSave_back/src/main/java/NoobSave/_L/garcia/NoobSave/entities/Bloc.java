@@ -0,0 +1,107 @@
+package NoobSave._L.garcia.NoobSave.entities;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bloc de contenu dédupliqué, persisté dans la collection MongoDB {@code blocs}.
+ *
+ * Le contenu des fichiers est découpé en blocs de taille variable définis par leur contenu
+ * (découpage FastCDC). Chaque bloc est identifié par l'empreinte SHA-256 de ses octets et n'est stocké
+ * qu'une seule fois, quel que soit le nombre de fichiers qui le contiennent :
+ * <ul>
+ *     <li>Empreinte du bloc (identifiant)</li>
+ *     <li>Octets du bloc, éventuellement compressés (absents si le contenu est stocké hors de la base,
+ *     voir {@code StockageContenu})</li>
+ *     <li>Algorithme de compression des octets ({@code null} s'ils sont bruts)</li>
+ *     <li>Taille du bloc en octets (avant compression)</li>
+ *     <li>Nombre de références (occurrences du bloc dans les fichiers enregistrés)</li>
+ *     <li>Emplacement des octets dans un fichier pack (numéro, position et longueur de l'entrée), s'ils sont
+ *     regroupés par le stockage {@code pack}</li>
+ *     <li>Date du dernier accès (écriture ou lecture), et niveau de stockage froid s'il y a été déplacé</li>
+ * </ul>
+ *
+ * <p>Un bloc dont le compteur de références tombe à zéro est supprimé.</p>
+ */
+@Document(collection = "blocs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Bloc de contenu dédupliqué, référencé par les fichiers enregistrés.")
+public class Bloc {
+
+    /**
+     * Empreinte SHA-256 (hexadécimale) des octets bruts du bloc.
+     */
+    @Id
+    @Schema(
+            description = "Empreinte SHA-256 des octets du bloc.",
+            example = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08"
+    )
+    private String id;
+
+    /**
+     * Octets du bloc, compressés si {@link #compression} est renseigné, ou {@code null} s'ils sont conservés
+     * par un stockage de contenu hors de la base.
+     */
+    @Schema(description = "Octets du bloc, éventuellement compressés.", accessMode = Schema.AccessMode.READ_ONLY)
+    private byte[] donnees;
+
+    /**
+     * Algorithme de compression des octets, ou {@code null} s'ils sont stockés bruts (ou conservés, avec leur
+     * algorithme, par un stockage de contenu hors de la base).
+     */
+    @Schema(description = "Algorithme de compression des octets du bloc.", example = "zstd")
+    private String compression;
+
+    /**
+     * Taille du bloc en octets, avant compression.
+     */
+    @Schema(description = "Taille du bloc en octets.", example = "65536")
+    private int taille;
+
+    /**
+     * Nombre d'occurrences du bloc dans les fichiers enregistrés.
+     */
+    @Schema(description = "Nombre de références au bloc.", example = "3")
+    private long references;
+
+    /**
+     * Numéro du fichier pack contenant les octets du bloc, ou {@code null} s'ils ne sont pas regroupés dans un pack.
+     */
+    @Indexed(sparse = true)
+    @Schema(description = "Numéro du fichier pack contenant le bloc.", example = "12")
+    private Integer pack;
+
+    /**
+     * Position de l'entrée du bloc dans son fichier pack, en octets.
+     */
+    @Schema(description = "Position de l'entrée du bloc dans son fichier pack.", example = "1048576")
+    private Long position;
+
+    /**
+     * Longueur de l'entrée du bloc dans son fichier pack (en-tête compris), en octets.
+     */
+    @Schema(description = "Longueur de l'entrée du bloc dans son fichier pack.", example = "4130")
+    private Integer longueur;
+
+    /**
+     * Date du dernier accès au bloc : référence par un fichier ingéré, ou lecture (à l'heure près).
+     */
+    @Indexed(sparse = true)
+    @Schema(description = "Date du dernier accès au bloc.", example = "2023-10-20T12:00:00")
+    private LocalDateTime dernierAcces;
+
+    /**
+     * Indique si les octets du bloc ont été déplacés vers le niveau de stockage froid ({@code null} sinon).
+     */
+    @Schema(description = "Indique si le bloc est stocké dans le niveau froid.", example = "true")
+    private Boolean froid;
+}
@@ -0,0 +1,40 @@
+package NoobSave._L.garcia.NoobSave.entities;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Contenu d'un petit fichier, persisté dans la collection MongoDB {@code corps_fichiers}.
+ *
+ * Le contenu des fichiers stockés d'un seul tenant (ni dans GridFS, ni en blocs dédupliqués) est séparé de
+ * leurs métadonnées : le document {@link Fichier} ne conserve que l'identifiant de son corps, qui n'est lu
+ * qu'au téléchargement ou à la restauration. Lister les fichiers ne transfère ainsi aucun contenu.
+ * <ul>
+ *     <li>Identifiant du corps (référencé par {@link Fichier#getCorpsId()})</li>
+ *     <li>Octets du contenu, éventuellement compressés (voir {@link Fichier#getCompression()})</li>
+ * </ul>
+ */
+@Document(collection = "corps_fichiers")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Contenu d'un petit fichier, stocké séparément de ses métadonnées.")
+public class CorpsFichier {
+
+    /**
+     * Identifiant du corps.
+     */
+    @Id
+    @Schema(description = "Identifiant du corps.", example = "64a5f5f5f5f5f5f5f5f5f5f7")
+    private String id;
+
+    /**
+     * Octets du contenu, compressés si le fichier indique un algorithme de compression.
+     */
+    @Schema(description = "Octets du contenu, éventuellement compressés.", accessMode = Schema.AccessMode.READ_ONLY)
+    private byte[] donnees;
+}
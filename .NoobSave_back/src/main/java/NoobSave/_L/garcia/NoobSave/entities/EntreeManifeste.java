@@ -0,0 +1,58 @@
+package NoobSave._L.garcia.NoobSave.entities;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Entrée du manifeste de synchronisation, persistée dans la collection MongoDB {@code manifeste}.
+ *
+ * Chaque entrée mémorise l'état d'un fichier local lors de sa dernière ingestion réussie :
+ * <ul>
+ *     <li>Chemin absolu normalisé (clé de l'entrée)</li>
+ *     <li>Taille en octets</li>
+ *     <li>Date de dernière modification (epoch en millisecondes)</li>
+ *     <li>Clé du système de fichiers (inode sous Unix), si disponible</li>
+ * </ul>
+ *
+ * <p>Une passe de synchronisation ne relit un fichier que si l'une de ces valeurs a changé.</p>
+ */
+@Document(collection = "manifeste")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Entrée du manifeste décrivant l'état d'un fichier lors de sa dernière synchronisation.")
+public class EntreeManifeste {
+
+    /**
+     * Chemin absolu et normalisé du fichier, utilisé comme identifiant.
+     */
+    @Id
+    @Schema(
+            description = "Chemin absolu et normalisé du fichier.",
+            example = "/home/user/archive/document.pdf"
+    )
+    private String chemin;
+
+    /**
+     * Taille du fichier en octets.
+     */
+    @Schema(description = "Taille du fichier en octets.", example = "10240")
+    private long taille;
+
+    /**
+     * Date de dernière modification du fichier, en millisecondes depuis l'epoch.
+     */
+    @Schema(description = "Date de dernière modification en millisecondes depuis l'epoch.", example = "1697364930000")
+    private long dateModification;
+
+    /**
+     * Clé d'identification du fichier fournie par le système de fichiers (inode/périphérique sous Unix).
+     * Peut être {@code null} si le système de fichiers ne la fournit pas.
+     */
+    @Schema(description = "Clé du fichier fournie par le système de fichiers (inode).", example = "(dev=803,ino=1234567)")
+    private String cleFichier;
+}
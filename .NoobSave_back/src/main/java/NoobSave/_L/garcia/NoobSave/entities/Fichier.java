@@ -1,15 +1,20 @@
 package NoobSave._L.garcia.NoobSave.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Entité représentant un fichier enregistré dans la base de données MongoDB.
@@ -18,9 +23,15 @@ import java.time.LocalDateTime;
  * <ul>
  *     <li>Identifiant unique généré par MongoDB</li>
  *     <li>Nom et type MIME</li>
- *     <li>Chemin absolu du fichier</li>
+ *     <li>Chemin absolu du fichier et chemin relatif au répertoire de sauvegarde (identifiant unique)</li>
  *     <li>Dates d'ajout et de dernière modification</li>
- *     <li>Contenu binaire (stocké sous forme de tableau d'octets)</li>
+ *     <li>Empreinte (hash) du contenu, indexée</li>
+ *     <li>Taille du contenu en octets et numéro de la version courante</li>
+ *     <li>Algorithme de compression, taille stockée et taux de compression</li>
+ *     <li>Date du dernier téléchargement et nombre de téléchargements</li>
+ *     <li>Référence vers le contenu stocké séparément ({@link CorpsFichier}) pour les petits fichiers, vers le
+ *     contenu stocké dans GridFS pour les fichiers volumineux, ou liste ordonnée des blocs dédupliqués qui le
+ *     composent ; le document ne contient jamais le contenu lui-même</li>
  * </ul>
  *
  * <strong>Annotations utilisées :</strong>
@@ -33,6 +44,7 @@ import java.time.LocalDateTime;
  * </ul>
  */
 @Document(collection = "fichiers")
+@CompoundIndex(name = "racine_chemin", def = "{'racine': 1, 'cheminRelatif': 1}", unique = true, sparse = true)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -81,8 +93,30 @@ public class Fichier {
             required = true
     )
     @NotBlank(message = "Le chemin du fichier est requis.")
+    @Indexed
     private String chemin;
 
+    /**
+     * Nom de la racine de synchronisation contenant le fichier (voir {@link RacineSynchronisation}), ou
+     * {@code null} pour le répertoire de sauvegarde principal.
+     */
+    @Schema(description = "Nom de la racine de synchronisation du fichier (absent pour le répertoire de sauvegarde principal).",
+            example = "photos")
+    private String racine;
+
+    /**
+     * Chemin du fichier relatif à sa racine de synchronisation, normalisé avec des séparateurs {@code /}.
+     * <p>
+     * Avec {@link #racine}, identifie le fichier de manière unique : deux fichiers de même nom dans des
+     * sous-répertoires ou des racines différents sont deux documents distincts.
+     * </p>
+     */
+    @Schema(
+            description = "Chemin du fichier relatif au répertoire de sauvegarde (identifiant unique).",
+            example = "documents/rapport.pdf"
+    )
+    private String cheminRelatif;
+
     /**
      * Date et heure auxquelles le fichier a été ajouté à la base de données.
      */
@@ -106,15 +140,137 @@ public class Fichier {
     private LocalDateTime dateModification;
 
     /**
-     * Contenu binaire du fichier (stocké sous forme de tableau d'octets).
+     * Empreinte du contenu, préfixée par l'algorithme utilisé (exemple : {@code sha-256:9f86d0...}).
      * <p>
-     * Ce champ contient le contenu réel du fichier sous forme binaire.
-     * Il est recommandé de ne pas exposer ce champ directement via les API.
+     * Elle permet de détecter un changement de contenu sans relire le contenu binaire stocké en base.
      * </p>
      */
     @Schema(
-            description = "Contenu binaire du fichier, généralement sous forme de tableau d'octets. Ne pas exposer directement via les API.",
+            description = "Empreinte du contenu du fichier, préfixée par l'algorithme utilisé.",
+            example = "sha-256:9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08",
             accessMode = Schema.AccessMode.READ_ONLY
     )
+    @Indexed
+    private String empreinte;
+
+    /**
+     * Contenu binaire du fichier (stocké sous forme de tableau d'octets), pendant son ingestion.
+     * <p>
+     * Ce champ n'est pas persisté dans le document : le contenu est enregistré séparément
+     * ({@link CorpsFichier}, voir {@link #corpsId}) et n'est lu qu'au téléchargement ou à la restauration.
+     * </p>
+     */
+    @Transient
+    @JsonIgnore
     private byte[] contenu;
+
+    /**
+     * Identifiant du contenu stocké séparément dans la collection {@code corps_fichiers}, pour les petits
+     * fichiers stockés d'un seul tenant.
+     */
+    @Schema(
+            description = "Identifiant du contenu stocké séparément (petits fichiers).",
+            example = "64a5f5f5f5f5f5f5f5f5f5f7",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    private String corpsId;
+
+    /**
+     * Identifiant du contenu stocké dans GridFS, pour les fichiers volumineux.
+     * <p>
+     * Lorsque ce champ est renseigné, {@link #corpsId} est vide : le contenu est lu en flux depuis GridFS.
+     * </p>
+     */
+    @Schema(
+            description = "Identifiant du contenu stocké dans GridFS (fichiers volumineux).",
+            example = "64a5f5f5f5f5f5f5f5f5f5f6",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    private String contenuId;
+
+    /**
+     * Liste ordonnée des identifiants des blocs dédupliqués composant le contenu.
+     * <p>
+     * Lorsque ce champ est renseigné, {@link #corpsId} et {@link #contenuId} sont vides : le contenu est
+     * reconstitué en concaténant les blocs de la collection {@code blocs}. La liste n'est pas exposée par
+     * l'API : elle n'est lue qu'au téléchargement ou à la restauration.
+     * </p>
+     */
+    @JsonIgnore
+    private List<String> blocs;
+
+    /**
+     * Numéro de la version courante du contenu (voir {@link VersionFichier}), ou 0 si le contenu n'est pas
+     * versionné.
+     */
+    @Schema(
+            description = "Numéro de la version courante du contenu (0 si non versionné).",
+            example = "3",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    private int version;
+
+    /**
+     * Taille du contenu en octets.
+     */
+    @Schema(
+            description = "Taille du contenu du fichier en octets.",
+            example = "10240",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    private long taille;
+
+    /**
+     * Algorithme de compression appliqué au contenu stocké, ou {@code null} si le contenu est stocké brut.
+     * <p>
+     * Pour un contenu découpé en blocs, chaque bloc porte son propre algorithme : un bloc dont la compression
+     * n'apporte pas de gain reste brut.
+     * </p>
+     */
+    @Schema(
+            description = "Algorithme de compression appliqué au contenu stocké (null si brut).",
+            example = "zstd",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    private String compression;
+
+    /**
+     * Taille du contenu tel qu'il est stocké (après compression), en octets.
+     */
+    @Schema(
+            description = "Taille du contenu stocké après compression, en octets.",
+            example = "2048",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    private long tailleStockee;
+
+    /**
+     * Rapport entre la taille stockée et la taille du contenu (1 pour un contenu non compressé).
+     */
+    @Schema(
+            description = "Taux de compression : taille stockée divisée par la taille du contenu.",
+            example = "0.2",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    private double ratioCompression;
+
+    /**
+     * Date du dernier téléchargement du fichier, ou {@code null} s'il n'a jamais été téléchargé.
+     */
+    @Schema(
+            description = "Date du dernier téléchargement du fichier (null si jamais téléchargé).",
+            example = "2024-01-20T09:15:00",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    private LocalDateTime dernierTelechargement;
+
+    /**
+     * Nombre de téléchargements du fichier.
+     */
+    @Schema(
+            description = "Nombre de téléchargements du fichier.",
+            example = "4",
+            accessMode = Schema.AccessMode.READ_ONLY
+    )
+    private long nombreTelechargements;
 }
@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.List;
+
 /**
  * Entité représentant les paramètres de configuration de l'application.
  *
@@ -16,6 +18,9 @@ import org.springframework.data.mongodb.core.mapping.Document;
  *     <li>Intervalle entre deux sauvegardes automatiques</li>
  *     <li>Extensions de fichiers autorisées</li>
  *     <li>Chemin de sauvegarde</li>
+ *     <li>Surveillance en temps réel du répertoire de sauvegarde</li>
+ *     <li>Règles de filtrage des fichiers (motifs de chemins, taille, âge)</li>
+ *     <li>Racines de synchronisation supplémentaires</li>
  * </ul>
  *
  * <strong>Annotations utilisées :</strong>
@@ -83,4 +88,104 @@ public class Parametre {
             required = true
     )
     private String savePath;
+
+    /**
+     * Indique si le répertoire de sauvegarde est surveillé en temps réel.
+     * <p>
+     * Dans ce mode, les changements sont capturés par les événements du système de fichiers au lieu
+     * d'un parcours complet périodique.
+     * </p>
+     */
+    @Schema(
+            description = "Indique si le répertoire de sauvegarde est surveillé en temps réel (événements du système de fichiers).",
+            example = "false"
+    )
+    private boolean realTimeWatchEnabled;
+
+    /**
+     * Indique si l'intervalle de sauvegarde automatique s'adapte au rythme des changements observés.
+     * <p>
+     * Dans ce mode, {@link #autoSaveInterval} n'est que la valeur de départ : l'intervalle est raccourci
+     * lorsque les dernières passes ont trouvé de nombreux changements et allongé lorsqu'elles n'en ont
+     * trouvé aucun.
+     * </p>
+     */
+    @Schema(
+            description = "Indique si l'intervalle de sauvegarde automatique s'adapte au rythme des changements observés.",
+            example = "false"
+    )
+    private boolean adaptiveIntervalEnabled;
+
+    /**
+     * Débit maximal de lecture des passes de fond (planifiées, surveillance), en octets par seconde.
+     * 0 signifie aucune limite.
+     */
+    @Schema(description = "Débit maximal de lecture des passes de fond, en octets par seconde (0 = illimité).", example = "20971520")
+    private long scanMaxBytesPerSecond;
+
+    /**
+     * Nombre maximal de fichiers parcourus par seconde par les passes de fond. 0 signifie aucune limite.
+     */
+    @Schema(description = "Nombre maximal de fichiers parcourus par seconde par les passes de fond (0 = illimité).", example = "200")
+    private long scanMaxFilesPerSecond;
+
+    /**
+     * Débit maximal de lecture des passes interactives (déclenchées par un utilisateur), en octets par
+     * seconde. 0 signifie aucune limite.
+     */
+    @Schema(description = "Débit maximal de lecture des passes interactives, en octets par seconde (0 = illimité).", example = "104857600")
+    private long interactiveMaxBytesPerSecond;
+
+    /**
+     * Nombre maximal de fichiers parcourus par seconde par les passes interactives. 0 signifie aucune limite.
+     */
+    @Schema(description = "Nombre maximal de fichiers parcourus par seconde par les passes interactives (0 = illimité).", example = "0")
+    private long interactiveMaxFilesPerSecond;
+
+    /**
+     * Motifs de chemins (relatifs au répertoire de sauvegarde) à inclure. Si la liste n'est pas vide, seuls
+     * les fichiers correspondant à au moins un motif sont sauvegardés. Un motif est un glob, ou une
+     * expression régulière s'il est préfixé par {@code regex:}.
+     */
+    @Schema(description = "Motifs de chemins inclus (glob, ou expression régulière préfixée par regex:).", example = "[\"docs/**\"]")
+    private List<String> includedPatterns;
+
+    /**
+     * Motifs de chemins (relatifs au répertoire de sauvegarde) à exclure de la sauvegarde.
+     */
+    @Schema(description = "Motifs de chemins exclus (glob, ou expression régulière préfixée par regex:).", example = "[\"**/tmp/**\", \"~*\"]")
+    private List<String> excludedPatterns;
+
+    /**
+     * Taille minimale, en octets, d'un fichier à ingérer. 0 signifie aucune limite.
+     */
+    @Schema(description = "Taille minimale en octets d'un fichier à ingérer (0 = aucune limite).", example = "0")
+    private long minFileSize;
+
+    /**
+     * Taille maximale, en octets, d'un fichier à ingérer. 0 signifie aucune limite.
+     */
+    @Schema(description = "Taille maximale en octets d'un fichier à ingérer (0 = aucune limite).", example = "1073741824")
+    private long maxFileSize;
+
+    /**
+     * Âge minimal, en millisecondes, de la dernière modification d'un fichier à ingérer, pour ignorer les
+     * fichiers en cours d'écriture. 0 signifie aucune limite.
+     */
+    @Schema(description = "Âge minimal en millisecondes de la dernière modification d'un fichier à ingérer (0 = aucune limite).", example = "5000")
+    private long minFileAgeMs;
+
+    /**
+     * Âge maximal, en millisecondes, de la dernière modification d'un fichier à ingérer. 0 signifie aucune
+     * limite.
+     */
+    @Schema(description = "Âge maximal en millisecondes de la dernière modification d'un fichier à ingérer (0 = aucune limite).", example = "0")
+    private long maxFileAgeMs;
+
+    /**
+     * Racines de synchronisation synchronisées en plus du chemin de sauvegarde principal ({@link #savePath}),
+     * chacune avec sa propre planification, ses propres motifs et son propre parallélisme.
+     */
+    @Schema(description = "Racines de synchronisation supplémentaires.")
+    private List<RacineSynchronisation> syncRoots;
 }
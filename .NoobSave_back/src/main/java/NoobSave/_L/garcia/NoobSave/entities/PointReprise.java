@@ -0,0 +1,58 @@
+package NoobSave._L.garcia.NoobSave.entities;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Point de reprise d'une passe de synchronisation, persisté dans la collection MongoDB {@code sync_checkpoints}.
+ *
+ * Un point de reprise est enregistré périodiquement pendant une passe et supprimé à sa fin :
+ * <ul>
+ *     <li>Répertoire racine de la passe (clé du point de reprise)</li>
+ *     <li>Date de début de la passe et date du dernier enregistrement</li>
+ *     <li>Répertoires entièrement traités, dont tous les fichiers ont été écrits en base</li>
+ * </ul>
+ *
+ * <p>Si l'application s'arrête pendant la passe, la passe suivante reprend à partir de ce point : les
+ * répertoires déjà traités (et leurs sous-répertoires) ne sont pas parcourus à nouveau.</p>
+ */
+@Document(collection = "sync_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Point de reprise d'une passe de synchronisation interrompue.")
+public class PointReprise {
+
+    /**
+     * Chemin absolu et normalisé du répertoire racine de la passe, utilisé comme identifiant.
+     */
+    @Id
+    @Schema(description = "Chemin absolu et normalisé du répertoire racine.", example = "/home/user/archive")
+    private String racine;
+
+    /**
+     * Date de début de la passe.
+     */
+    @Schema(description = "Date de début de la passe.", example = "2023-10-15T14:00:00")
+    private LocalDateTime dateDebut;
+
+    /**
+     * Date du dernier enregistrement du point de reprise.
+     */
+    @Schema(description = "Date du dernier enregistrement du point de reprise.", example = "2023-10-15T14:35:30")
+    private LocalDateTime dateMiseAJour;
+
+    /**
+     * Chemins relatifs (séparateurs {@code /}) des répertoires entièrement traités, sous-répertoires compris.
+     * Un répertoire dont un parent figure déjà dans la liste n'y est pas répété.
+     */
+    @Schema(description = "Répertoires entièrement traités, relatifs à la racine.", example = "[\"documents\", \"photos/2023\"]")
+    private List<String> repertoiresTermines;
+}
@@ -0,0 +1,75 @@
+package NoobSave._L.garcia.NoobSave.entities;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Racine de synchronisation : répertoire sauvegardé en plus du chemin de sauvegarde principal, enregistré
+ * dans {@link Parametre}.
+ *
+ * Chaque racine dispose de ses propres réglages :
+ * <ul>
+ *     <li>Nom, identifiant la racine et les fichiers qu'elle contient</li>
+ *     <li>Intervalle entre deux synchronisations automatiques</li>
+ *     <li>Nombre maximal d'opérations d'entrée/sortie simultanées</li>
+ *     <li>Motifs de chemins inclus et exclus, ajoutés aux règles globales</li>
+ * </ul>
+ *
+ * <p>Le chemin de sauvegarde principal ({@code Parametre.savePath}) est représenté par une racine sans nom,
+ * utilisant les réglages globaux.</p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Racine de synchronisation supplémentaire.")
+public class RacineSynchronisation {
+
+    /**
+     * Nom unique de la racine, ou {@code null} pour le chemin de sauvegarde principal.
+     */
+    @Schema(description = "Nom unique de la racine (lettres, chiffres, '-', '_' et '.').", example = "photos")
+    private String nom;
+
+    /**
+     * Chemin absolu du répertoire synchronisé.
+     */
+    @Schema(description = "Chemin absolu du répertoire synchronisé.", example = "/mnt/nas/photos")
+    private String chemin;
+
+    /**
+     * Intervalle (en millisecondes) entre deux synchronisations automatiques, ou 0 pour suivre l'intervalle
+     * du chemin de sauvegarde principal.
+     */
+    @Schema(description = "Intervalle en millisecondes entre deux synchronisations automatiques (0 = intervalle global).", example = "3600000")
+    private long intervalle;
+
+    /**
+     * Nombre maximal d'opérations d'entrée/sortie simultanées, ou 0 pour la valeur par défaut
+     * ({@code noobsave.sync.parallelisme}).
+     */
+    @Schema(description = "Nombre maximal d'opérations d'entrée/sortie simultanées (0 = valeur par défaut).", example = "2")
+    private int parallelisme;
+
+    /**
+     * Motifs de chemins inclus, en plus des motifs globaux.
+     */
+    @Schema(description = "Motifs de chemins inclus, en plus des motifs globaux.", example = "[\"**/*.jpg\"]")
+    private List<String> motifsInclus;
+
+    /**
+     * Motifs de chemins exclus, en plus des motifs globaux.
+     */
+    @Schema(description = "Motifs de chemins exclus, en plus des motifs globaux.", example = "[\"**/.thumbnails/**\"]")
+    private List<String> motifsExclus;
+
+    /**
+     * @return {@code true} s'il s'agit du chemin de sauvegarde principal.
+     */
+    public boolean estPrincipale() {
+        return nom == null;
+    }
+}
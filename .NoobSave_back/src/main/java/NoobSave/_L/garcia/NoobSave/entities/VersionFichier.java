@@ -0,0 +1,135 @@
+package NoobSave._L.garcia.NoobSave.entities;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Version d'un fichier, persistée dans la collection MongoDB {@code versions}.
+ *
+ * Chaque modification du contenu d'un fichier crée une nouvelle version, numérotée à partir de 1 :
+ * <ul>
+ *     <li>Chemin relatif du fichier et numéro de version (uniques ensemble)</li>
+ *     <li>Date de la version et date de modification du fichier</li>
+ *     <li>Type MIME, empreinte et taille du contenu</li>
+ *     <li>Contenu, sous forme d'instantané (liste complète des blocs) ou de delta par rapport à la version
+ *     précédente</li>
+ * </ul>
+ *
+ * <p>Un delta décrit la liste des blocs de la version comme une suite d'instructions : recopier une plage
+ * de blocs de la version précédente, ou insérer de nouveaux blocs. Un instantané est enregistré toutes les
+ * N versions, de sorte que la reconstruction d'une version n'applique jamais plus de N - 1 deltas.</p>
+ */
+@Document(collection = "versions")
+@CompoundIndex(name = "racine_chemin_numero", def = "{'racine': 1, 'cheminRelatif': 1, 'numero': 1}", unique = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Version du contenu d'un fichier enregistré.")
+public class VersionFichier {
+
+    /**
+     * Identifiant unique de la version (généré automatiquement par MongoDB).
+     */
+    @Id
+    @Schema(description = "Identifiant unique de la version.", example = "63c2f5e5ab12ef00124")
+    private String id;
+
+    /**
+     * Racine de synchronisation du fichier versionné (voir {@code Fichier.racine}).
+     */
+    @Schema(description = "Nom de la racine de synchronisation du fichier versionné.", example = "photos")
+    private String racine;
+
+    /**
+     * Chemin relatif du fichier versionné (voir {@code Fichier.cheminRelatif}).
+     */
+    @Schema(description = "Chemin relatif du fichier versionné.", example = "documents/rapport.pdf")
+    private String cheminRelatif;
+
+    /**
+     * Numéro de la version (1 pour la première version).
+     */
+    @Schema(description = "Numéro de la version.", example = "3")
+    private int numero;
+
+    /**
+     * Date d'enregistrement de la version.
+     */
+    @Schema(description = "Date d'enregistrement de la version.", example = "2023-10-15T14:35:30")
+    private LocalDateTime dateVersion;
+
+    /**
+     * Date de modification du fichier local pour cette version.
+     */
+    @Schema(description = "Date de modification du fichier pour cette version.", example = "2023-10-15T14:30:00")
+    private LocalDateTime dateModification;
+
+    /**
+     * Type MIME du contenu.
+     */
+    @Schema(description = "Type MIME du contenu.", example = "application/pdf")
+    private String type;
+
+    /**
+     * Empreinte du contenu de la version.
+     */
+    @Schema(description = "Empreinte du contenu de la version.", example = "sha-256:9f86d081884c7d65...")
+    private String empreinte;
+
+    /**
+     * Taille du contenu en octets.
+     */
+    @Schema(description = "Taille du contenu en octets.", example = "10240")
+    private long taille;
+
+    /**
+     * Indique si la version est un instantané ({@link #blocs} renseigné) ou un delta ({@link #delta} renseigné).
+     */
+    @Schema(description = "Indique si la version est stockée sous forme d'instantané.", example = "true")
+    private boolean instantane;
+
+    /**
+     * Liste complète et ordonnée des blocs du contenu, pour un instantané.
+     */
+    @Schema(description = "Blocs du contenu (instantané).", accessMode = Schema.AccessMode.READ_ONLY)
+    private List<String> blocs;
+
+    /**
+     * Instructions reconstituant la liste des blocs à partir de la version précédente, pour un delta.
+     */
+    @Schema(description = "Delta par rapport à la version précédente.", accessMode = Schema.AccessMode.READ_ONLY)
+    private List<Instruction> delta;
+
+    /**
+     * Instruction d'un delta : recopie d'une plage de blocs de la version précédente si {@link #blocs} est
+     * {@code null}, sinon insertion des blocs indiqués.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Instruction {
+
+        /**
+         * Position du premier bloc recopié dans la version précédente.
+         */
+        private int debut;
+
+        /**
+         * Nombre de blocs recopiés.
+         */
+        private int longueur;
+
+        /**
+         * Blocs insérés, ou {@code null} pour une recopie.
+         */
+        private List<String> blocs;
+    }
+}
@@ -1,5 +1,6 @@
 package NoobSave._L.garcia.NoobSave.repository;
 
+import NoobSave._L.garcia.NoobSave.dto.MetadonneesFichier;
 import NoobSave._L.garcia.NoobSave.entities.Fichier;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
@@ -16,7 +17,7 @@ import java.util.Optional;
  * <strong>Principales fonctionnalités :</strong>
  * <ul>
  *     <li>Héritage des méthodes CRUD de {@link MongoRepository} : {@code save}, {@code findById}, {@code delete}, etc.</li>
- *     <li>Ajout de méthodes personnalisées pour des besoins spécifiques, comme {@code findByNom}.</li>
+ *     <li>Ajout de méthodes personnalisées pour des besoins spécifiques, comme {@code findFirstByRacineAndCheminRelatif}.</li>
  * </ul>
  *
  * <strong>Annotations utilisées :</strong>
@@ -36,8 +37,8 @@ import java.util.Optional;
  *         this.fichierRepository = fichierRepository;
  *     }
  *
- *     public Optional<Fichier> trouverFichierParNom(String nom) {
- *         return fichierRepository.findByNom(nom);
+ *     public Optional<MetadonneesFichier> trouverMetadonnees(String racine, String cheminRelatif) {
+ *         return fichierRepository.findFirstByRacineAndCheminRelatif(racine, cheminRelatif);
  *     }
  *
  *     // Autres méthodes de service...
@@ -60,22 +61,15 @@ import java.util.Optional;
 public interface FichierRepository extends MongoRepository<Fichier, String> {
 
     /**
-     * Recherche un fichier en fonction de son nom.
+     * Recherche les métadonnées d'un fichier en fonction de sa racine de synchronisation et de son chemin
+     * relatif.
      * <p>
-     * Cette méthode permet de retrouver un fichier ayant un nom spécifique dans la base de données.
+     * Seules les métadonnées sont lues depuis la base : le contenu binaire n'est pas transféré.
      * </p>
      *
-     * @param nom Le nom du fichier recherché.
-     * @return Un {@link Optional} contenant l'entité {@link Fichier} si elle est trouvée, ou vide sinon.
-     *
-     * <strong>Exemple d'utilisation :</strong>
-     * <pre>{@code
-     * Optional<Fichier> fichier = fichierRepository.findByNom("document.pdf");
-     * fichier.ifPresent(f -> {
-     *     System.out.println("Fichier trouvé : " + f.getNom());
-     * });
-     * }</pre>
+     * @param racine        La racine de synchronisation du fichier ({@code null} pour le répertoire principal).
+     * @param cheminRelatif Le chemin relatif du fichier recherché.
+     * @return Un {@link Optional} contenant la projection {@link MetadonneesFichier}, ou vide si aucun fichier ne correspond.
      */
-
-    Optional<Fichier> findByNom(String nom);
+    Optional<MetadonneesFichier> findFirstByRacineAndCheminRelatif(String racine, String cheminRelatif);
 }
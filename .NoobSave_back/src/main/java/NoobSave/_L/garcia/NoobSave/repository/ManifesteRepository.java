@@ -0,0 +1,20 @@
+package NoobSave._L.garcia.NoobSave.repository;
+
+import NoobSave._L.garcia.NoobSave.entities.EntreeManifeste;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository pour gérer la persistance des entrées du manifeste de synchronisation ({@link EntreeManifeste}).
+ * <p>
+ * L'identifiant d'une entrée est le chemin absolu normalisé du fichier local, ce qui permet de la
+ * retrouver ou de la remplacer directement avec les méthodes CRUD héritées de {@link MongoRepository}.
+ * </p>
+ *
+ * @see EntreeManifeste
+ * @see MongoRepository
+ */
+@Repository
+public interface ManifesteRepository extends MongoRepository<EntreeManifeste, String> {
+
+}
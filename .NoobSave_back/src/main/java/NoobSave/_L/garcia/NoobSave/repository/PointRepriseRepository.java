@@ -0,0 +1,15 @@
+package NoobSave._L.garcia.NoobSave.repository;
+
+import NoobSave._L.garcia.NoobSave.entities.PointReprise;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository des points de reprise des passes de synchronisation ({@link PointReprise}),
+ * identifiés par le chemin de leur répertoire racine.
+ *
+ * @see PointReprise
+ */
+@Repository
+public interface PointRepriseRepository extends MongoRepository<PointReprise, String> {
+}
@@ -0,0 +1,56 @@
+package NoobSave._L.garcia.NoobSave.repository;
+
+import NoobSave._L.garcia.NoobSave.dto.ResumeVersion;
+import NoobSave._L.garcia.NoobSave.entities.VersionFichier;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository pour gérer la persistance des versions de fichiers ({@link VersionFichier}).
+ *
+ * @see VersionFichier
+ * @see MongoRepository
+ */
+@Repository
+public interface VersionFichierRepository extends MongoRepository<VersionFichier, String> {
+
+    /**
+     * Liste les métadonnées des versions d'un fichier, de la plus récente à la plus ancienne.
+     *
+     * @param racine        Racine de synchronisation du fichier ({@code null} pour le répertoire principal).
+     * @param cheminRelatif Chemin relatif du fichier.
+     * @return Les versions du fichier, sans leur contenu.
+     */
+    List<ResumeVersion> findByRacineAndCheminRelatifOrderByNumeroDesc(String racine, String cheminRelatif);
+
+    /**
+     * Liste toutes les versions d'un fichier, de la plus ancienne à la plus récente.
+     *
+     * @param racine        Racine de synchronisation du fichier ({@code null} pour le répertoire principal).
+     * @param cheminRelatif Chemin relatif du fichier.
+     * @return Les versions du fichier.
+     */
+    List<VersionFichier> findByRacineAndCheminRelatifOrderByNumeroAsc(String racine, String cheminRelatif);
+
+    /**
+     * Recherche le dernier instantané d'un fichier dont le numéro ne dépasse pas celui indiqué.
+     *
+     * @param racine        Racine de synchronisation du fichier ({@code null} pour le répertoire principal).
+     * @param cheminRelatif Chemin relatif du fichier.
+     * @param numero        Numéro de version maximal.
+     * @return L'instantané trouvé, ou vide.
+     */
+    Optional<VersionFichier> findFirstByRacineAndCheminRelatifAndInstantaneTrueAndNumeroLessThanEqualOrderByNumeroDesc(
+            String racine, String cheminRelatif, int numero);
+
+    /**
+     * Supprime toutes les versions d'un fichier.
+     *
+     * @param racine        Racine de synchronisation du fichier ({@code null} pour le répertoire principal).
+     * @param cheminRelatif Chemin relatif du fichier.
+     */
+    void deleteByRacineAndCheminRelatif(String racine, String cheminRelatif);
+}
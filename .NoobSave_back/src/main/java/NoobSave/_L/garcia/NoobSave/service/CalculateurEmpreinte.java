@@ -0,0 +1,203 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Calcule l'empreinte (hash) du contenu des fichiers.
+ *
+ * <p>L'algorithme est choisi par la propriété {@code noobsave.empreinte.algorithme} :</p>
+ * <ul>
+ *     <li>un algorithme cryptographique supporté par {@link MessageDigest} ({@code SHA-256}, {@code SHA-1}, {@code MD5}...) ;</li>
+ *     <li>{@code XXH64} (xxHash64, voir {@link Xxh64}), empreinte non cryptographique sur 64 bits, beaucoup plus
+ *     rapide.</li>
+ * </ul>
+ *
+ * <p>Les sommes de contrôle sur 32 bits ({@code CRC32C}...) sont refusées : sur un grand nombre de fichiers
+ * modifiés, une collision ferait passer une modification pour un contenu inchangé.</p>
+ *
+ * <p>L'empreinte est préfixée par le nom de l'algorithme (par exemple {@code sha-256:9f86d0...}), de sorte
+ * qu'un changement d'algorithme ne soit jamais confondu avec un changement de contenu inexistant.</p>
+ *
+ * <strong>Annotations :</strong>
+ * <ul>
+ *   <li>{@code @Component} : Enregistre cette classe comme composant Spring.</li>
+ * </ul>
+ */
+@Component
+public class CalculateurEmpreinte {
+
+    /**
+     * Nom de l'algorithme non cryptographique supporté.
+     */
+    private static final String XXH64 = "XXH64";
+
+    /**
+     * Sommes de contrôle refusées, trop courtes pour détecter les changements de contenu.
+     */
+    private static final Set<String> SOMMES_CONTROLE = Set.of("CRC32", "CRC32C", "ADLER32");
+
+    /**
+     * Taille du tampon utilisé pour lire les fichiers par blocs.
+     */
+    private static final int TAILLE_TAMPON = 64 * 1024;
+
+    /**
+     * Algorithme d'empreinte, injecté via la clé {@code noobsave.empreinte.algorithme}.
+     */
+    @Value("${noobsave.empreinte.algorithme:SHA-256}")
+    private String algorithme;
+
+    /**
+     * Vérifie au démarrage que l'algorithme configuré est supporté.
+     *
+     * @throws IllegalStateException Si l'algorithme n'est pas supporté ou est refusé.
+     */
+    @PostConstruct
+    void verifier() {
+        nouvelAccumulateur();
+    }
+
+    /**
+     * Calcule l'empreinte d'un fichier en le lisant par blocs, sans le charger entièrement en mémoire.
+     *
+     * @param chemin Chemin du fichier local.
+     * @return L'empreinte préfixée par l'algorithme.
+     * @throws IOException Si une erreur survient lors de la lecture du fichier.
+     */
+    public String calculer(Path chemin) throws IOException {
+        Accumulateur accumulateur = nouvelAccumulateur();
+        byte[] tampon = new byte[TAILLE_TAMPON];
+        try (InputStream in = Files.newInputStream(chemin)) {
+            int lus;
+            while ((lus = in.read(tampon)) != -1) {
+                accumulateur.ajouter(tampon, 0, lus);
+            }
+        }
+        return accumulateur.terminer();
+    }
+
+    /**
+     * Calcule l'empreinte d'un contenu déjà chargé en mémoire.
+     *
+     * @param contenu Contenu binaire.
+     * @return L'empreinte préfixée par l'algorithme.
+     */
+    public String calculer(byte[] contenu) {
+        Accumulateur accumulateur = nouvelAccumulateur();
+        accumulateur.ajouter(contenu, 0, contenu.length);
+        return accumulateur.terminer();
+    }
+
+    /**
+     * Crée un accumulateur incrémental pour l'algorithme configuré.
+     *
+     * @return Un nouvel accumulateur.
+     * @throws IllegalStateException Si l'algorithme configuré n'est pas supporté ou est refusé.
+     */
+    public Accumulateur nouvelAccumulateur() {
+        String prefixe = algorithme.toLowerCase(Locale.ROOT) + ":";
+        if (SOMMES_CONTROLE.contains(algorithme.toUpperCase(Locale.ROOT))) {
+            throw new IllegalStateException("Algorithme d'empreinte refusé (32 bits, collisions trop probables) : "
+                    + algorithme + " ; utiliser " + XXH64 + " ou SHA-256");
+        }
+        if (XXH64.equalsIgnoreCase(algorithme)) {
+            Xxh64 xxh = new Xxh64();
+            return new Accumulateur() {
+                @Override
+                public void ajouter(byte[] donnees, int debut, int longueur) {
+                    xxh.ajouter(donnees, debut, longueur);
+                }
+
+                @Override
+                public String terminer() {
+                    return prefixe + String.format("%016x", xxh.valeur());
+                }
+            };
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance(algorithme);
+            return new Accumulateur() {
+                @Override
+                public void ajouter(byte[] donnees, int debut, int longueur) {
+                    digest.update(donnees, debut, longueur);
+                }
+
+                @Override
+                public String terminer() {
+                    return prefixe + HexFormat.of().formatHex(digest.digest());
+                }
+            };
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Algorithme d'empreinte non supporté : " + algorithme, e);
+        }
+    }
+
+    /**
+     * Enveloppe un flux de lecture afin d'alimenter un accumulateur avec chaque octet lu.
+     *
+     * @param flux         Flux d'origine.
+     * @param accumulateur Accumulateur à alimenter.
+     * @return Un flux retournant les mêmes octets que le flux d'origine.
+     */
+    public static InputStream fluxAvecEmpreinte(InputStream flux, Accumulateur accumulateur) {
+        return new FilterInputStream(flux) {
+            @Override
+            public int read() throws IOException {
+                int octet = super.read();
+                if (octet != -1) {
+                    accumulateur.ajouter(new byte[]{(byte) octet}, 0, 1);
+                }
+                return octet;
+            }
+
+            @Override
+            public int read(byte[] tampon, int debut, int longueur) throws IOException {
+                int lus = super.read(tampon, debut, longueur);
+                if (lus > 0) {
+                    accumulateur.ajouter(tampon, debut, lus);
+                }
+                return lus;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                throw new IOException("Saut non supporté pendant le calcul d'une empreinte.");
+            }
+        };
+    }
+
+    /**
+     * Calcul incrémental d'une empreinte, alimenté bloc par bloc.
+     */
+    public interface Accumulateur {
+
+        /**
+         * Ajoute un bloc de données au calcul.
+         *
+         * @param donnees  Tampon contenant les données.
+         * @param debut    Position du premier octet à prendre en compte.
+         * @param longueur Nombre d'octets à prendre en compte.
+         */
+        void ajouter(byte[] donnees, int debut, int longueur);
+
+        /**
+         * Termine le calcul et retourne l'empreinte préfixée par l'algorithme.
+         *
+         * @return L'empreinte calculée.
+         */
+        String terminer();
+    }
+}
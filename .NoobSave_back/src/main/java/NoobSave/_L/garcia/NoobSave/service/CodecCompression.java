@@ -0,0 +1,47 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Algorithme de compression du contenu stocké.
+ *
+ * <p>Chaque implémentation enregistrée comme composant Spring est automatiquement proposée par
+ * {@link CompressionService} ; son nom est persisté avec chaque contenu compressé afin de pouvoir le
+ * décompresser même si l'algorithme configuré change par la suite.</p>
+ */
+public interface CodecCompression {
+
+    /**
+     * @return Le nom de l'algorithme, persisté avec le contenu compressé (par exemple {@code zstd}).
+     */
+    String nom();
+
+    /**
+     * Compresse un contenu.
+     *
+     * @param donnees Contenu brut.
+     * @return Le contenu compressé.
+     */
+    byte[] compresser(byte[] donnees);
+
+    /**
+     * Enveloppe un flux d'écriture : les octets écrits sont compressés au fil de l'eau. La fermeture du flux
+     * retourné termine la compression et ferme le flux d'origine.
+     *
+     * @param flux Flux recevant le contenu compressé.
+     * @return Le flux dans lequel écrire le contenu brut.
+     * @throws IOException Si le flux ne peut pas être ouvert.
+     */
+    OutputStream compresser(OutputStream flux) throws IOException;
+
+    /**
+     * Enveloppe un flux compressé dans un flux retournant le contenu décompressé, au fil de la lecture.
+     *
+     * @param flux Flux compressé.
+     * @return Le flux décompressé.
+     * @throws IOException Si le flux ne peut pas être ouvert.
+     */
+    InputStream decompresser(InputStream flux) throws IOException;
+}
@@ -0,0 +1,68 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression Deflate (zlib), disponible dans le JDK sans dépendance native.
+ */
+@Component
+public class CodecDeflate implements CodecCompression {
+
+    /**
+     * Niveau de compression Deflate (1 à 9).
+     */
+    @Value("${noobsave.compression.niveau-deflate:6}")
+    private int niveau;
+
+    @Override
+    public String nom() {
+        return "deflate";
+    }
+
+    @Override
+    public byte[] compresser(byte[] donnees) {
+        Deflater deflater = new Deflater(niveau);
+        try {
+            deflater.setInput(donnees);
+            deflater.finish();
+            ByteArrayOutputStream sortie = new ByteArrayOutputStream(Math.max(64, donnees.length / 2));
+            byte[] tampon = new byte[8192];
+            while (!deflater.finished()) {
+                sortie.write(tampon, 0, deflater.deflate(tampon));
+            }
+            return sortie.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public OutputStream compresser(OutputStream flux) {
+        Deflater deflater = new Deflater(niveau);
+        return new DeflaterOutputStream(flux, deflater, 8192) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // Un Deflater fourni au flux n'est pas libéré par celui-ci
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    @Override
+    public InputStream decompresser(InputStream flux) {
+        return new InflaterInputStream(flux);
+    }
+}
@@ -0,0 +1,45 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compression Zstandard : très bon compromis entre taux de compression et vitesse, en particulier en
+ * décompression.
+ */
+@Component
+public class CodecZstd implements CodecCompression {
+
+    /**
+     * Niveau de compression Zstandard (1 à 22).
+     */
+    @Value("${noobsave.compression.niveau-zstd:3}")
+    private int niveau;
+
+    @Override
+    public String nom() {
+        return "zstd";
+    }
+
+    @Override
+    public byte[] compresser(byte[] donnees) {
+        return Zstd.compress(donnees, niveau);
+    }
+
+    @Override
+    public OutputStream compresser(OutputStream flux) throws IOException {
+        return new ZstdOutputStream(flux, niveau);
+    }
+
+    @Override
+    public InputStream decompresser(InputStream flux) throws IOException {
+        return new ZstdInputStream(flux);
+    }
+}
@@ -0,0 +1,166 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Service de compression du contenu stocké.
+ *
+ * <p>L'algorithme est choisi par la propriété {@code noobsave.compression.algorithme} parmi les
+ * {@link CodecCompression} disponibles ({@code zstd}, {@code deflate}), ou {@code aucune} pour désactiver la
+ * compression. Un fichier n'est pas compressé lorsque son contenu l'est déjà :</p>
+ * <ul>
+ *     <li>son type MIME commence par un des préfixes de {@code noobsave.compression.types-exclus} ;</li>
+ *     <li>ou ses premiers octets correspondent à la signature d'un format compressé (zip, gzip, zstd, xz,
+ *     7z, rar, bzip2, jpeg, png, gif, webp, mp4, ogg...).</li>
+ * </ul>
+ *
+ * <p>Un contenu dont la compression ne fait pas gagner au moins 3 % est conservé brut.</p>
+ */
+@Service
+@RequiredArgsConstructor
+public class CompressionService {
+
+    /**
+     * Valeur de {@code noobsave.compression.algorithme} désactivant la compression.
+     */
+    private static final String AUCUNE = "aucune";
+
+    /**
+     * Rapport maximal entre taille compressée et taille brute pour que la compression soit conservée.
+     */
+    private static final double RATIO_MAX = 0.97;
+
+    /**
+     * Signatures (premiers octets) des formats déjà compressés.
+     */
+    private static final List<byte[]> SIGNATURES = List.of(
+            new byte[]{0x50, 0x4B, 0x03, 0x04},                          // zip, docx, xlsx, jar...
+            new byte[]{0x1F, (byte) 0x8B},                               // gzip
+            new byte[]{0x28, (byte) 0xB5, 0x2F, (byte) 0xFD},            // zstd
+            new byte[]{(byte) 0xFD, 0x37, 0x7A, 0x58, 0x5A, 0x00},       // xz
+            new byte[]{0x37, 0x7A, (byte) 0xBC, (byte) 0xAF, 0x27, 0x1C}, // 7z
+            new byte[]{0x52, 0x61, 0x72, 0x21, 0x1A, 0x07},              // rar
+            new byte[]{0x42, 0x5A, 0x68},                                // bzip2
+            new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF},           // jpeg
+            new byte[]{(byte) 0x89, 0x50, 0x4E, 0x47},                   // png
+            new byte[]{0x47, 0x49, 0x46, 0x38},                          // gif
+            new byte[]{0x4F, 0x67, 0x67, 0x53},                          // ogg
+            new byte[]{0x66, 0x4C, 0x61, 0x43},                          // flac
+            new byte[]{0x49, 0x44, 0x33}                                 // mp3 (ID3)
+    );
+
+    /**
+     * Nombre d'octets lus en tête de fichier pour la détection des signatures.
+     */
+    private static final int TAILLE_ENTETE = 16;
+
+    /**
+     * Algorithmes de compression disponibles.
+     */
+    private final List<CodecCompression> codecs;
+
+    /**
+     * Algorithme de compression, injecté via la clé {@code noobsave.compression.algorithme}.
+     */
+    @Value("${noobsave.compression.algorithme:zstd}")
+    private String algorithme;
+
+    /**
+     * Préfixes de types MIME des formats déjà compressés.
+     */
+    @Value("${noobsave.compression.types-exclus:image/jpeg,image/png,image/gif,image/webp,video/,audio/,application/zip,application/gzip,application/x-gzip,application/zstd,application/x-7z-compressed,application/x-rar-compressed,application/x-xz,application/x-bzip2,application/vnd.openxmlformats-officedocument}")
+    private List<String> typesExclus;
+
+    /**
+     * Choisit l'algorithme de compression d'un fichier d'après son type MIME et ses premiers octets.
+     *
+     * @param chemin   Chemin du fichier local.
+     * @param typeMime Type MIME du fichier.
+     * @return L'algorithme à utiliser, ou {@code null} si le fichier ne doit pas être compressé.
+     * @throws IOException Si une erreur survient lors de la lecture de l'en-tête du fichier.
+     */
+    public CodecCompression choisir(Path chemin, String typeMime) throws IOException {
+        if (AUCUNE.equalsIgnoreCase(algorithme)) {
+            return null;
+        }
+        String type = typeMime.toLowerCase(Locale.ROOT);
+        if (typesExclus.stream().anyMatch(prefixe -> !prefixe.isBlank() && type.startsWith(prefixe.trim()))) {
+            return null;
+        }
+        byte[] entete;
+        try (InputStream flux = Files.newInputStream(chemin)) {
+            entete = flux.readNBytes(TAILLE_ENTETE);
+        }
+        if (estDejaCompresse(entete)) {
+            return null;
+        }
+        return codec(algorithme);
+    }
+
+    /**
+     * Compresse un contenu s'il y a un gain suffisant.
+     *
+     * @param codec   Algorithme de compression.
+     * @param donnees Contenu brut.
+     * @return Le contenu compressé, ou {@code null} si la compression n'apporte pas de gain suffisant.
+     */
+    public byte[] compresserSiRentable(CodecCompression codec, byte[] donnees) {
+        byte[] compresse = codec.compresser(donnees);
+        return compresse.length <= donnees.length * RATIO_MAX ? compresse : null;
+    }
+
+    /**
+     * Enveloppe un flux compressé dans un flux décompressé.
+     *
+     * @param nom  Nom de l'algorithme utilisé pour la compression.
+     * @param flux Flux compressé.
+     * @return Le flux décompressé.
+     * @throws IOException Si le flux ne peut pas être ouvert.
+     */
+    public InputStream decompresser(String nom, InputStream flux) throws IOException {
+        return codec(nom).decompresser(flux);
+    }
+
+    /**
+     * Recherche un algorithme de compression par son nom.
+     *
+     * @param nom Nom de l'algorithme.
+     * @return L'algorithme correspondant.
+     * @throws IllegalStateException Si aucun algorithme ne porte ce nom.
+     */
+    public CodecCompression codec(String nom) {
+        return codecs.stream()
+                .filter(codec -> codec.nom().equalsIgnoreCase(nom))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Algorithme de compression non supporté : " + nom));
+    }
+
+    /**
+     * Indique si un en-tête de fichier correspond à un format déjà compressé.
+     *
+     * @param entete Premiers octets du fichier.
+     * @return {@code true} si le format est reconnu comme compressé.
+     */
+    static boolean estDejaCompresse(byte[] entete) {
+        for (byte[] signature : SIGNATURES) {
+            if (entete.length >= signature.length
+                    && Arrays.equals(entete, 0, signature.length, signature, 0, signature.length)) {
+                return true;
+            }
+        }
+        // Conteneurs ISO (mp4, mov, heic...) : "ftyp" à la position 4 ; webp : "RIFF....WEBP"
+        return (entete.length >= 8 && entete[4] == 'f' && entete[5] == 't' && entete[6] == 'y' && entete[7] == 'p')
+                || (entete.length >= 12 && entete[0] == 'R' && entete[1] == 'I' && entete[2] == 'F' && entete[3] == 'F'
+                && entete[8] == 'W' && entete[9] == 'E' && entete[10] == 'B' && entete[11] == 'P');
+    }
+}
@@ -0,0 +1,161 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+/**
+ * Découpage d'un flux en blocs définis par leur contenu (algorithme FastCDC).
+ *
+ * <p>Une empreinte glissante « gear » est calculée octet par octet ; une frontière de bloc est placée dès
+ * que les bits de poids fort de l'empreinte sont nuls. Les frontières dépendant du contenu et non des
+ * positions, une insertion ou une suppression au milieu d'un fichier ne modifie que les blocs voisins :
+ * les autres blocs sont retrouvés à l'identique et dédupliqués.</p>
+ *
+ * <p>Comme dans FastCDC, les {@code min} premiers octets d'un bloc ne sont pas examinés, et la
+ * normalisation utilise un masque plus exigeant avant la taille moyenne et plus permissif après, afin de
+ * resserrer la distribution des tailles autour de la moyenne.</p>
+ *
+ * <p>Les instances sont immuables et peuvent être partagées entre threads.</p>
+ */
+class DecoupeurFastCdc {
+
+    /**
+     * Table « gear » : une valeur pseudo-aléatoire par octet. La graine est fixe afin que les frontières
+     * soient identiques d'une exécution à l'autre (condition de la déduplication).
+     */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom aleatoire = new SplittableRandom(0x4E6F6F6253617665L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = aleatoire.nextLong();
+        }
+    }
+
+    /**
+     * Réception des blocs produits par le découpage.
+     */
+    @FunctionalInterface
+    interface ConsommateurBloc {
+
+        /**
+         * Reçoit un bloc. Le tampon est réutilisé après l'appel : son contenu doit être copié s'il est conservé.
+         *
+         * @param tampon   Tampon contenant le bloc.
+         * @param debut    Position du premier octet du bloc.
+         * @param longueur Taille du bloc en octets.
+         * @throws IOException Si le traitement du bloc échoue.
+         */
+        void accepter(byte[] tampon, int debut, int longueur) throws IOException;
+    }
+
+    private final int tailleMin;
+    private final int tailleMoyenne;
+    private final int tailleMax;
+    private final long masqueStrict;
+    private final long masqueLarge;
+
+    /**
+     * Crée un découpeur pour une taille moyenne de bloc donnée. Les tailles minimale et maximale valent
+     * respectivement le quart et le quadruple de la taille moyenne.
+     *
+     * @param tailleMoyenne Taille moyenne visée, en octets (arrondie à la puissance de deux inférieure).
+     */
+    DecoupeurFastCdc(int tailleMoyenne) {
+        int bits = 31 - Integer.numberOfLeadingZeros(Math.max(256, tailleMoyenne));
+        this.tailleMoyenne = 1 << bits;
+        this.tailleMin = this.tailleMoyenne / 4;
+        this.tailleMax = this.tailleMoyenne * 4;
+        this.masqueStrict = masqueBitsDePoidsFort(bits + 2);
+        this.masqueLarge = masqueBitsDePoidsFort(bits - 2);
+    }
+
+    /**
+     * @return La taille minimale d'un bloc, en octets (seul le dernier bloc d'un flux peut être plus petit).
+     */
+    int getTailleMin() {
+        return tailleMin;
+    }
+
+    /**
+     * @return La taille maximale d'un bloc, en octets.
+     */
+    int getTailleMax() {
+        return tailleMax;
+    }
+
+    /**
+     * Découpe un flux en blocs et les transmet, dans l'ordre, au consommateur.
+     *
+     * <p>La mémoire utilisée est bornée par la taille maximale d'un bloc, quelle que soit la taille du flux.</p>
+     *
+     * @param flux         Flux à découper (non fermé par cette méthode).
+     * @param consommateur Destinataire des blocs.
+     * @throws IOException Si la lecture du flux ou le traitement d'un bloc échoue.
+     */
+    void decouper(InputStream flux, ConsommateurBloc consommateur) throws IOException {
+        byte[] tampon = new byte[tailleMax];
+        int disponibles = 0;
+        boolean finDeFlux = false;
+        while (true) {
+            // Remplit le tampon pour disposer d'au moins un bloc de taille maximale
+            while (!finDeFlux && disponibles < tailleMax) {
+                int lus = flux.read(tampon, disponibles, tailleMax - disponibles);
+                if (lus == -1) {
+                    finDeFlux = true;
+                } else {
+                    disponibles += lus;
+                }
+            }
+            if (disponibles == 0) {
+                return;
+            }
+            int coupure = frontiere(tampon, disponibles);
+            consommateur.accepter(tampon, 0, coupure);
+            System.arraycopy(tampon, coupure, tampon, 0, disponibles - coupure);
+            disponibles -= coupure;
+        }
+    }
+
+    /**
+     * Recherche la fin du premier bloc contenu dans le tampon.
+     *
+     * @param donnees Tampon de données.
+     * @param taille  Nombre d'octets disponibles dans le tampon.
+     * @return La taille du premier bloc.
+     */
+    int frontiere(byte[] donnees, int taille) {
+        if (taille <= tailleMin) {
+            return taille;
+        }
+        int limite = Math.min(taille, tailleMax);
+        int normale = Math.min(tailleMoyenne, limite);
+        long empreinte = 0;
+        int i = tailleMin;
+        for (; i < normale; i++) {
+            empreinte = (empreinte << 1) + GEAR[donnees[i] & 0xFF];
+            if ((empreinte & masqueStrict) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < limite; i++) {
+            empreinte = (empreinte << 1) + GEAR[donnees[i] & 0xFF];
+            if ((empreinte & masqueLarge) == 0) {
+                return i + 1;
+            }
+        }
+        return limite;
+    }
+
+    /**
+     * Construit un masque sélectionnant les {@code bits} bits de poids fort, qui dépendent des 64 derniers
+     * octets lus.
+     *
+     * @param bits Nombre de bits du masque.
+     * @return Le masque.
+     */
+    private static long masqueBitsDePoidsFort(int bits) {
+        return -1L << (64 - bits);
+    }
+}
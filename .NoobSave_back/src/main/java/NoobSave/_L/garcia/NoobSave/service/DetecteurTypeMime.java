@@ -0,0 +1,368 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Détecte le type MIME des fichiers à partir de leurs premiers octets (signature, ou « magic bytes »).
+ *
+ * <p>Contrairement à {@link Files#probeContentType(Path)}, dont le résultat dépend du système (détecteur du
+ * système de fichiers, base shared-mime-info...) et qui peut accéder au disque à chaque appel, la détection
+ * repose uniquement sur une table de signatures et d'extensions embarquée : un même fichier obtient le même
+ * type sur tous les hôtes.</p>
+ *
+ * <ul>
+ *     <li>les formats binaires sont reconnus à leur signature ; les conteneurs génériques (zip, OLE2, RIFF,
+ *     ISO BMFF) sont précisés par l'extension ou par leur sous-type ;</li>
+ *     <li>un contenu sans octet nul et en UTF-8 valide est du texte, précisé par l'extension
+ *     ({@code text/plain} par défaut) ;</li>
+ *     <li>à défaut, le type est {@code application/octet-stream}.</li>
+ * </ul>
+ *
+ * <p>Les résultats sont conservés en mémoire par (chemin, taille, date de modification), dans la limite de
+ * {@code noobsave.mime.cache.taille} entrées : un fichier inchangé n'est jamais relu pour sa détection.</p>
+ *
+ * <strong>Annotations :</strong>
+ * <ul>
+ *   <li>{@code @Component} : Enregistre cette classe comme composant Spring.</li>
+ * </ul>
+ */
+@Component
+public class DetecteurTypeMime {
+
+    /**
+     * Type attribué aux contenus non reconnus.
+     */
+    static final String INCONNU = "application/octet-stream";
+
+    /**
+     * Nombre d'octets lus en tête de fichier : suffisant pour la signature tar (décalage 257) et pour
+     * distinguer un texte d'un contenu binaire.
+     */
+    static final int TAILLE_ENTETE = 512;
+
+    /**
+     * Signature d'un format : octets attendus à un décalage donné.
+     *
+     * @param decalage Position des octets dans le fichier.
+     * @param octets   Octets attendus.
+     * @param type     Type MIME du format.
+     */
+    private record Signature(int decalage, byte[] octets, String type) {
+
+        static Signature de(String type, int... octets) {
+            return a(0, type, octets);
+        }
+
+        static Signature a(int decalage, String type, int... octets) {
+            byte[] attendus = new byte[octets.length];
+            for (int i = 0; i < octets.length; i++) {
+                attendus[i] = (byte) octets[i];
+            }
+            return new Signature(decalage, attendus, type);
+        }
+
+        static Signature texte(int decalage, String type, String ascii) {
+            return new Signature(decalage, ascii.getBytes(StandardCharsets.US_ASCII), type);
+        }
+
+        boolean correspond(byte[] entete, int longueur) {
+            if (decalage + octets.length > longueur) {
+                return false;
+            }
+            for (int i = 0; i < octets.length; i++) {
+                if (entete[decalage + i] != octets[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Types précisés ensuite d'après l'extension ou le sous-type du conteneur.
+     */
+    private static final String ZIP = "application/zip";
+    private static final String OLE2 = "application/x-ole-storage";
+    private static final String RIFF = "riff";
+    private static final String ISO_BMFF = "iso-bmff";
+    private static final String MATROSKA = "video/x-matroska";
+
+    /**
+     * Signatures des formats binaires, dans l'ordre d'évaluation.
+     */
+    private static final List<Signature> SIGNATURES = List.of(
+            Signature.texte(0, "application/pdf", "%PDF-"),
+            Signature.de("image/png", 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A),
+            Signature.de("image/jpeg", 0xFF, 0xD8, 0xFF),
+            Signature.texte(0, "image/gif", "GIF87a"),
+            Signature.texte(0, "image/gif", "GIF89a"),
+            Signature.de("image/tiff", 0x49, 0x49, 0x2A, 0x00),
+            Signature.de("image/tiff", 0x4D, 0x4D, 0x00, 0x2A),
+            Signature.de("image/x-icon", 0x00, 0x00, 0x01, 0x00),
+            Signature.texte(0, "image/vnd.adobe.photoshop", "8BPS"),
+            Signature.de(ZIP, 0x50, 0x4B, 0x03, 0x04),
+            Signature.de(ZIP, 0x50, 0x4B, 0x05, 0x06),
+            Signature.de(OLE2, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1),
+            Signature.de("application/gzip", 0x1F, 0x8B),
+            Signature.texte(0, "application/x-bzip2", "BZh"),
+            Signature.de("application/x-xz", 0xFD, 0x37, 0x7A, 0x58, 0x5A, 0x00),
+            Signature.de("application/zstd", 0x28, 0xB5, 0x2F, 0xFD),
+            Signature.de("application/x-7z-compressed", 0x37, 0x7A, 0xBC, 0xAF, 0x27, 0x1C),
+            Signature.de("application/x-rar-compressed", 0x52, 0x61, 0x72, 0x21, 0x1A, 0x07),
+            Signature.texte(257, "application/x-tar", "ustar"),
+            Signature.texte(0, RIFF, "RIFF"),
+            Signature.texte(4, ISO_BMFF, "ftyp"),
+            Signature.de(MATROSKA, 0x1A, 0x45, 0xDF, 0xA3),
+            Signature.texte(0, "audio/ogg", "OggS"),
+            Signature.texte(0, "audio/flac", "fLaC"),
+            Signature.texte(0, "audio/mpeg", "ID3"),
+            Signature.de("audio/mpeg", 0xFF, 0xFB),
+            Signature.de("audio/mpeg", 0xFF, 0xF3),
+            Signature.de("audio/mpeg", 0xFF, 0xF2),
+            Signature.texte(0, "font/woff", "wOFF"),
+            Signature.texte(0, "font/woff2", "wOF2"),
+            Signature.texte(0, "application/vnd.sqlite3", "SQLite format 3"),
+            Signature.de("application/x-executable", 0x7F, 0x45, 0x4C, 0x46),
+            Signature.de("application/java-vm", 0xCA, 0xFE, 0xBA, 0xBE),
+            Signature.de("application/wasm", 0x00, 0x61, 0x73, 0x6D)
+    );
+
+    /**
+     * Signatures trop courtes pour être fiables, évaluées seulement si le contenu n'est pas du texte.
+     */
+    private static final List<Signature> SIGNATURES_FAIBLES = List.of(
+            Signature.texte(0, "image/bmp", "BM"),
+            Signature.texte(0, "application/vnd.microsoft.portable-executable", "MZ")
+    );
+
+    /**
+     * Types des conteneurs zip selon l'extension.
+     */
+    private static final Map<String, String> TYPES_ZIP = Map.ofEntries(
+            Map.entry("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document"),
+            Map.entry("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+            Map.entry("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation"),
+            Map.entry("odt", "application/vnd.oasis.opendocument.text"),
+            Map.entry("ods", "application/vnd.oasis.opendocument.spreadsheet"),
+            Map.entry("odp", "application/vnd.oasis.opendocument.presentation"),
+            Map.entry("epub", "application/epub+zip"),
+            Map.entry("jar", "application/java-archive"),
+            Map.entry("apk", "application/vnd.android.package-archive")
+    );
+
+    /**
+     * Types des conteneurs OLE2 (anciens formats Office) selon l'extension.
+     */
+    private static final Map<String, String> TYPES_OLE2 = Map.of(
+            "doc", "application/msword",
+            "xls", "application/vnd.ms-excel",
+            "ppt", "application/vnd.ms-powerpoint",
+            "msg", "application/vnd.ms-outlook"
+    );
+
+    /**
+     * Types des fichiers texte selon l'extension.
+     */
+    private static final Map<String, String> TYPES_TEXTE = Map.ofEntries(
+            Map.entry("txt", "text/plain"),
+            Map.entry("log", "text/plain"),
+            Map.entry("md", "text/markdown"),
+            Map.entry("csv", "text/csv"),
+            Map.entry("tsv", "text/tab-separated-values"),
+            Map.entry("html", "text/html"),
+            Map.entry("htm", "text/html"),
+            Map.entry("css", "text/css"),
+            Map.entry("js", "text/javascript"),
+            Map.entry("json", "application/json"),
+            Map.entry("xml", "application/xml"),
+            Map.entry("yaml", "application/yaml"),
+            Map.entry("yml", "application/yaml"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("rtf", "application/rtf"),
+            Map.entry("java", "text/x-java-source"),
+            Map.entry("py", "text/x-python"),
+            Map.entry("sh", "application/x-sh"),
+            Map.entry("sql", "application/sql"),
+            Map.entry("properties", "text/plain")
+    );
+
+    /**
+     * Clé du cache : un fichier dans un état donné.
+     *
+     * @param chemin           Chemin absolu et normalisé du fichier.
+     * @param taille           Taille du fichier.
+     * @param dateModification Date de modification du fichier, en millisecondes.
+     */
+    private record Cle(String chemin, long taille, long dateModification) {
+    }
+
+    /**
+     * Types détectés, du moins au plus récemment utilisé.
+     */
+    private final Map<Cle, String> cache;
+
+    /**
+     * Crée le détecteur.
+     *
+     * @param tailleCache Nombre maximal de résultats conservés, injecté via la clé
+     *                    {@code noobsave.mime.cache.taille}.
+     */
+    public DetecteurTypeMime(@Value("${noobsave.mime.cache.taille:10000}") int tailleCache) {
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Cle, String> eldest) {
+                return size() > tailleCache;
+            }
+        });
+    }
+
+    /**
+     * Détecte le type MIME d'un fichier, en lisant son en-tête si le fichier n'a pas déjà été examiné dans
+     * cet état.
+     *
+     * @param chemin    Chemin du fichier local.
+     * @param attributs Attributs du fichier lus avant son ingestion.
+     * @return Le type MIME du fichier, jamais {@code null}.
+     * @throws IOException Si une erreur survient lors de la lecture de l'en-tête du fichier.
+     */
+    public String detecter(Path chemin, BasicFileAttributes attributs) throws IOException {
+        Cle cle = new Cle(chemin.toAbsolutePath().normalize().toString(), attributs.size(),
+                attributs.lastModifiedTime().toMillis());
+        String type = cache.get(cle);
+        if (type != null) {
+            return type;
+        }
+        byte[] entete;
+        try (InputStream flux = Files.newInputStream(chemin)) {
+            entete = flux.readNBytes(TAILLE_ENTETE);
+        }
+        type = detecter(chemin.getFileName().toString(), entete, entete.length);
+        cache.put(cle, type);
+        return type;
+    }
+
+    /**
+     * Détecte le type MIME d'un contenu à partir de son nom et de ses premiers octets.
+     *
+     * @param nom      Nom du fichier, utilisé pour préciser les conteneurs et les fichiers texte.
+     * @param entete   Premiers octets du contenu.
+     * @param longueur Nombre d'octets valides dans {@code entete}.
+     * @return Le type MIME, jamais {@code null}.
+     */
+    static String detecter(String nom, byte[] entete, int longueur) {
+        String extension = extension(nom);
+        for (Signature signature : SIGNATURES) {
+            if (signature.correspond(entete, longueur)) {
+                return preciser(signature.type(), extension, entete, longueur);
+            }
+        }
+        if (estTexte(entete, longueur)) {
+            String type = TYPES_TEXTE.get(extension);
+            if (type != null) {
+                return type;
+            }
+            String debut = new String(entete, 0, Math.min(longueur, 64), StandardCharsets.ISO_8859_1)
+                    .stripLeading().toLowerCase(Locale.ROOT);
+            if (debut.startsWith("<?xml")) {
+                return "application/xml";
+            }
+            if (debut.startsWith("<!doctype html") || debut.startsWith("<html")) {
+                return "text/html";
+            }
+            if (debut.startsWith("{\\rtf")) {
+                return "application/rtf";
+            }
+            return "text/plain";
+        }
+        for (Signature signature : SIGNATURES_FAIBLES) {
+            if (signature.correspond(entete, longueur)) {
+                return signature.type();
+            }
+        }
+        return INCONNU;
+    }
+
+    /**
+     * Précise le type d'un conteneur générique.
+     */
+    private static String preciser(String type, String extension, byte[] entete, int longueur) {
+        return switch (type) {
+            case ZIP -> TYPES_ZIP.getOrDefault(extension, ZIP);
+            case OLE2 -> TYPES_OLE2.getOrDefault(extension, OLE2);
+            case MATROSKA -> "webm".equals(extension) ? "video/webm" : MATROSKA;
+            case RIFF -> switch (ascii(entete, longueur, 8, 4)) {
+                case "WEBP" -> "image/webp";
+                case "WAVE" -> "audio/wav";
+                case "AVI " -> "video/x-msvideo";
+                default -> INCONNU;
+            };
+            case ISO_BMFF -> switch (ascii(entete, longueur, 8, 4)) {
+                case "qt  " -> "video/quicktime";
+                case "M4A " -> "audio/mp4";
+                case "heic", "heix", "mif1" -> "image/heic";
+                case "avif" -> "image/avif";
+                default -> "video/mp4";
+            };
+            default -> type;
+        };
+    }
+
+    /**
+     * Indique si un en-tête est du texte : encodage UTF-16 annoncé par une marque d'ordre des octets, ou
+     * UTF-8 valide sans octet nul ni caractère de contrôle autre que les blancs. Une séquence UTF-8 coupée
+     * par la fin de l'en-tête est acceptée.
+     */
+    private static boolean estTexte(byte[] entete, int longueur) {
+        if (longueur >= 2 && ((entete[0] == (byte) 0xFF && entete[1] == (byte) 0xFE)
+                || (entete[0] == (byte) 0xFE && entete[1] == (byte) 0xFF))) {
+            return true;
+        }
+        int i = 0;
+        while (i < longueur) {
+            int b = entete[i] & 0xFF;
+            int suite;
+            if (b < 0x80) {
+                if (b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f' && b != 0x1B) {
+                    return false;
+                }
+                suite = 0;
+            } else if (b >= 0xC2 && b <= 0xDF) {
+                suite = 1;
+            } else if (b >= 0xE0 && b <= 0xEF) {
+                suite = 2;
+            } else if (b >= 0xF0 && b <= 0xF4) {
+                suite = 3;
+            } else {
+                return false;
+            }
+            for (int k = 1; k <= suite; k++) {
+                if (i + k >= longueur) {
+                    return true;
+                }
+                if ((entete[i + k] & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+            i += suite + 1;
+        }
+        return true;
+    }
+
+    private static String ascii(byte[] entete, int longueur, int decalage, int taille) {
+        return decalage + taille <= longueur ? new String(entete, decalage, taille, StandardCharsets.US_ASCII) : "";
+    }
+
+    private static String extension(String nom) {
+        int point = nom.lastIndexOf('.');
+        return point >= 0 ? nom.substring(point + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}
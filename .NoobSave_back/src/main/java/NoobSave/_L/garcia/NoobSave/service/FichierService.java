@@ -1,23 +1,42 @@
 package NoobSave._L.garcia.NoobSave.service;
 
+import NoobSave._L.garcia.NoobSave.dto.MetadonneesFichier;
+import NoobSave._L.garcia.NoobSave.dto.ResumeVersion;
+import NoobSave._L.garcia.NoobSave.entities.EntreeManifeste;
 import NoobSave._L.garcia.NoobSave.entities.Fichier;
+import NoobSave._L.garcia.NoobSave.entities.Parametre;
+import NoobSave._L.garcia.NoobSave.entities.RacineSynchronisation;
+import NoobSave._L.garcia.NoobSave.entities.VersionFichier;
 import NoobSave._L.garcia.NoobSave.repository.FichierRepository;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.PosixFilePermission;
-import java.time.Duration;
-import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service pour gérer les opérations sur les fichiers.
@@ -27,7 +46,8 @@ import java.util.stream.Collectors;
  *     <li>Synchronisation avec un répertoire local et la base de données.</li>
  *     <li>Ajout, suppression et restauration de fichiers.</li>
  *     <li>Gestion des permissions POSIX sur les fichiers/répertoires.</li>
- *     <li>Exécution de sauvegardes automatiques ou manuelles.</li>
+ *     <li>Exécution des passes de synchronisation (lancées sous forme de tâches par
+ *     {@link TacheSynchronisationService}).</li>
  * </ul>
 
  * <b>Note :</b> Ce service est conçu pour être utilisé par des contrôleurs REST.
@@ -39,6 +59,18 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class FichierService {
 
+    /**
+     * Issue de l'ingestion d'un fichier dont l'entrée du manifeste a changé.
+     */
+    private enum Traitement {
+        /** Fichier vide ou illisible, non traité. */
+        IGNORE,
+        /** Contenu identique à celui enregistré (date seule modifiée) : seul le manifeste est mis à jour. */
+        INCHANGE,
+        /** Fichier nouveau ou dont le contenu a changé, transmis au lot d'écriture. */
+        INGERE
+    }
+
     /**
      * Référentiel pour gérer les entités {@link Fichier}.
      */
@@ -49,15 +81,124 @@ public class FichierService {
      */
     private final ParametreService parametreService;
 
+    /**
+     * Service du manifeste permettant d'ignorer les fichiers inchangés.
+     */
+    private final ManifesteService manifesteService;
+
+    /**
+     * Points de reprise des passes de synchronisation interrompues.
+     */
+    private final PointRepriseService pointRepriseService;
+
+    /**
+     * Limitation du débit de lecture des passes.
+     */
+    private final LimitationDebitService limitationDebitService;
+
+    /**
+     * Filtre compilé des fichiers à sauvegarder.
+     */
+    private final FiltreFichiersService filtreFichiersService;
+
+    /**
+     * Calcul des empreintes de contenu pour la détection des changements.
+     */
+    private final CalculateurEmpreinte calculateurEmpreinte;
+
+    /**
+     * Détection du type MIME des fichiers ingérés.
+     */
+    private final DetecteurTypeMime detecteurTypeMime;
+
+    /**
+     * Stockage GridFS du contenu des fichiers volumineux.
+     */
+    private final StockageGridFsService stockageGridFsService;
+
+    /**
+     * Service de stockage du contenu des petits fichiers, séparé de leurs métadonnées.
+     */
+    private final StockageCorpsService stockageCorpsService;
+
+    /**
+     * Stockage du contenu des fichiers sous forme de blocs dédupliqués.
+     */
+    private final StockageBlocsService stockageBlocsService;
+
+    /**
+     * Compression du contenu stocké.
+     */
+    private final CompressionService compressionService;
+
+    /**
+     * Historique des versions des fichiers.
+     */
+    private final VersionService versionService;
+
+    /**
+     * Création paresseuse des index MongoDB.
+     */
+    private final IndexService indexService;
+
+    /**
+     * Journal d'ingestion, pour la reprise des écritures interrompues.
+     */
+    private final JournalIngestion journalIngestion;
+
+    /**
+     * Accès bas niveau à MongoDB, pour les écritures groupées.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Nombre maximal d'opérations d'entrée/sortie simultanées lors d'une passe de synchronisation.
+     */
+    @Value("${noobsave.sync.parallelisme:8}")
+    private int parallelisme;
+
+    /**
+     * Taille (en octets) à partir de laquelle le contenu d'un fichier est stocké dans GridFS.
+     */
+    @Value("${noobsave.stockage.gridfs.seuil-octets:1048576}")
+    private long seuilGridFs;
+
+    /**
+     * Active le découpage du contenu en blocs dédupliqués (à la place du stockage dans le document ou GridFS).
+     * Le découpage est toujours utilisé lorsque le contenu est stocké hors de la base ; sinon, les fichiers
+     * dépassant le nombre maximal de blocs sont stockés dans GridFS (voir {@link StockageBlocsService#decoupable(long)}).
+     */
+    @Value("${noobsave.stockage.deduplication.active:true}")
+    private boolean deduplicationActive;
+
+    /**
+     * Nombre d'opérations déclenchant l'écriture d'un lot.
+     */
+    @Value("${noobsave.sync.lot.taille:500}")
+    private int tailleLot;
+
+    /**
+     * Volume de contenu (en octets) déclenchant l'écriture d'un lot.
+     */
+    @Value("${noobsave.sync.lot.octets-max:16777216}")
+    private long octetsMaxLot;
+
+    /**
+     * Ancienneté maximale (en millisecondes) d'une opération en attente dans un lot.
+     */
+    @Value("${noobsave.sync.lot.delai-max-ms:2000}")
+    private long delaiMaxLotMs;
+
     /**
      * Chemin par défaut utilisé pour les fichiers d'archive.
      */
     private final Path defaultPath = Paths.get("./../archive");
 
     /**
-     * Date de la dernière synchronisation effectuée.
+     * Verrou de chaque racine de synchronisation, partagé par les passes et les événements du système de
+     * fichiers : un seul lot écrit à la fois les fichiers d'une racine.
      */
-    private LocalDateTime lastSyncTime = LocalDateTime.now().minusYears(10);
+    private final Map<Path, ReentrantLock> verrousRacines = new ConcurrentHashMap<>();
 
     /**
      * Retourne le chemin de sauvegarde actif.
@@ -75,35 +216,46 @@ public class FichierService {
     }
 
     /**
-     * Sauvegarde régulière des fichiers à un intervalle fixe si l'auto-save est activée.
+     * Retourne le chemin de sauvegarde actif, pour les composants qui surveillent ce répertoire.
      *
-     * @throws IOException Si une erreur survient lors de la lecture/écriture des fichiers.
+     * @return Le chemin de sauvegarde actif.
      */
-    @Scheduled(fixedRate = 5000) // équivaut ici à 5 secondes en exemple
-    public void regularSave() throws IOException {
-        if (!parametreService.getParametre().isAutoSaveEnabled()) {
-            return;
-        }
-
-        long intervalMs = parametreService.getParametre().getAutoSaveInterval();
-        long sinceLastMs = Duration.between(lastSyncTime, LocalDateTime.now()).toMillis();
-
-        Path savePath = savePath();
+    public Path cheminSauvegarde() {
+        return savePath();
+    }
 
-        if (sinceLastMs >= intervalMs) {
-            synchroniserFichiersDuRepertoire(savePath);
-            lastSyncTime = LocalDateTime.now();
+    /**
+     * Retourne les racines de synchronisation : le chemin de sauvegarde principal (racine sans nom), suivi
+     * des racines supplémentaires configurées dans les paramètres.
+     *
+     * @param parametre Paramètres de l'application.
+     * @return Les racines de synchronisation, avec des chemins absolus et normalisés.
+     */
+    public List<RacineSynchronisation> racines(Parametre parametre) {
+        List<RacineSynchronisation> racines = new ArrayList<>();
+        RacineSynchronisation principale = new RacineSynchronisation();
+        principale.setChemin(Optional.ofNullable(parametre.getSavePath()).map(Paths::get).orElse(defaultPath)
+                .toAbsolutePath().normalize().toString());
+        racines.add(principale);
+        if (parametre.getSyncRoots() != null) {
+            racines.addAll(parametre.getSyncRoots());
         }
+        return racines;
     }
 
     /**
-     * Déclenche une sauvegarde manuelle (sans attendre la tâche planifiée).
+     * Retourne la racine de synchronisation correspondant à un répertoire.
      *
-     * @throws IOException Si une erreur survient lors de la lecture/écriture des fichiers.
+     * @param parametre  Paramètres de l'application.
+     * @param repertoire Répertoire racine, absolu et normalisé.
+     * @return La racine de synchronisation.
+     * @throws IllegalStateException Si le répertoire n'est pas (ou plus) une racine de synchronisation.
      */
-    public void saveDeclencher() throws IOException {
-        Path savePath = savePath();
-        synchroniserFichiersDuRepertoire(savePath);
+    private RacineSynchronisation racine(Parametre parametre, Path repertoire) {
+        return racines(parametre).stream()
+                .filter(racine -> Paths.get(racine.getChemin()).toAbsolutePath().normalize().equals(repertoire))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Répertoire non synchronisé : " + repertoire));
     }
 
     /**
@@ -116,20 +268,117 @@ public class FichierService {
      *     <li>Détection automatique du type MIME.</li>
      * </ul>
      *
+     * <p>Le manifeste de synchronisation est chargé une seule fois au début de la passe : seuls les fichiers
+     * dont la taille, la date de modification ou l'inode ont changé sont relus. Les entrées du manifeste
+     * correspondant à des fichiers disparus sont purgées en fin de passe.</p>
+     *
+     * <p>Les métadonnées (chemin relatif, taille, date de modification, empreinte) de tous les fichiers
+     * enregistrés sont elles aussi chargées en une seule requête : le parcours n'interroge pas la base
+     * fichier par fichier.</p>
+     *
+     * <p>Un point de reprise est enregistré périodiquement pendant la passe (voir {@link PointRepriseService}) :
+     * après un arrêt de l'application, la passe suivante ignore les répertoires déjà entièrement traités.
+     * Le point de reprise est supprimé une fois la passe terminée.</p>
+     *
+     * <p>Le répertoire est une racine de synchronisation ({@link RacineSynchronisation}) : le manifeste, les
+     * métadonnées et le point de reprise chargés sont ceux de cette racine seulement, et les fichiers sont
+     * identifiés par leur racine et leur chemin relatif. Chaque passe dispose de son propre exécuteur : les
+     * passes de racines différentes s'exécutent en parallèle, sans qu'un volume lent ne retarde les autres.</p>
+     *
+     * <p>Les répertoires et les fichiers modifiés sont traités en parallèle sur des threads virtuels, dans
+     * la limite du parallélisme de la racine (par défaut {@code noobsave.sync.parallelisme}) opérations
+     * d'entrée/sortie simultanées, et d'un débit de lecture (octets et fichiers par seconde) configuré dans
+     * les paramètres, distinct pour les passes interactives et les passes de fond (voir
+     * {@link LimitationDebitService}). Les écritures
+     * sont regroupées en opérations groupées MongoDB (voir {@link LotEcritureFichiers}).</p>
+     *
+     * <p>La passe est exécutée dans le cadre d'une tâche, qui reçoit sa progression et peut en demander
+     * l'annulation. Une passe annulée écrit les opérations en attente puis enregistre son point de reprise :
+     * le manifeste n'est pas purgé et la passe suivante reprend à partir de ce point. Les passes sont
+     * lancées par {@link TacheSynchronisationService}, qui empêche deux passes de s'exécuter en même temps
+     * sur le même répertoire. La passe détient le verrou de sa racine : les événements du système de
+     * fichiers reçus pendant la passe attendent sa fin (voir {@link #synchroniserFichier(Path)}).</p>
+     *
      * @param repertoire Chemin du répertoire à synchroniser.
+     * @param tache      Tâche de synchronisation associée à la passe.
      * @throws IOException Si une erreur survient lors de la lecture ou de l'écriture.
      */
-    public void synchroniserFichiersDuRepertoire(Path repertoire) throws IOException {
+    void synchroniserFichiersDuRepertoire(Path repertoire, TacheSynchronisation tache) throws IOException {
+        Path racine = repertoire.toAbsolutePath().normalize();
+        ReentrantLock verrou = verrouRacine(racine);
+        verrou.lock();
+        try {
+            synchroniserRacine(repertoire, racine, tache);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Renvoie le verrou d'une racine de synchronisation.
+     *
+     * @param racine Chemin absolu et normalisé de la racine.
+     * @return Verrou de la racine.
+     */
+    private ReentrantLock verrouRacine(Path racine) {
+        return verrousRacines.computeIfAbsent(racine, cle -> new ReentrantLock());
+    }
+
+    /**
+     * Exécute une passe de synchronisation sur une racine, sous le verrou de celle-ci.
+     *
+     * @param repertoire Chemin du répertoire à synchroniser.
+     * @param racine     Chemin absolu et normalisé du répertoire.
+     * @param tache      Tâche de synchronisation associée à la passe.
+     * @throws IOException Si une erreur survient lors de la lecture ou de l'écriture.
+     */
+    private void synchroniserRacine(Path repertoire, Path racine, TacheSynchronisation tache) throws IOException {
 
         System.out.println("Début de la synchronisation à : " + LocalDateTime.now());
 
+        Parametre parametre = parametreService.getParametre();
+        RacineSynchronisation configuration = racine(parametre, racine);
         if (!Files.exists(repertoire)) {
             System.out.println("Le répertoire n'existe pas : " + repertoire.toAbsolutePath());
-            Files.createDirectories(repertoire);
+            if (configuration.estPrincipale()) {
+                Files.createDirectories(repertoire);
+            }
             return;
         }
 
-        int nbFichiersTraites = traiterRepertoire(repertoire);
+        indexService.assurerIndex(Fichier.class);
+        if (configuration.estPrincipale()) {
+            migrerCheminsRelatifs(racine);
+        }
+        stockageCorpsService.migrer();
+        Map<String, EntreeManifeste> manifeste = manifesteService.charger(racine);
+        Map<String, MetadonneesFichier> metadonnees = chargerMetadonnees(configuration.getNom());
+        Set<String> repris = pointRepriseService.charger(racine);
+        tache.estimer(Math.max(manifeste.size(), metadonnees.size()));
+        int nbFichiersTraites;
+        LimiteurDebit limiteur = limitationDebitService.limiteur(racine, tache.estInteractive());
+        FiltreFichiers filtre = filtreFichiersService.filtre(parametre, configuration);
+        int parallelismeRacine = configuration.getParallelisme() > 0 ? configuration.getParallelisme() : parallelisme;
+        try (PasseSynchronisation passe = new PasseSynchronisation(configuration.getNom(), manifeste, metadonnees,
+                racine, repris, tache, limiteur, filtre, nouveauLot(), parallelismeRacine)) {
+            nbFichiersTraites = traiterRepertoire(racine, ReglesIgnorees.AUCUNE, passe);
+            passe.getLot().vider();
+            if (tache.estAnnulee()) {
+                enregistrerPointReprise(passe, 0);
+                System.out.println("Synchronisation annulée à : " + LocalDateTime.now());
+                return;
+            }
+            // Les fichiers des répertoires repris n'ont pas été parcourus : leurs entrées sont conservées
+            for (String cle : manifeste.keySet()) {
+                Path parent = Paths.get(cle).getParent();
+                if (!repris.isEmpty() && parent != null && parent.startsWith(racine)
+                        && PointRepriseService.estTermine(cheminRelatif(racine, parent), repris)) {
+                    passe.getCheminsVus().add(cle);
+                }
+            }
+            manifesteService.purger(manifeste, passe.getCheminsVus());
+        }
+        pointRepriseService.supprimer(racine);
 
         if (nbFichiersTraites == 0) {
             System.out.println("Aucun fichier détecté dans le répertoire (y compris les sous-répertoires) : "
@@ -138,91 +387,521 @@ public class FichierService {
         System.out.println("Fin de la synchronisation à : " + LocalDateTime.now());
     }
 
+    /**
+     * Synchronise un fichier unique, par exemple suite à un événement du système de fichiers.
+     *
+     * <p>Le fichier est ignoré s'il est écarté par le filtre des fichiers, s'il est exclu, lui ou un de ses
+     * répertoires parents, par un fichier {@code .noobsaveignore}, ou si son entrée du manifeste est
+     * inchangée.</p>
+     *
+     * <p>Le fichier n'est pas traité si une passe de synchronisation ou un autre événement détient le verrou
+     * de la racine : l'appelant le présente de nouveau plus tard, sans bloquer en attendant la passe.</p>
+     *
+     * @param chemin Chemin du fichier local.
+     * @return {@code false} si la racine est occupée et que le fichier doit être présenté de nouveau.
+     * @throws IOException Si une erreur survient lors de la lecture du fichier.
+     */
+    public boolean synchroniserFichier(Path chemin) throws IOException {
+        Parametre parametre = parametreService.getParametre();
+        RacineSynchronisation principale = racines(parametre).get(0);
+        Path racine = Paths.get(principale.getChemin());
+        ReentrantLock verrou = verrouRacine(racine.toAbsolutePath().normalize());
+        if (!verrou.tryLock()) {
+            return false;
+        }
+        try {
+            synchroniserFichier(chemin, parametre, principale, racine);
+        } finally {
+            verrou.unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Synchronise un fichier unique de la racine principale, sous le verrou de celle-ci.
+     *
+     * @param chemin     Chemin du fichier local.
+     * @param parametre  Paramètres de l'application.
+     * @param principale Racine principale.
+     * @param racine     Chemin de la racine principale.
+     * @throws IOException Si une erreur survient lors de la lecture du fichier.
+     */
+    private void synchroniserFichier(Path chemin, Parametre parametre, RacineSynchronisation principale, Path racine)
+            throws IOException {
+        FiltreFichiers filtre = filtreFichiersService.filtre(parametre, principale);
+        if (!filtre.accepteChemin(chemin.toAbsolutePath().normalize(), racine) || estExclu(chemin, false, racine, filtre)) {
+            return;
+        }
+        BasicFileAttributes attributs;
+        try {
+            attributs = Files.readAttributes(chemin, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (!attributs.isRegularFile()
+                || manifesteService.estInchange(manifesteService.trouver(chemin), attributs)
+                || !filtre.accepteAttributs(attributs, System.currentTimeMillis())) {
+            return;
+        }
+        String cheminRelatif = cheminRelatif(racine, chemin);
+        indexService.assurerIndex(Fichier.class);
+        MetadonneesFichier existant = fichierRepository.findFirstByRacineAndCheminRelatif(null, cheminRelatif).orElse(null);
+        LotEcritureFichiers lot = nouveauLot();
+        traiterFichier(chemin, attributs, null, cheminRelatif, existant, lot);
+        lot.vider();
+    }
+
+    /**
+     * Retourne un test indiquant si un répertoire de la sauvegarde est exclu, pour ne pas surveiller ni
+     * parcourir son arborescence. Les règles sont lues une seule fois, à la création du test.
+     *
+     * @return Le test d'exclusion des répertoires.
+     */
+    public Predicate<Path> exclusionRepertoires() {
+        Parametre parametre = parametreService.getParametre();
+        RacineSynchronisation principale = racines(parametre).get(0);
+        Path racine = Paths.get(principale.getChemin());
+        FiltreFichiers filtre = filtreFichiersService.filtre(parametre, principale);
+        return repertoire -> estExclu(repertoire, true, racine, filtre);
+    }
+
+    /**
+     * Indique si une entrée de la sauvegarde est exclue, elle ou un de ses répertoires parents, par un motif
+     * global ou par un fichier {@code .noobsaveignore}.
+     *
+     * @param chemin     Chemin de l'entrée.
+     * @param repertoire {@code true} si l'entrée est un répertoire.
+     * @param racine     Répertoire de sauvegarde, absolu et normalisé.
+     * @param filtre     Filtre des fichiers.
+     * @return {@code true} si l'entrée est exclue.
+     */
+    private boolean estExclu(Path chemin, boolean repertoire, Path racine, FiltreFichiers filtre) {
+        Path absolu = chemin.toAbsolutePath().normalize();
+        if (absolu.equals(racine) || !absolu.startsWith(racine)) {
+            return false;
+        }
+        ReglesIgnorees ignores = ReglesIgnorees.AUCUNE;
+        Path courant = racine;
+        for (Path nom : racine.relativize(absolu)) {
+            ignores = ignores.pour(courant, cheminRelatif(racine, courant));
+            courant = courant.resolve(nom);
+            boolean estRepertoire = repertoire || !courant.equals(absolu);
+            boolean exclu = estRepertoire
+                    ? !filtre.accepteRepertoire(courant, racine) || ignores.ignore(courant, racine, true)
+                    : ignores.ignore(courant, racine, false);
+            if (exclu) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calcule le chemin relatif d'un fichier, identifiant unique de son document : chemin normalisé relatif
+     * au répertoire de sauvegarde, avec des séparateurs {@code /} quel que soit le système.
+     *
+     * @param racine Répertoire de sauvegarde, absolu et normalisé.
+     * @param chemin Chemin du fichier local.
+     * @return Le chemin relatif du fichier.
+     */
+    static String cheminRelatif(Path racine, Path chemin) {
+        Path relatif = racine.relativize(chemin.toAbsolutePath().normalize());
+        StringJoiner joint = new StringJoiner("/");
+        relatif.forEach(element -> joint.add(element.toString()));
+        return joint.toString();
+    }
+
+    /**
+     * Charge en une requête les métadonnées de tous les fichiers enregistrés d'une racine de synchronisation.
+     *
+     * @param racine Nom de la racine, ou {@code null} pour le répertoire de sauvegarde principal.
+     * @return Les métadonnées des fichiers, indexées par chemin relatif.
+     */
+    private Map<String, MetadonneesFichier> chargerMetadonnees(String racine) {
+        Map<String, MetadonneesFichier> metadonnees = new HashMap<>();
+        try (Stream<MetadonneesFichier> flux = mongoTemplate.query(Fichier.class).as(MetadonneesFichier.class)
+                .matching(Query.query(Criteria.where("racine").is(racine).and("cheminRelatif").exists(true)))
+                .stream()) {
+            flux.forEach(m -> metadonnees.put(m.getCheminRelatif(), m));
+        }
+        return metadonnees;
+    }
+
+    /**
+     * Renseigne le chemin relatif des fichiers enregistrés avant son introduction, à partir de leur chemin
+     * d'origine. Les fichiers situés hors du répertoire de sauvegarde ne sont pas modifiés.
+     *
+     * @param racine Répertoire de sauvegarde, absolu et normalisé.
+     */
+    private void migrerCheminsRelatifs(Path racine) {
+        Query query = Query.query(Criteria.where("cheminRelatif").exists(false));
+        query.fields().include("chemin");
+        List<Fichier> fichiers = mongoTemplate.find(query, Fichier.class);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Fichier.class);
+        int nbMigres = 0;
+        for (Fichier fichier : fichiers) {
+            if (fichier.getChemin() == null) {
+                continue;
+            }
+            Path chemin = Paths.get(fichier.getChemin()).toAbsolutePath().normalize();
+            if (!chemin.startsWith(racine)) {
+                continue;
+            }
+            bulk.updateOne(Query.query(Criteria.where("_id").is(fichier.getId())), new Update()
+                    .set("chemin", chemin.toString())
+                    .set("cheminRelatif", cheminRelatif(racine, chemin)));
+            nbMigres++;
+        }
+        if (nbMigres == 0) {
+            return;
+        }
+        try {
+            bulk.execute();
+            System.out.println("Chemin relatif renseigné pour " + nbMigres + " fichier(s)");
+        } catch (BulkOperationException e) {
+            System.out.println("Chemin relatif non renseigné pour " + e.getErrors().size()
+                    + " fichier(s) en double : " + e.getMessage());
+        } catch (DataAccessException e) {
+            System.out.println("Erreur lors de la migration des chemins relatifs : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prend en compte la disparition d'un fichier local.
+     *
+     * <p>La version enregistrée en base est conservée (elle reste restaurable) ; seule l'entrée du
+     * manifeste est retirée, afin que le fichier soit relu s'il réapparaît.</p>
+     *
+     * @param chemin Chemin du fichier local supprimé.
+     */
+    public void oublierFichier(Path chemin) {
+        manifesteService.oublier(chemin);
+    }
+
     /**
      * Traite un répertoire en ajoutant ou mettant à jour les fichiers dans la base de données.
      *
-     * <p>Parcourt récursivement le répertoire spécifié et gère les fichiers valides :</p>
+     * <p>Parcourt le répertoire spécifié et gère les fichiers valides :</p>
      * <ul>
-     *     <li>Ajoute les nouveaux fichiers dans la base de données.</li>
-     *     <li>Met à jour les fichiers existants si leur contenu a changé.</li>
+     *     <li>Ignore les fichiers inchangés d'après le manifeste, sans les ouvrir.</li>
+     *     <li>Soumet l'ingestion des fichiers nouveaux ou modifiés à un thread virtuel.</li>
+     *     <li>Soumet le traitement de chaque sous-répertoire à un thread virtuel.</li>
      * </ul>
      *
+     * <p>Un permis de la passe est détenu pendant la lecture du répertoire, puis libéré avant d'attendre
+     * les tâches soumises, dont les résultats sont additionnés.</p>
+     *
+     * <p>Les attributs de chaque entrée ({@link BasicFileAttributes} : type, taille, date de modification,
+     * clé système) sont lus une seule fois, puis transmis au manifeste, au filtre et à l'ingestion.</p>
+     *
+     * <p>Les sous-répertoires exclus par un motif global ({@link FiltreFichiers#accepteRepertoire}) ou par un
+     * fichier {@code .noobsaveignore} ({@link ReglesIgnorees}) ne sont pas parcourus ; les fichiers exclus par
+     * un {@code .noobsaveignore} sont ignorés comme ceux écartés par le filtre.</p>
+     *
+     * <p>Un répertoire repris d'une passe interrompue est ignoré. Un répertoire lu sans erreur ni annulation,
+     * et dont tous les sous-répertoires sont terminés, est à son tour marqué terminé, en attente du prochain
+     * point de reprise.</p>
+     *
      * @param repertoireActuel Chemin du répertoire à analyser.
+     * @param ignores          Règles {@code .noobsaveignore} des répertoires parents.
+     * @param passe            État de la passe de synchronisation en cours.
      * @return Nombre de fichiers valides traités.
-     * @throws IOException Si une erreur survient lors de la lecture des fichiers.
      */
-    private int traiterRepertoire(Path repertoireActuel) throws IOException {
+    private int traiterRepertoire(Path repertoireActuel, ReglesIgnorees ignoresParents, PasseSynchronisation passe) {
 
+        String repertoireRelatif = cheminRelatif(passe.getRacine(), repertoireActuel);
+        if (passe.getRepertoiresRepris().contains(repertoireRelatif) || passe.getTache().estAnnulee()) {
+            return 0;
+        }
         int count = 0;
+        boolean complet = true;
+        List<String> sousRepertoires = new ArrayList<>();
+        List<Future<Integer>> taches = new ArrayList<>();
+        try {
+            passe.acquerir();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+        ReglesIgnorees ignores = ignoresParents.pour(repertoireActuel, repertoireRelatif);
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(repertoireActuel)) {
             for (Path chemin : stream) {
-                File fichier = chemin.toFile();
-                if (fichier.isDirectory()) {
-                    count += traiterRepertoire(chemin);
-                } else if (fichier.isFile() && estUnFichierValide(fichier)) {
-                    System.out.println("--------------------------------------------------------------------------------------");
-                    System.out.println("Fichier détecté : " + fichier.getName());
-
-                    byte[] contenu = Files.readAllBytes(chemin);
-                    if (contenu == null || contenu.length == 0) {
-                        System.out.println("Contenu vide ou non lisible pour le fichier : " + fichier.getName());
+                if (passe.getTache().estAnnulee()) {
+                    complet = false;
+                    break;
+                }
+                // Un seul appel système (stat) par entrée : ses attributs servent au tri, au manifeste et à l'ingestion
+                BasicFileAttributes attributs;
+                try {
+                    attributs = Files.readAttributes(chemin, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // Entrée disparue depuis la lecture du répertoire, ou lien symbolique cassé
+                    continue;
+                }
+                if (attributs.isDirectory()) {
+                    if (!passe.getFiltre().accepteRepertoire(chemin, passe.getRacine())
+                            || ignores.ignore(chemin, passe.getRacine(), true)) {
                         continue;
                     }
-
-                    String typeMime = Files.probeContentType(chemin);
-                    if (typeMime == null) {
-                        typeMime = "application/octet-stream";
+                    sousRepertoires.add(cheminRelatif(passe.getRacine(), chemin));
+                    taches.add(passe.soumettre(() -> traiterRepertoire(chemin, ignores, passe)));
+                } else if (attributs.isRegularFile() && passe.getFiltre().accepteChemin(chemin, passe.getRacine())
+                        && !ignores.ignore(chemin, passe.getRacine(), false)) {
+                    String cle = ManifesteService.cle(chemin);
+                    passe.getCheminsVus().add(cle);
+                    passe.getTache().fichierParcouru();
+                    passe.getLimiteur().acquerirFichier();
+                    if (manifesteService.estInchange(passe.getManifeste().get(cle), attributs)) {
+                        count++;
+                        continue;
                     }
-                    System.out.println("Type MIME détecté : " + typeMime);
-
-                    Optional<Fichier> fichierExistant = fichierRepository.findByNom(fichier.getName());
-                    LocalDateTime dateModification = LocalDateTime.ofInstant(
-                            Instant.ofEpochMilli(fichier.lastModified()), ZoneId.systemDefault()
-                    );
-
-                    if (fichierExistant.isPresent()) {
-                        // Mise à jour si le contenu a changé
-                        Fichier entiteFichier = fichierExistant.get();
-                        if (!Arrays.equals(entiteFichier.getContenu(), contenu)) {
-                            System.out.println("Mise à jour du fichier existant : " + fichier.getName());
-                            entiteFichier.setContenu(contenu);
-                            entiteFichier.setDateModification(dateModification);
-                            fichierRepository.save(entiteFichier);
-                        } else {
-                            System.out.println("Aucune modification détectée pour le fichier : " + fichier.getName());
-                        }
-                    } else {
-                        // Nouveau fichier
-                        System.out.println("Ajout d'un nouveau fichier : " + fichier.getName());
-                        Fichier nouveauFichier = new Fichier();
-                        nouveauFichier.setNom(fichier.getName());
-                        nouveauFichier.setType(typeMime);
-                        nouveauFichier.setChemin(chemin.toString());
-                        nouveauFichier.setContenu(contenu);
-                        nouveauFichier.setDateAjout(LocalDateTime.now());
-                        nouveauFichier.setDateModification(dateModification);
-                        fichierRepository.save(nouveauFichier);
+                    if (!passe.getFiltre().accepteAttributs(attributs, System.currentTimeMillis())) {
+                        continue;
                     }
-                    count++;
-                } else if (fichier.isFile()) {
-                    System.out.println("Fichier ignoré ou non valide : " + fichier.getName());
+                    taches.add(passe.soumettre(() -> traiterFichier(chemin, attributs, passe)));
+                } else if (attributs.isRegularFile()) {
+                    System.out.println("Fichier ignoré ou non valide : " + chemin.getFileName());
                 }
             }
         } catch (IOException e) {
             System.out.println("Erreur lors de la lecture du répertoire : "
                     + repertoireActuel.toAbsolutePath()
                     + " - " + e.getMessage());
+            complet = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            complet = false;
+        } finally {
+            passe.liberer();
+        }
+
+        for (Future<Integer> tache : taches) {
+            count += passe.attendre(tache);
+        }
+        if (complet && !passe.getTache().estAnnulee() && sousRepertoires.stream().allMatch(sous -> passe.getRepertoiresTermines().contains(sous)
+                || passe.getRepertoiresAValider().contains(sous))) {
+            passe.getRepertoiresAValider().add(repertoireRelatif);
+            enregistrerPointReprise(passe, pointRepriseService.getIntervalleMs());
         }
         return count;
     }
 
     /**
-     * Récupère la liste de tous les fichiers enregistrés en base de données.
+     * Enregistre le point de reprise de la passe si l'intervalle indiqué est écoulé.
+     *
+     * <p>Les répertoires en attente sont relevés avant de vider le lot d'écriture : une fois le lot vidé,
+     * tous leurs fichiers ont été écrits, et ils peuvent être marqués terminés.</p>
+     *
+     * @param passe        État de la passe de synchronisation en cours.
+     * @param intervalleMs Intervalle minimal depuis le dernier point de reprise, en millisecondes.
+     */
+    private void enregistrerPointReprise(PasseSynchronisation passe, long intervalleMs) {
+        if (!passe.reserverPointReprise(intervalleMs)) {
+            return;
+        }
+        try {
+            List<String> aValider = new ArrayList<>(passe.getRepertoiresAValider());
+            passe.getLot().vider();
+            passe.getRepertoiresTermines().addAll(aValider);
+            aValider.forEach(passe.getRepertoiresAValider()::remove);
+            pointRepriseService.enregistrer(passe.getRacine(), passe.getDateDebut(), passe.getRepertoiresTermines());
+        } finally {
+            passe.terminerPointReprise();
+        }
+    }
+
+    /**
+     * Ingère un fichier modifié dans le cadre d'une passe parallèle, en détenant un permis de la passe.
+     *
+     * @param chemin    Chemin du fichier local.
+     * @param attributs Attributs du fichier lus lors du parcours.
+     * @param passe     État de la passe de synchronisation en cours.
+     * @return 1 si le fichier a été traité, sinon 0.
+     * @throws InterruptedException Si le thread est interrompu en attendant un permis.
+     */
+    private int traiterFichier(Path chemin, BasicFileAttributes attributs, PasseSynchronisation passe)
+            throws InterruptedException {
+        passe.acquerir();
+        try {
+            if (passe.getTache().estAnnulee()) {
+                return 0;
+            }
+            passe.getLimiteur().acquerirOctets(attributs.size());
+            String cheminRelatif = cheminRelatif(passe.getRacine(), chemin);
+            Traitement traitement = traiterFichier(chemin, attributs, passe.getNomRacine(), cheminRelatif,
+                    passe.getMetadonnees().get(cheminRelatif), passe.getLot());
+            passe.getTache().fichierLu(attributs.size(), traitement == Traitement.INGERE);
+            return traitement != Traitement.IGNORE ? 1 : 0;
+        } catch (IOException e) {
+            System.out.println("Erreur lors de la lecture du fichier : "
+                    + chemin.toAbsolutePath()
+                    + " - " + e.getMessage());
+            return 0;
+        } finally {
+            passe.liberer();
+        }
+    }
+
+    /**
+     * Ingère un fichier valide dont l'entrée du manifeste a changé.
+     *
+     * <p>Le fichier est comparé aux métadonnées enregistrées, chargées sans le contenu binaire : si la taille
+     * est identique, l'empreinte est calculée en flux et comparée à celle enregistrée. Le fichier n'est chargé en mémoire que s'il est
+     * nouveau ou si son contenu a changé. Lorsque la déduplication est active, le contenu est découpé en
+     * blocs transmis au lot d'écriture, qui n'écrit que les blocs absents de la base ; sinon, au-delà de
+     * {@code noobsave.stockage.gridfs.seuil-octets}, il est transféré en flux vers GridFS sans être chargé
+     * en mémoire. Les blocs et le contenu stocké dans le document sont compressés si leur type s'y prête
+     * (voir {@link CompressionService}). L'écriture (upsert par chemin relatif), l'ajout d'une version à l'historique (contenu découpé en
+     * blocs uniquement) et l'enregistrement de son état dans le manifeste sont confiés au lot d'écriture.</p>
+     *
+     * @param chemin    Chemin du fichier local.
+     * @param attributs     Attributs du fichier lus avant son ingestion.
+     * @param racine        Racine de synchronisation du fichier, ou {@code null} pour le répertoire principal.
+     * @param cheminRelatif Chemin du fichier relatif à sa racine de synchronisation.
+     * @param existant      Métadonnées du fichier enregistré, ou {@code null} pour un nouveau fichier.
+     * @param lot           Lot d'écriture recevant le fichier à écrire.
+     * @return {@link Traitement#INGERE} si le contenu a été ingéré, {@link Traitement#INCHANGE} si seule
+     *         l'entrée du manifeste a été mise à jour, {@link Traitement#IGNORE} s'il est vide ou illisible.
+     * @throws IOException Si une erreur survient lors de la lecture du fichier.
+     */
+    private Traitement traiterFichier(Path chemin, BasicFileAttributes attributs, String racine, String cheminRelatif,
+                                   MetadonneesFichier existant, LotEcritureFichiers lot)
+            throws IOException {
+
+        String nom = chemin.getFileName().toString();
+        System.out.println("--------------------------------------------------------------------------------------");
+        System.out.println("Fichier détecté : " + nom);
+
+        if (attributs.size() == 0) {
+            System.out.println("Contenu vide ou non lisible pour le fichier : " + nom);
+            return Traitement.IGNORE;
+        }
+
+        if (existant != null && existant.memeTaille(attributs.size())
+                && calculateurEmpreinte.calculer(chemin).equals(existant.getEmpreinte())) {
+            System.out.println("Aucune modification détectée pour le fichier : " + nom);
+            lot.ajouter(manifesteService.creerEntree(chemin, attributs));
+            return Traitement.INCHANGE;
+        }
+
+        String typeMime = detecteurTypeMime.detecter(chemin, attributs);
+        System.out.println("Type MIME détecté : " + typeMime);
+
+        Fichier entiteFichier = new Fichier();
+        entiteFichier.setNom(nom);
+        entiteFichier.setType(typeMime);
+        entiteFichier.setChemin(chemin.toAbsolutePath().normalize().toString());
+        entiteFichier.setRacine(racine);
+        entiteFichier.setCheminRelatif(cheminRelatif);
+        entiteFichier.setDateAjout(LocalDateTime.now());
+        entiteFichier.setDateModification(LocalDateTime.ofInstant(
+                attributs.lastModifiedTime().toInstant(), ZoneId.systemDefault()
+        ));
+
+        CodecCompression codec = compressionService.choisir(chemin, typeMime);
+        boolean decoupable = stockageBlocsService.decoupable(attributs.size());
+        if ((deduplicationActive && decoupable) || stockageBlocsService.contenuHorsBase()) {
+            // Découpage en blocs : seuls les blocs absents de la base seront transférés
+            CalculateurEmpreinte.Accumulateur accumulateur = calculateurEmpreinte.nouvelAccumulateur();
+            StockageBlocsService.Decoupage decoupage =
+                    stockageBlocsService.decouper(chemin, accumulateur, codec, lot::ajouterBloc);
+            entiteFichier.setBlocs(decoupage.blocs());
+            entiteFichier.setEmpreinte(accumulateur.terminer());
+            entiteFichier.setTaille(decoupage.taille());
+            entiteFichier.setTailleStockee(decoupage.tailleStockee());
+            if (decoupage.tailleStockee() < decoupage.taille()) {
+                entiteFichier.setCompression(codec.nom());
+            }
+        } else if (attributs.size() >= seuilGridFs || !decoupable) {
+            // Fichier volumineux : transfert en flux vers GridFS, empreinte calculée et contenu compressé au passage.
+            // Au-delà du nombre maximal de blocs, la liste des blocs ne tiendrait pas dans le document du fichier
+            CalculateurEmpreinte.Accumulateur accumulateur = calculateurEmpreinte.nouvelAccumulateur();
+            StockageGridFsService.Stockage stockage = stockageGridFsService.stocker(journalIngestion.prevoirContenu(),
+                    chemin, typeMime, accumulateur, codec);
+            entiteFichier.setContenuId(stockage.id());
+            entiteFichier.setEmpreinte(accumulateur.terminer());
+            entiteFichier.setTaille(attributs.size());
+            entiteFichier.setTailleStockee(stockage.tailleStockee());
+            entiteFichier.setCompression(codec != null ? codec.nom() : null);
+        } else {
+            byte[] contenu = Files.readAllBytes(chemin);
+            if (contenu == null || contenu.length == 0) {
+                System.out.println("Contenu vide ou non lisible pour le fichier : " + nom);
+                return Traitement.IGNORE;
+            }
+            entiteFichier.setEmpreinte(calculateurEmpreinte.calculer(contenu));
+            entiteFichier.setTaille(contenu.length);
+            byte[] compresse = codec != null ? compressionService.compresserSiRentable(codec, contenu) : null;
+            if (compresse != null) {
+                entiteFichier.setContenu(compresse);
+                entiteFichier.setCompression(codec.nom());
+            } else {
+                entiteFichier.setContenu(contenu);
+            }
+            entiteFichier.setTailleStockee(entiteFichier.getContenu().length);
+        }
+        entiteFichier.setRatioCompression((double) entiteFichier.getTailleStockee() / entiteFichier.getTaille());
+        if (entiteFichier.getCompression() != null) {
+            System.out.println("Compression " + entiteFichier.getCompression() + " : "
+                    + entiteFichier.getTaille() + " -> " + entiteFichier.getTailleStockee() + " octets");
+        }
+
+        System.out.println((existant != null ? "Mise à jour du fichier existant : " : "Ajout d'un nouveau fichier : ") + cheminRelatif);
+        lot.ajouter(entiteFichier, manifesteService.creerEntree(chemin, attributs));
+        return Traitement.INGERE;
+    }
+
+    /**
+     * Crée un lot d'écriture avec les seuils configurés. Les écritures interrompues relevées dans le journal
+     * d'ingestion sont d'abord reprises.
+     *
+     * @return Un nouveau lot d'écriture, à vider en fin d'utilisation.
+     */
+    private LotEcritureFichiers nouveauLot() {
+        LotEcritureFichiers lot = new LotEcritureFichiers(mongoTemplate, manifesteService, stockageGridFsService,
+                stockageCorpsService, stockageBlocsService, versionService, journalIngestion, tailleLot, octetsMaxLot,
+                delaiMaxLotMs);
+        journalIngestion.reprendre(lot::reprendre);
+        return lot;
+    }
+
+    /**
+     * Reprend, au démarrage de l'application, les écritures interrompues relevées dans le journal d'ingestion,
+     * avant toute autre modification des fichiers enregistrés. En cas d'échec, la reprise est retentée à la
+     * création du prochain lot d'écriture.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reprendreJournal() {
+        try {
+            nouveauLot();
+        } catch (DataAccessException e) {
+            System.out.println("Erreur lors de la reprise du journal d'ingestion : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Récupère la liste de tous les fichiers enregistrés en base de données, sans leur contenu ni ses
+     * références (liste des blocs, identifiants du corps ou du contenu GridFS).
      *
      * @return liste de fichiers.
      */
     public List<Fichier> obtenirTousLesFichiers() {
-        return fichierRepository.findAll();
+        Query query = requeteSansContenu();
+        query.fields().exclude("blocs").exclude("corpsId").exclude("contenuId");
+        return mongoTemplate.find(query, Fichier.class);
+    }
+
+    /**
+     * Construit une requête sur tous les fichiers excluant le contenu encore intégré aux documents enregistrés
+     * avant sa séparation (voir {@link StockageCorpsService}). Les références du contenu (corps, GridFS, blocs)
+     * sont conservées : la restauration en a besoin, contrairement aux listes de fichiers, qui les excluent.
+     *
+     * @return La requête correspondante.
+     */
+    private static Query requeteSansContenu() {
+        Query query = new Query();
+        query.fields().exclude("contenu");
+        return query;
     }
 
     /**
@@ -236,16 +915,68 @@ public class FichierService {
     }
 
     /**
-     * Vérifie si le fichier a une extension autorisée.
+     * Ouvre un flux de lecture sur le contenu d'un fichier enregistré, qu'il soit stocké séparément du document,
+     * dans GridFS ou sous forme de blocs dédupliqués. Le contenu n'est lu qu'à cet instant. Le contenu compressé est décompressé au fil de la lecture.
      *
-     * @param fichier Fichier local à vérifier.
-     * @return {@code true} si l'extension est autorisée, sinon {@code false}.
+     * @param fichier Fichier enregistré en base.
+     * @return Un flux sur le contenu, à fermer par l'appelant.
+     * @throws IOException Si le contenu est introuvable ou illisible.
      */
-   public boolean estUnFichierValide(File fichier) {
+    public InputStream ouvrirContenu(Fichier fichier) throws IOException {
+        if (fichier.getBlocs() != null) {
+            return stockageBlocsService.ouvrir(fichier.getBlocs());
+        }
+        InputStream contenu = fichier.getContenuId() != null
+                ? stockageGridFsService.ouvrir(fichier.getContenuId())
+                : new ByteArrayInputStream(stockageCorpsService.lire(fichier));
+        return fichier.getCompression() != null ? compressionService.decompresser(fichier.getCompression(), contenu) : contenu;
+    }
 
-        String nom = fichier.getName().toLowerCase();
-        List<String> allowedExtensions = parametreService.getAllowedFileExtensions();
-        return allowedExtensions.stream().anyMatch(nom::endsWith);
+    /**
+     * Liste l'historique des versions d'un fichier, de la plus récente à la plus ancienne.
+     *
+     * @param fichier Fichier enregistré en base.
+     * @return Les métadonnées des versions du fichier.
+     */
+    public List<ResumeVersion> listerVersions(Fichier fichier) {
+        return versionService.lister(fichier.getRacine(), fichier.getCheminRelatif());
+    }
+
+    /**
+     * Récupère une version d'un fichier, reconstruite sous forme d'instantané.
+     *
+     * @param fichier Fichier enregistré en base.
+     * @param numero  Numéro de la version.
+     * @return Un {@link Optional} contenant la version, ou vide si elle est introuvable.
+     */
+    public Optional<VersionFichier> obtenirVersion(Fichier fichier, int numero) {
+        return versionService.reconstruire(fichier.getRacine(), fichier.getCheminRelatif(), numero);
+    }
+
+    /**
+     * Ouvre un flux de lecture sur le contenu d'une version reconstruite par {@link #obtenirVersion}.
+     *
+     * @param version Version reconstruite.
+     * @return Un flux sur le contenu, à fermer par l'appelant.
+     */
+    public InputStream ouvrirContenu(VersionFichier version) {
+        return stockageBlocsService.ouvrir(version.getBlocs());
+    }
+
+    /**
+     * Enregistre le téléchargement d'un fichier : date du dernier téléchargement et nombre de téléchargements.
+     * Une erreur n'empêche pas le téléchargement.
+     *
+     * @param fichier Fichier téléchargé.
+     */
+    public void enregistrerTelechargement(Fichier fichier) {
+        try {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(fichier.getId())),
+                    new Update().set("dernierTelechargement", LocalDateTime.now()).inc("nombreTelechargements", 1),
+                    Fichier.class);
+        } catch (DataAccessException e) {
+            System.out.println("Erreur lors de l'enregistrement du téléchargement de " + fichier.getNom() + " : " + e.getMessage());
+        }
     }
 
     /**
@@ -255,7 +986,7 @@ public class FichierService {
      */
     public void supprimerFichier(Fichier fichier) {
 
-        Path fichierPath = defaultPath.resolve(fichier.getNom());
+        Path fichierPath = Paths.get(fichier.getChemin());
         try {
             Files.deleteIfExists(fichierPath);
             System.out.println("Fichier supprimé du disque : " + fichierPath.toAbsolutePath());
@@ -264,6 +995,19 @@ public class FichierService {
         }
 
         fichierRepository.delete(fichier);
+        if (fichier.getContenuId() != null) {
+            stockageGridFsService.supprimer(fichier.getContenuId());
+        }
+        if (fichier.getCorpsId() != null) {
+            stockageCorpsService.supprimer(fichier.getCorpsId());
+        }
+        if (fichier.getCheminRelatif() != null) {
+            versionService.supprimerToutes(fichier.getRacine(), fichier.getCheminRelatif());
+        }
+        if (fichier.getVersion() == 0) {
+            stockageBlocsService.liberer(fichier.getBlocs());
+        }
+        manifesteService.oublier(Paths.get(fichier.getChemin()));
         System.out.println("Fichier supprimé de la base de données : " + fichier.getNom());
     }
 
@@ -325,7 +1069,9 @@ public class FichierService {
      * @return Liste triée des sous-répertoires détectés.
      */
     public List<String> listerSousRepertoires() {
-        List<Fichier> fichiers = fichierRepository.findAll();
+        Query query = new Query();
+        query.fields().include("chemin");
+        List<Fichier> fichiers = mongoTemplate.find(query, Fichier.class);
         Set<String> sousRepertoires = new HashSet<>();
 
         for (Fichier fichier : fichiers) {
@@ -347,7 +1093,7 @@ public class FichierService {
      * @return Nombre de fichiers effectivement restaurés.
      */
     public int restaurerFichiersManquants() {
-        List<Fichier> fichiers = fichierRepository.findAll();
+        List<Fichier> fichiers = mongoTemplate.find(requeteSansContenu(), Fichier.class);
 
         Set<PosixFilePermission> perms = EnumSet.of(
                 PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE,
@@ -370,7 +1116,7 @@ public class FichierService {
     public int restaurerFichiersPourSousRepertoire(
             String sousRepertoire) {
 
-        List<Fichier> fichiers = fichierRepository.findAll();
+        List<Fichier> fichiers = mongoTemplate.find(requeteSansContenu(), Fichier.class);
         Set<PosixFilePermission> perms = EnumSet.of(
                 PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE, PosixFilePermission.OWNER_EXECUTE,
                 PosixFilePermission.GROUP_READ, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_EXECUTE,
@@ -425,8 +1171,10 @@ public class FichierService {
                         Files.createDirectories(cheminFichier.getParent());
                         appliquerPermissionsSurArborescence(cheminFichier.getParent(), perms);
                     }
-                    // Écrit le contenu
-                    Files.write(cheminFichier, fichier.getContenu(), StandardOpenOption.CREATE_NEW);
+                    // Écrit le contenu en flux (échoue si le fichier existe déjà)
+                    try (InputStream contenu = ouvrirContenu(fichier)) {
+                        Files.copy(contenu, cheminFichier);
+                    }
                     // Appliquer les permissions
                     Files.setPosixFilePermissions(cheminFichier, perms);
 
@@ -0,0 +1,324 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.Parametre;
+import NoobSave._L.garcia.NoobSave.entities.RacineSynchronisation;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Filtre compilé des fichiers à sauvegarder d'une racine de synchronisation, construit une fois par version
+ * des règles de {@link Parametre} et de la racine (voir {@link FiltreFichiersService}).
+ *
+ * <p>Un fichier est accepté si :</p>
+ * <ul>
+ *     <li>son nom se termine par une des extensions autorisées (sans tenir compte de la casse) ;</li>
+ *     <li>son chemin relatif correspond à au moins un motif inclus, s'il y en a ;</li>
+ *     <li>son chemin relatif ne correspond à aucun motif exclu ;</li>
+ *     <li>sa taille et l'âge de sa dernière modification respectent les bornes configurées (0 = sans borne).</li>
+ * </ul>
+ *
+ * <p>Les motifs sont des globs ({@code *} et {@code ?} sans traverser de répertoire, {@code **} à travers
+ * les répertoires) ou des expressions régulières préfixées par {@code regex:}. Un glob sans {@code /} est
+ * comparé au seul nom du fichier, comme dans un {@code .gitignore}.</p>
+ *
+ * <p>Les règles de chemin ({@link #accepteChemin(Path, Path)}) sont évaluées avant toute lecture des
+ * attributs du fichier ; les règles de taille et d'âge ({@link #accepteAttributs(BasicFileAttributes, long)})
+ * ne le sont que pour les fichiers modifiés, juste avant leur ingestion.</p>
+ *
+ * <p>L'évaluation travaille directement sur la représentation textuelle du chemin et n'alloue pas d'objet,
+ * à l'exception des expressions régulières, qui nécessitent un {@link java.util.regex.Matcher}.</p>
+ */
+final class FiltreFichiers {
+
+    /**
+     * Préfixe des motifs exprimés sous forme d'expression régulière.
+     */
+    static final String PREFIXE_REGEX = "regex:";
+
+    /**
+     * Règles de filtrage telles que configurées, servant de version du filtre compilé.
+     *
+     * @param extensions Extensions autorisées, séparées par des virgules.
+     * @param inclus     Motifs de chemins inclus.
+     * @param exclus     Motifs de chemins exclus.
+     * @param tailleMin  Taille minimale en octets.
+     * @param tailleMax  Taille maximale en octets.
+     * @param ageMinMs   Âge minimal de la dernière modification, en millisecondes.
+     * @param ageMaxMs   Âge maximal de la dernière modification, en millisecondes.
+     */
+    record Regles(String extensions, List<String> inclus, List<String> exclus,
+                  long tailleMin, long tailleMax, long ageMinMs, long ageMaxMs) {
+
+        /**
+         * Extrait les règles de filtrage d'une racine : règles globales des paramètres, complétées par les
+         * motifs propres à la racine.
+         *
+         * @param parametre Paramètres de l'application.
+         * @param racine    Racine de synchronisation.
+         * @return Les règles de filtrage.
+         */
+        static Regles de(Parametre parametre, RacineSynchronisation racine) {
+            return new Regles(Objects.requireNonNullElse(parametre.getAllowedFileExtensions(), ""),
+                    copier(parametre.getIncludedPatterns(), racine.getMotifsInclus()),
+                    copier(parametre.getExcludedPatterns(), racine.getMotifsExclus()),
+                    parametre.getMinFileSize(), parametre.getMaxFileSize(),
+                    parametre.getMinFileAgeMs(), parametre.getMaxFileAgeMs());
+        }
+
+        private static List<String> copier(List<String> globaux, List<String> propres) {
+            return Stream.of(globaux, propres)
+                    .filter(Objects::nonNull)
+                    .flatMap(List::stream)
+                    .filter(Objects::nonNull).map(String::trim).filter(m -> !m.isEmpty()).toList();
+        }
+    }
+
+    /**
+     * Motif compilé : glob ou expression régulière.
+     *
+     * @param glob          Glob, ou {@code null} pour une expression régulière.
+     * @param globRepertoire Glob appliqué à un répertoire : sans son suffixe {@code /**}, qui désigne tout le
+     *                       contenu du répertoire.
+     * @param nomSeul        {@code true} si le glob s'applique au seul nom du fichier.
+     * @param expression     Expression régulière, ou {@code null} pour un glob.
+     */
+    private record Motif(String glob, String globRepertoire, boolean nomSeul, Pattern expression) {
+
+        static Motif compiler(String source) {
+            if (source.startsWith(PREFIXE_REGEX)) {
+                return new Motif(null, null, false, Pattern.compile(source.substring(PREFIXE_REGEX.length())));
+            }
+            String globRepertoire = source.endsWith("/**") ? source.substring(0, source.length() - 3) : source;
+            return new Motif(source, globRepertoire, source.indexOf('/') < 0, null);
+        }
+
+        boolean correspond(String chemin, int debut, int debutNom) {
+            if (expression != null) {
+                return expression.matcher(chemin).region(debut, chemin.length()).matches();
+            }
+            return FiltreFichiers.glob(glob, 0, chemin, nomSeul ? debutNom : debut);
+        }
+
+        boolean correspondRepertoire(String chemin, int debut, int debutNom) {
+            if (expression != null) {
+                return correspond(chemin, debut, debutNom)
+                        || expression.matcher(chemin.substring(debut) + "/").matches();
+            }
+            return FiltreFichiers.glob(globRepertoire, 0, chemin, nomSeul ? debutNom : debut);
+        }
+    }
+
+    private final Regles regles;
+    private final String[] extensions;
+    private final Motif[] inclus;
+    private final Motif[] exclus;
+
+    /**
+     * Compile les règles de filtrage.
+     *
+     * @param regles Règles à compiler.
+     * @throws java.util.regex.PatternSyntaxException Si une expression régulière est invalide.
+     */
+    FiltreFichiers(Regles regles) {
+        this.regles = regles;
+        this.extensions = Arrays.stream(regles.extensions().split(","))
+                .map(String::trim)
+                .filter(extension -> !extension.isEmpty())
+                .toArray(String[]::new);
+        this.inclus = regles.inclus().stream().map(Motif::compiler).toArray(Motif[]::new);
+        this.exclus = regles.exclus().stream().map(Motif::compiler).toArray(Motif[]::new);
+    }
+
+    /**
+     * Vérifie que des motifs peuvent être compilés.
+     *
+     * @param motifs Motifs à vérifier.
+     * @throws IllegalArgumentException Si une expression régulière est invalide.
+     */
+    static void valider(List<String> motifs) {
+        if (motifs == null) {
+            return;
+        }
+        for (String motif : motifs) {
+            try {
+                Motif.compiler(motif.trim());
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Motif de fichier invalide : " + motif, e);
+            }
+        }
+    }
+
+    /**
+     * @return Les règles à partir desquelles le filtre a été compilé.
+     */
+    Regles getRegles() {
+        return regles;
+    }
+
+    /**
+     * Applique les règles portant sur le chemin du fichier.
+     *
+     * @param chemin Chemin du fichier.
+     * @param racine Répertoire de sauvegarde, base des chemins relatifs comparés aux motifs.
+     * @return {@code true} si le fichier fait partie de la sauvegarde.
+     */
+    boolean accepteChemin(Path chemin, Path racine) {
+        String texte = chemin.toString();
+        int debutNom = debutNom(texte);
+        if (!aExtensionAutorisee(texte)) {
+            return false;
+        }
+        int debut = debutRelatif(texte, racine.toString());
+        if (inclus.length > 0 && !correspondUn(inclus, texte, debut, debutNom)) {
+            return false;
+        }
+        return !correspondUn(exclus, texte, debut, debutNom);
+    }
+
+    /**
+     * Applique les motifs exclus à un répertoire, afin de ne pas parcourir une arborescence exclue. Un
+     * répertoire est exclu si un motif exclu le désigne lui-même ou désigne tout son contenu
+     * ({@code node_modules}, {@code **}{@code /.cache/**}).
+     *
+     * @param repertoire Chemin du répertoire.
+     * @param racine     Répertoire de sauvegarde, base des chemins relatifs comparés aux motifs.
+     * @return {@code true} si le répertoire doit être parcouru.
+     */
+    boolean accepteRepertoire(Path repertoire, Path racine) {
+        String texte = repertoire.toString();
+        int debut = debutRelatif(texte, racine.toString());
+        int debutNom = debutNom(texte);
+        for (Motif motif : exclus) {
+            if (motif.correspondRepertoire(texte, debut, debutNom)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applique les règles de taille et d'âge.
+     *
+     * @param attributs  Attributs du fichier.
+     * @param maintenant Instant de référence pour l'âge, en millisecondes.
+     * @return {@code true} si le fichier peut être ingéré.
+     */
+    boolean accepteAttributs(BasicFileAttributes attributs, long maintenant) {
+        long taille = attributs.size();
+        if (taille < regles.tailleMin() || (regles.tailleMax() > 0 && taille > regles.tailleMax())) {
+            return false;
+        }
+        if (regles.ageMinMs() <= 0 && regles.ageMaxMs() <= 0) {
+            return true;
+        }
+        long age = maintenant - attributs.lastModifiedTime().toMillis();
+        return age >= regles.ageMinMs() && (regles.ageMaxMs() <= 0 || age <= regles.ageMaxMs());
+    }
+
+    private boolean aExtensionAutorisee(String chemin) {
+        for (String extension : extensions) {
+            if (chemin.regionMatches(true, chemin.length() - extension.length(), extension, 0, extension.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean correspondUn(Motif[] motifs, String chemin, int debut, int debutNom) {
+        for (Motif motif : motifs) {
+            if (motif.correspond(chemin, debut, debutNom)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calcule la position du nom du fichier dans son chemin.
+     */
+    static int debutNom(String chemin) {
+        int debut = chemin.length();
+        while (debut > 0 && !estSeparateur(chemin.charAt(debut - 1))) {
+            debut--;
+        }
+        return debut;
+    }
+
+    /**
+     * Calcule la position du chemin relatif dans le chemin complet.
+     */
+    static int debutRelatif(String chemin, String racine) {
+        if (racine.isEmpty() || !chemin.startsWith(racine)) {
+            return 0;
+        }
+        int debut = racine.length();
+        if (debut < chemin.length() && estSeparateur(chemin.charAt(debut))) {
+            debut++;
+        }
+        return debut;
+    }
+
+    static boolean estSeparateur(char c) {
+        return c == '/' || c == '\\';
+    }
+
+    /**
+     * Compare un glob à la fin d'un chemin, à partir d'une position donnée, sans allocation.
+     *
+     * @param motif  Glob.
+     * @param m      Position courante dans le glob.
+     * @param chemin Chemin.
+     * @param i      Position courante dans le chemin.
+     * @return {@code true} si le reste du chemin correspond au reste du glob.
+     */
+    static boolean glob(String motif, int m, String chemin, int i) {
+        while (m < motif.length()) {
+            char c = motif.charAt(m);
+            if (c == '*') {
+                if (m + 1 < motif.length() && motif.charAt(m + 1) == '*') {
+                    int suite = m + 2;
+                    // "**/" correspond aussi à zéro répertoire
+                    if (suite < motif.length() && motif.charAt(suite) == '/' && glob(motif, suite + 1, chemin, i)) {
+                        return true;
+                    }
+                    for (int k = i; k <= chemin.length(); k++) {
+                        if (glob(motif, suite, chemin, k)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                for (int k = i; k <= chemin.length(); k++) {
+                    if (glob(motif, m + 1, chemin, k)) {
+                        return true;
+                    }
+                    if (k < chemin.length() && estSeparateur(chemin.charAt(k))) {
+                        return false;
+                    }
+                }
+                return false;
+            }
+            if (i >= chemin.length()) {
+                return false;
+            }
+            char d = chemin.charAt(i);
+            boolean egal = switch (c) {
+                case '?' -> !estSeparateur(d);
+                case '/' -> estSeparateur(d);
+                default -> c == d;
+            };
+            if (!egal) {
+                return false;
+            }
+            m++;
+            i++;
+        }
+        return i == chemin.length();
+    }
+}
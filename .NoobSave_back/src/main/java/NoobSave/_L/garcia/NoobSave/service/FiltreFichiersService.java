@@ -0,0 +1,59 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.Parametre;
+import NoobSave._L.garcia.NoobSave.entities.RacineSynchronisation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service fournissant le filtre compilé des fichiers à sauvegarder ({@link FiltreFichiers}).
+ *
+ * <p>Chaque racine de synchronisation a son filtre, compilé une seule fois par version des règles
+ * configurées dans {@link Parametre} (extensions, motifs, taille et âge) et dans la racine (motifs
+ * propres) : il n'est recompilé que lorsque ces règles changent. Une passe de synchronisation récupère le
+ * filtre à son début et l'applique à chaque fichier sans nouvel accès à la base.</p>
+ *
+ * @author torres léo
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class FiltreFichiersService {
+
+    /**
+     * Service pour accéder aux paramètres globaux.
+     */
+    private final ParametreService parametreService;
+
+    /**
+     * Dernier filtre compilé de chaque racine, indexé par nom de racine ({@code ""} pour la racine principale).
+     */
+    private final Map<String, FiltreFichiers> filtres = new ConcurrentHashMap<>();
+
+    /**
+     * Retourne le filtre correspondant aux paramètres actuels d'une racine.
+     *
+     * @param racine Racine de synchronisation.
+     * @return Le filtre compilé.
+     */
+    FiltreFichiers filtre(RacineSynchronisation racine) {
+        return filtre(parametreService.getParametre(), racine);
+    }
+
+    /**
+     * Retourne le filtre correspondant à des paramètres déjà chargés, pour une racine.
+     *
+     * @param parametre Paramètres de l'application.
+     * @param racine    Racine de synchronisation.
+     * @return Le filtre compilé.
+     */
+    FiltreFichiers filtre(Parametre parametre, RacineSynchronisation racine) {
+        FiltreFichiers.Regles regles = FiltreFichiers.Regles.de(parametre, racine);
+        return filtres.compute(Objects.requireNonNullElse(racine.getNom(), ""),
+                (nom, actuel) -> actuel != null && actuel.getRegles().equals(regles) ? actuel : new FiltreFichiers(regles));
+    }
+}
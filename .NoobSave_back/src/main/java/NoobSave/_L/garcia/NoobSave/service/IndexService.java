@@ -0,0 +1,88 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.Fichier;
+import NoobSave._L.garcia.NoobSave.entities.VersionFichier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service de création des index MongoDB déclarés sur les entités (annotations {@code @Indexed}).
+ *
+ * <p>La création automatique des index au démarrage n'est pas activée : elle imposerait une connexion
+ * à la base dès le lancement de l'application. Les index sont donc créés à la première utilisation de
+ * chaque entité, une seule fois par exécution.</p>
+ *
+ * <p>Les index remplacés par une version précédente de l'application (par exemple l'index unique sur le seul
+ * chemin relatif, devenu incompatible avec plusieurs racines de synchronisation) sont supprimés au même
+ * moment.</p>
+ *
+ * @author torres léo
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class IndexService {
+
+    /**
+     * Accès bas niveau à MongoDB.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Entités dont les index ont déjà été vérifiés.
+     */
+    private final Set<Class<?>> entitesIndexees = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Noms des index obsolètes de chaque entité.
+     */
+    private static final Map<Class<?>, List<String>> INDEX_OBSOLETES = Map.of(
+            Fichier.class, List.of("cheminRelatif"),
+            VersionFichier.class, List.of("chemin_numero")
+    );
+
+    /**
+     * S'assure que les index déclarés sur une entité existent en base.
+     *
+     * @param entite Classe de l'entité annotée avec {@code @Document}.
+     */
+    public void assurerIndex(Class<?> entite) {
+        if (entitesIndexees.contains(entite)) {
+            return;
+        }
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        IndexOperations operations = mongoTemplate.indexOps(entite);
+        supprimerObsoletes(entite, operations);
+        resolver.resolveIndexFor(entite).forEach(operations::ensureIndex);
+        entitesIndexees.add(entite);
+    }
+
+    /**
+     * Supprime les index obsolètes d'une entité encore présents en base.
+     *
+     * @param entite     Classe de l'entité.
+     * @param operations Opérations sur les index de sa collection.
+     */
+    private void supprimerObsoletes(Class<?> entite, IndexOperations operations) {
+        List<String> obsoletes = INDEX_OBSOLETES.getOrDefault(entite, List.of());
+        if (obsoletes.isEmpty()) {
+            return;
+        }
+        for (IndexInfo index : operations.getIndexInfo()) {
+            if (obsoletes.contains(index.getName())) {
+                System.out.println("Suppression de l'index obsolète " + index.getName() + " de " + entite.getSimpleName());
+                operations.dropIndex(index.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,588 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.EntreeManifeste;
+import NoobSave._L.garcia.NoobSave.entities.Fichier;
+import NoobSave._L.garcia.NoobSave.entities.VersionFichier;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Journal d'ingestion : fichier local en ajout seul qui enregistre, avant qu'elles ne modifient la base, les
+ * écritures planifiées par les lots d'écriture ({@link LotEcritureFichiers}), puis leur achèvement.
+ *
+ * <p>Une écriture de lot n'est pas atomique : blocs, contenus, documents des fichiers, libération des contenus
+ * remplacés, versions et manifeste sont écrits successivement. Après un arrêt brutal, seuls les lots planifiés
+ * et non terminés sont repris ({@link #reprendre(Consumer)}) : l'état de chaque fichier en base indique si son
+ * écriture a eu lieu ; un fichier écrit est complété (libération du contenu remplacé, version, manifeste), le
+ * contenu d'un fichier non écrit est libéré. Les compteurs de références des blocs ne sont jamais modifiés deux
+ * fois : chaque modification non rejouable est précédée d'une entrée d'intention, et en cas de doute un bloc
+ * reste référencé plutôt que d'être libéré à tort.</p>
+ *
+ * <p>Le contenu d'un fichier volumineux est envoyé dans GridFS avant la planification de son lot : son
+ * identifiant est attribué et journalisé avant l'envoi ({@link #prevoirContenu()}), et un contenu envoyé dont
+ * aucun fichier n'a été enregistré est supprimé à la reprise.</p>
+ *
+ * <p>Chaque entrée est précédée de sa longueur et de sa somme de contrôle CRC32 : une entrée tronquée par un
+ * arrêt brutal est ignorée et retirée à l'ouverture. Les synchronisations sur disque sont groupées : une
+ * synchronisation couvre toutes les entrées ajoutées jusque-là, et les threads qui l'attendaient n'en
+ * déclenchent pas d'autre. Le journal est réécrit dès qu'aucun lot n'est en cours et qu'il dépasse
+ * {@code noobsave.journal.taille-max-octets}.</p>
+ *
+ * @author torres léo
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class JournalIngestion {
+
+    /**
+     * Nom du fichier du journal.
+     */
+    private static final String NOM_FICHIER = "ingestion.journal";
+
+    /**
+     * Taille de l'en-tête d'une entrée : longueur, puis somme de contrôle.
+     */
+    private static final int TAILLE_ENTETE = 8;
+
+    /**
+     * Étapes journalisées.
+     */
+    enum Etape {
+        /**
+         * Contenu GridFS sur le point d'être envoyé.
+         */
+        CONTENU,
+        /**
+         * Lot planifié, avant toute écriture.
+         */
+        PREVU,
+        /**
+         * Blocs du lot écrits, à l'exception des blocs en échec.
+         */
+        BLOCS,
+        /**
+         * Libération des blocs du lot sur le point d'être effectuée.
+         */
+        LIBERATION,
+        /**
+         * Lot terminé.
+         */
+        TERMINE
+    }
+
+    /**
+     * Contenu remplacé par l'écriture d'un fichier, à libérer une fois le fichier écrit.
+     *
+     * @param contenuId Contenu GridFS, ou {@code null}.
+     * @param corpsId   Corps d'un petit fichier, ou {@code null}.
+     * @param blocs     Blocs à libérer, ou {@code null} (contenu versionné : ses blocs appartiennent à son historique).
+     */
+    record ContenuRemplace(String contenuId, String corpsId, List<String> blocs) {
+    }
+
+    /**
+     * Opération planifiée d'un lot.
+     *
+     * @param fichier  Fichier à écrire (sans son contenu), ou {@code null} si seul le manifeste change.
+     * @param remplace Contenu remplacé à libérer, ou {@code null}.
+     * @param version  Version à enregistrer, ou {@code null}.
+     * @param entree   Entrée du manifeste à enregistrer.
+     */
+    record OperationPrevue(Fichier fichier, ContenuRemplace remplace, VersionFichier version, EntreeManifeste entree) {
+    }
+
+    /**
+     * Entrée du journal.
+     *
+     * @param etape        Étape journalisée.
+     * @param lot          Numéro du lot (0 pour un contenu GridFS).
+     * @param contenuId    Contenu GridFS sur le point d'être envoyé ({@link Etape#CONTENU}).
+     * @param operations   Opérations planifiées ({@link Etape#PREVU}).
+     * @param blocs        Identifiants des blocs écrits par le lot ({@link Etape#PREVU}).
+     * @param blocsEnEchec Blocs dont l'écriture a échoué : lors d'un lot précédent ({@link Etape#PREVU}) ou
+     *                     de ce lot ({@link Etape#BLOCS}).
+     */
+    record Entree(Etape etape, long lot, String contenuId, List<OperationPrevue> operations, Set<String> blocs,
+                  Set<String> blocsEnEchec) {
+    }
+
+    /**
+     * Lot planifié et non terminé, à reprendre.
+     *
+     * @param lot               Numéro du lot.
+     * @param operations        Opérations planifiées.
+     * @param blocsNonReferences Blocs dont les références n'ont pas été incrémentées, ou dont l'incrément est
+     *                          incertain : ils ne sont pas libérés avec les fichiers non écrits.
+     * @param liberation        Indique si la libération des blocs a déjà commencé : elle n'est alors pas rejouée.
+     */
+    record LotIncomplet(long lot, List<OperationPrevue> operations, Set<String> blocsNonReferences,
+                        boolean liberation) {
+    }
+
+    /**
+     * Travail de reprise trouvé à l'ouverture du journal.
+     *
+     * @param lots     Lots planifiés et non terminés, dans l'ordre du journal.
+     * @param contenus Contenus GridFS dont aucun lot terminé n'a enregistré le fichier.
+     */
+    record Reprise(List<LotIncomplet> lots, Set<String> contenus) {
+    }
+
+    /**
+     * Annotations de sérialisation des fichiers dans le journal : la liste des blocs, exclue des réponses de
+     * l'API, est nécessaire à la reprise.
+     */
+    private abstract static class FichierJournalise {
+
+        @JsonIgnore(false)
+        private List<String> blocs;
+
+        @JsonIgnore(false)
+        abstract List<String> getBlocs();
+
+        @JsonIgnore(false)
+        abstract void setBlocs(List<String> blocs);
+    }
+
+    /**
+     * Sérialisation JSON de l'application, à partir de laquelle est configurée celle des entrées.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Sérialisation des entrées : contrairement aux réponses de l'API, elle conserve la liste des blocs des
+     * fichiers ({@link FichierJournalise}).
+     */
+    private ObjectMapper serialisation;
+
+    /**
+     * Activation du journal, injectée via la clé {@code noobsave.journal.active}.
+     */
+    @Value("${noobsave.journal.active:true}")
+    private volatile boolean actif;
+
+    /**
+     * Répertoire du journal, injecté via la clé {@code noobsave.journal.repertoire}.
+     */
+    @Value("${noobsave.journal.repertoire:./../journal}")
+    private String repertoire;
+
+    /**
+     * Synchronisation sur disque des entrées, injectée via la clé {@code noobsave.journal.fsync}.
+     */
+    @Value("${noobsave.journal.fsync:true}")
+    private boolean fsync;
+
+    /**
+     * Taille (en octets) au-delà de laquelle le journal est réécrit, injectée via la clé
+     * {@code noobsave.journal.taille-max-octets}.
+     */
+    @Value("${noobsave.journal.taille-max-octets:16777216}")
+    private long tailleMax;
+
+    /**
+     * Fichier du journal. Protégé par le verrou du journal.
+     */
+    private FileChannel canal;
+
+    /**
+     * Taille du journal (position de la prochaine entrée). Protégée par le verrou du journal.
+     */
+    private long taille;
+
+    /**
+     * Position jusqu'à laquelle le journal est synchronisé sur disque. Protégée par {@link #verrouForce}.
+     */
+    private long positionForcee;
+
+    /**
+     * Verrou des synchronisations sur disque, pris avant le verrou du journal.
+     */
+    private final Object verrouForce = new Object();
+
+    /**
+     * Dernier numéro de lot attribué.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Lots planifiés et non terminés, avec leurs contenus GridFS. Protégé par le verrou du journal.
+     */
+    private final Map<Long, List<String>> lotsEnCours = new HashMap<>();
+
+    /**
+     * Contenus GridFS journalisés dont le lot n'est pas terminé. Protégé par le verrou du journal.
+     */
+    private final Set<String> contenusEnCours = new LinkedHashSet<>();
+
+    /**
+     * Travail de reprise en attente, ou {@code null}.
+     */
+    private volatile Reprise reprise;
+
+    /**
+     * Verrou de la reprise.
+     */
+    private final Object verrouReprise = new Object();
+
+    /**
+     * Ouvre le journal et relève les lots à reprendre. En cas d'erreur, le journal est désactivé.
+     */
+    @PostConstruct
+    void ouvrir() {
+        serialisation = objectMapper.copy().addMixIn(Fichier.class, FichierJournalise.class);
+        if (!actif) {
+            return;
+        }
+        try {
+            Path chemin = chemin();
+            Files.createDirectories(chemin.getParent());
+            canal = FileChannel.open(chemin, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            Reprise trouvee = analyser(lire());
+            if (!trouvee.lots().isEmpty() || !trouvee.contenus().isEmpty()) {
+                System.out.println("Journal d'ingestion : " + trouvee.lots().size() + " lot(s) interrompu(s) et "
+                        + trouvee.contenus().size() + " contenu(s) GridFS à vérifier");
+                reprise = trouvee;
+            }
+        } catch (IOException e) {
+            System.out.println("Erreur lors de l'ouverture du journal d'ingestion, journal désactivé : " + e.getMessage());
+            actif = false;
+        }
+    }
+
+    /**
+     * Attribue l'identifiant d'un contenu GridFS et le journalise avant son envoi.
+     *
+     * @return L'identifiant du contenu à envoyer.
+     */
+    public String prevoirContenu() {
+        String id = new ObjectId().toHexString();
+        if (actif) {
+            synchronized (this) {
+                contenusEnCours.add(id);
+            }
+            ajouter(new Entree(Etape.CONTENU, 0, id, null, null, null), true);
+        }
+        return id;
+    }
+
+    /**
+     * Journalise la planification d'un lot, avant toute écriture de ce lot.
+     *
+     * @param operations   Opérations planifiées.
+     * @param blocs        Identifiants des blocs que le lot va écrire.
+     * @param blocsEnEchec Blocs des fichiers du lot dont l'écriture a échoué lors d'un lot précédent.
+     * @return Le numéro du lot, ou 0 si le journal est désactivé.
+     */
+    long prevoir(List<OperationPrevue> operations, Set<String> blocs, Set<String> blocsEnEchec) {
+        if (!actif) {
+            return 0;
+        }
+        long lot = sequence.incrementAndGet();
+        List<String> contenus = operations.stream()
+                .filter(op -> op.fichier() != null && op.fichier().getContenuId() != null)
+                .map(op -> op.fichier().getContenuId())
+                .toList();
+        synchronized (this) {
+            lotsEnCours.put(lot, contenus);
+        }
+        ajouter(new Entree(Etape.PREVU, lot, null, operations, blocs, blocsEnEchec), true);
+        return lot;
+    }
+
+    /**
+     * Journalise l'écriture des blocs d'un lot.
+     *
+     * @param lot    Numéro du lot.
+     * @param echecs Blocs dont l'écriture a échoué.
+     */
+    void blocsEcrits(long lot, Set<String> echecs) {
+        if (lot > 0) {
+            ajouter(new Entree(Etape.BLOCS, lot, null, null, null, echecs), false);
+        }
+    }
+
+    /**
+     * Journalise l'intention de libérer les blocs d'un lot, avant la libération.
+     *
+     * @param lot     Numéro du lot.
+     * @param forcer  Synchronisation sur disque avant le retour (des blocs vont être libérés).
+     */
+    void liberer(long lot, boolean forcer) {
+        if (lot > 0) {
+            ajouter(new Entree(Etape.LIBERATION, lot, null, null, null, null), forcer);
+        }
+    }
+
+    /**
+     * Journalise l'achèvement d'un lot, puis réécrit le journal s'il est trop volumineux et qu'aucun lot n'est
+     * en cours. L'entrée n'est pas synchronisée sur disque : un lot terminé mais repris après un arrêt brutal
+     * n'est que complété une seconde fois.
+     *
+     * @param lot Numéro du lot.
+     */
+    void terminer(long lot) {
+        if (lot <= 0) {
+            return;
+        }
+        synchronized (this) {
+            List<String> contenus = lotsEnCours.remove(lot);
+            if (contenus != null) {
+                contenus.forEach(contenusEnCours::remove);
+            }
+        }
+        ajouter(new Entree(Etape.TERMINE, lot, null, null, null, null), false);
+        compacter(false);
+    }
+
+    /**
+     * Effectue la reprise des lots interrompus, une seule fois et avant toute nouvelle écriture : les appelants
+     * concurrents attendent la fin de la reprise. Si la reprise échoue, elle sera retentée au prochain appel.
+     *
+     * @param traitement Reprise des lots et des contenus relevés à l'ouverture du journal.
+     */
+    void reprendre(Consumer<Reprise> traitement) {
+        if (reprise == null) {
+            return;
+        }
+        synchronized (verrouReprise) {
+            if (reprise == null) {
+                return;
+            }
+            traitement.accept(reprise);
+            reprise = null;
+        }
+        compacter(true);
+    }
+
+    /**
+     * Ajoute une entrée à la fin du journal. Une erreur d'écriture est signalée sans interrompre l'ingestion.
+     *
+     * @param entree Entrée à ajouter.
+     * @param forcer Synchronisation sur disque de l'entrée avant le retour.
+     */
+    private void ajouter(Entree entree, boolean forcer) {
+        if (!actif) {
+            return;
+        }
+        try {
+            ByteBuffer tampon = encoder(entree);
+            long fin;
+            synchronized (this) {
+                long debut = taille;
+                while (tampon.hasRemaining()) {
+                    canal.write(tampon, debut + tampon.position());
+                }
+                taille += tampon.limit();
+                fin = taille;
+            }
+            if (forcer && fsync) {
+                forcer(fin);
+            }
+        } catch (IOException e) {
+            System.out.println("Erreur d'écriture du journal d'ingestion (" + entree.etape() + ", lot " + entree.lot()
+                    + ") : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Synchronise le journal sur disque jusqu'à une position. Une seule synchronisation couvre toutes les entrées
+     * ajoutées avant elle : un thread dont l'entrée a été couverte pendant son attente retourne sans synchroniser.
+     *
+     * @param position Position à atteindre.
+     * @throws IOException Si la synchronisation échoue.
+     */
+    private void forcer(long position) throws IOException {
+        synchronized (verrouForce) {
+            if (positionForcee >= position) {
+                return;
+            }
+            long fin;
+            synchronized (this) {
+                fin = taille;
+            }
+            canal.force(false);
+            positionForcee = fin;
+        }
+    }
+
+    /**
+     * Réécrit le journal s'il ne contient plus aucun lot en cours : seuls les contenus GridFS en cours d'envoi
+     * sont conservés.
+     *
+     * @param toujours Réécriture quelle que soit la taille du journal (après une reprise).
+     */
+    private void compacter(boolean toujours) {
+        synchronized (verrouForce) {
+            synchronized (this) {
+                if (!actif || !lotsEnCours.isEmpty() || (!toujours && taille <= tailleMax)) {
+                    return;
+                }
+                Path chemin = chemin();
+                Path temporaire = chemin.resolveSibling(NOM_FICHIER + ".tmp");
+                try {
+                    long nouvelleTaille = 0;
+                    try (FileChannel nouveau = FileChannel.open(temporaire, StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                        for (String id : contenusEnCours) {
+                            ByteBuffer tampon = encoder(new Entree(Etape.CONTENU, 0, id, null, null, null));
+                            while (tampon.hasRemaining()) {
+                                nouveau.write(tampon);
+                            }
+                            nouvelleTaille += tampon.limit();
+                        }
+                        if (fsync) {
+                            nouveau.force(true);
+                        }
+                    }
+                    canal.close();
+                    Files.move(temporaire, chemin, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    canal = FileChannel.open(chemin, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    taille = nouvelleTaille;
+                    positionForcee = nouvelleTaille;
+                } catch (IOException e) {
+                    System.out.println("Erreur lors de la réécriture du journal d'ingestion, journal désactivé : "
+                            + e.getMessage());
+                    actif = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lit les entrées valides du journal et retire une éventuelle fin tronquée par un arrêt brutal.
+     *
+     * @return Les entrées du journal, dans l'ordre.
+     * @throws IOException Si la lecture échoue.
+     */
+    private List<Entree> lire() throws IOException {
+        List<Entree> entrees = new ArrayList<>();
+        long taillefichier = canal.size();
+        long position = 0;
+        ByteBuffer entete = ByteBuffer.allocate(TAILLE_ENTETE);
+        while (position + TAILLE_ENTETE <= taillefichier) {
+            entete.clear();
+            lireComplet(entete, position);
+            int longueur = entete.getInt(0);
+            if (longueur <= 0 || position + TAILLE_ENTETE + longueur > taillefichier) {
+                break;
+            }
+            ByteBuffer donnees = ByteBuffer.allocate(longueur);
+            lireComplet(donnees, position + TAILLE_ENTETE);
+            CRC32 crc = new CRC32();
+            crc.update(donnees.array());
+            if ((int) crc.getValue() != entete.getInt(4)) {
+                break;
+            }
+            try {
+                entrees.add(serialisation.readValue(donnees.array(), Entree.class));
+            } catch (IOException e) {
+                break;
+            }
+            position += TAILLE_ENTETE + longueur;
+        }
+        if (position < taillefichier) {
+            System.out.println("Journal d'ingestion : " + (taillefichier - position)
+                    + " octet(s) tronqué(s) par un arrêt brutal ignoré(s)");
+            canal.truncate(position);
+        }
+        taille = position;
+        positionForcee = position;
+        return entrees;
+    }
+
+    /**
+     * Relève, dans les entrées du journal, les lots planifiés et non terminés et les contenus GridFS dont aucun
+     * lot terminé n'a enregistré le fichier.
+     *
+     * @param entrees Entrées du journal.
+     * @return Le travail de reprise.
+     */
+    private Reprise analyser(List<Entree> entrees) {
+        Map<Long, Entree> prevus = new LinkedHashMap<>();
+        Map<Long, Set<String>> blocsEnEchec = new HashMap<>();
+        Set<Long> liberations = new HashSet<>();
+        Set<Long> termines = new HashSet<>();
+        Set<String> contenus = new LinkedHashSet<>();
+        for (Entree entree : entrees) {
+            sequence.accumulateAndGet(entree.lot(), Math::max);
+            switch (entree.etape()) {
+                case CONTENU -> contenus.add(entree.contenuId());
+                case PREVU -> prevus.put(entree.lot(), entree);
+                case BLOCS -> blocsEnEchec.put(entree.lot(), Objects.requireNonNullElse(entree.blocsEnEchec(), Set.of()));
+                case LIBERATION -> liberations.add(entree.lot());
+                case TERMINE -> termines.add(entree.lot());
+            }
+        }
+        List<LotIncomplet> lots = new ArrayList<>();
+        for (Entree prevu : prevus.values()) {
+            List<OperationPrevue> operations = Objects.requireNonNullElse(prevu.operations(), List.of());
+            if (termines.contains(prevu.lot())) {
+                operations.stream()
+                        .filter(op -> op.fichier() != null && op.fichier().getContenuId() != null)
+                        .forEach(op -> contenus.remove(op.fichier().getContenuId()));
+                continue;
+            }
+            // Blocs du lot non référencés : en échec, ou dont l'écriture n'est pas attestée
+            Set<String> nonReferences = new HashSet<>(Objects.requireNonNullElse(prevu.blocsEnEchec(), Set.of()));
+            Set<String> echecsDuLot = blocsEnEchec.get(prevu.lot());
+            nonReferences.addAll(echecsDuLot != null ? echecsDuLot : Objects.requireNonNullElse(prevu.blocs(), Set.of()));
+            lots.add(new LotIncomplet(prevu.lot(), operations, nonReferences, liberations.contains(prevu.lot())));
+        }
+        return new Reprise(lots, contenus);
+    }
+
+    /**
+     * Encode une entrée : longueur, somme de contrôle CRC32, puis l'entrée sérialisée en JSON.
+     *
+     * @param entree Entrée à encoder.
+     * @return Le tampon prêt à être écrit.
+     * @throws IOException Si la sérialisation échoue.
+     */
+    private ByteBuffer encoder(Entree entree) throws IOException {
+        byte[] donnees = serialisation.writeValueAsBytes(entree);
+        CRC32 crc = new CRC32();
+        crc.update(donnees);
+        ByteBuffer tampon = ByteBuffer.allocate(TAILLE_ENTETE + donnees.length);
+        tampon.putInt(donnees.length).putInt((int) crc.getValue()).put(donnees).flip();
+        return tampon;
+    }
+
+    /**
+     * Lit un tampon entier à une position du journal.
+     *
+     * @param tampon   Tampon à remplir.
+     * @param position Position de lecture.
+     * @throws IOException Si la lecture échoue ou si le journal se termine avant.
+     */
+    private void lireComplet(ByteBuffer tampon, long position) throws IOException {
+        while (tampon.hasRemaining()) {
+            if (canal.read(tampon, position + tampon.position()) < 0) {
+                throw new IOException("Fin du journal inattendue");
+            }
+        }
+    }
+
+    /**
+     * @return Le chemin du fichier du journal.
+     */
+    private Path chemin() {
+        return Paths.get(repertoire, NOM_FICHIER);
+    }
+}
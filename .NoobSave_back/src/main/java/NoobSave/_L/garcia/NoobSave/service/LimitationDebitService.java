@@ -0,0 +1,75 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.Parametre;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service de limitation du débit de lecture des passes de synchronisation.
+ *
+ * <p>Chaque racine de synchronisation, qui correspond en général à un volume distinct, dispose de deux
+ * limiteurs ({@link LimiteurDebit}) partagés par ses passes : l'un pour les passes de fond (planifiées,
+ * surveillance), l'autre, généralement plus généreux, pour les passes interactives déclenchées par un
+ * utilisateur. Ainsi, un volume lent ne consomme pas le budget des autres. Leurs débits (octets et fichiers
+ * par seconde), communs à toutes les racines, sont lus dans {@link Parametre} au début de chaque passe et
+ * lors de chaque modification des paramètres : une passe en cours applique immédiatement les nouveaux
+ * débits.</p>
+ *
+ * @author torres léo
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class LimitationDebitService {
+
+    /**
+     * Service pour accéder aux paramètres globaux.
+     */
+    private final ParametreService parametreService;
+
+    /**
+     * Limiteurs d'une racine.
+     *
+     * @param arrierePlan Limiteur des passes de fond.
+     * @param interactif  Limiteur des passes interactives.
+     */
+    private record Limiteurs(LimiteurDebit arrierePlan, LimiteurDebit interactif) {
+    }
+
+    /**
+     * Limiteurs de chaque racine de synchronisation.
+     */
+    private final Map<Path, Limiteurs> limiteurs = new ConcurrentHashMap<>();
+
+    /**
+     * Retourne le limiteur à appliquer à une passe, après avoir relu les débits configurés.
+     *
+     * @param racine      Racine de synchronisation de la passe.
+     * @param interactive {@code true} pour une passe déclenchée par un utilisateur.
+     * @return Le limiteur correspondant.
+     */
+    LimiteurDebit limiteur(Path racine, boolean interactive) {
+        Limiteurs limiteursRacine = limiteurs.computeIfAbsent(racine,
+                r -> new Limiteurs(new LimiteurDebit(), new LimiteurDebit()));
+        actualiser();
+        return interactive ? limiteursRacine.interactif() : limiteursRacine.arrierePlan();
+    }
+
+    /**
+     * Relit les débits configurés dans les paramètres et les applique aux limiteurs, y compris pour les
+     * passes en cours.
+     */
+    public void actualiser() {
+        Parametre parametre = parametreService.getParametre();
+        limiteurs.values().forEach(limiteursRacine -> {
+            limiteursRacine.arrierePlan().configurer(parametre.getScanMaxBytesPerSecond(),
+                    parametre.getScanMaxFilesPerSecond());
+            limiteursRacine.interactif().configurer(parametre.getInteractiveMaxBytesPerSecond(),
+                    parametre.getInteractiveMaxFilesPerSecond());
+        });
+    }
+}
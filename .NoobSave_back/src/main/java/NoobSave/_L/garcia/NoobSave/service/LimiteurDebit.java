@@ -0,0 +1,98 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limiteur de débit à seaux de jetons, appliqué à la lecture des fichiers pendant une passe de
+ * synchronisation : un seau pour les octets lus par seconde et un seau pour les fichiers parcourus par
+ * seconde.
+ *
+ * <p>Chaque seau se remplit au débit configuré, avec une capacité d'une seconde de débit (rafale). Une
+ * demande supérieure aux jetons disponibles est accordée à crédit : le seau devient négatif et l'appelant
+ * attend le temps nécessaire pour le rembourser, ce qui permet de lire un fichier plus gros que la capacité
+ * tout en respectant le débit moyen. Un débit nul désactive la limite correspondante.</p>
+ *
+ * <p>Les débits peuvent être modifiés à tout moment via {@link #configurer(long, long)} ; le limiteur est
+ * partagé par tous les threads d'une passe.</p>
+ */
+class LimiteurDebit {
+
+    /**
+     * Seau de jetons à débit modifiable.
+     */
+    private static final class Seau {
+
+        private long debit;
+        private double jetons;
+        private long derniereRecharge = System.nanoTime();
+
+        /**
+         * Réserve des jetons et calcule l'attente nécessaire.
+         *
+         * @param quantite Nombre de jetons demandés.
+         * @return L'attente en nanosecondes avant de consommer les jetons.
+         */
+        synchronized long reserver(long quantite) {
+            if (debit <= 0) {
+                return 0;
+            }
+            long maintenant = System.nanoTime();
+            jetons = Math.min(debit, jetons + (maintenant - derniereRecharge) * debit / 1_000_000_000.0);
+            derniereRecharge = maintenant;
+            jetons -= quantite;
+            return jetons >= 0 ? 0 : (long) (-jetons * 1_000_000_000.0 / debit);
+        }
+
+        /**
+         * Modifie le débit du seau. Le seau repart plein lorsque la limite est activée.
+         *
+         * @param nouveauDebit Débit en jetons par seconde, ou 0 pour ne pas limiter.
+         */
+        synchronized void configurer(long nouveauDebit) {
+            if (nouveauDebit != debit) {
+                jetons = Math.max(0, nouveauDebit);
+                derniereRecharge = System.nanoTime();
+                debit = Math.max(0, nouveauDebit);
+            }
+        }
+    }
+
+    private final Seau octets = new Seau();
+    private final Seau fichiers = new Seau();
+
+    /**
+     * Modifie les débits du limiteur.
+     *
+     * @param octetsParSeconde   Octets lus par seconde, ou 0 pour ne pas limiter.
+     * @param fichiersParSeconde Fichiers parcourus par seconde, ou 0 pour ne pas limiter.
+     */
+    void configurer(long octetsParSeconde, long fichiersParSeconde) {
+        octets.configurer(octetsParSeconde);
+        fichiers.configurer(fichiersParSeconde);
+    }
+
+    /**
+     * Attend, si nécessaire, avant le parcours d'un fichier.
+     *
+     * @throws InterruptedException Si le thread est interrompu pendant l'attente.
+     */
+    void acquerirFichier() throws InterruptedException {
+        attendre(fichiers.reserver(1));
+    }
+
+    /**
+     * Attend, si nécessaire, avant la lecture d'un nombre d'octets.
+     *
+     * @param quantite Nombre d'octets à lire.
+     * @throws InterruptedException Si le thread est interrompu pendant l'attente.
+     */
+    void acquerirOctets(long quantite) throws InterruptedException {
+        attendre(octets.reserver(quantite));
+    }
+
+    private static void attendre(long nanos) throws InterruptedException {
+        if (nanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+}
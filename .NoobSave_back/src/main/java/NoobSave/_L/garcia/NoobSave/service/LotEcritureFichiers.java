@@ -0,0 +1,659 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.dto.EmpreinteFichier;
+import NoobSave._L.garcia.NoobSave.entities.CorpsFichier;
+import NoobSave._L.garcia.NoobSave.entities.EntreeManifeste;
+import NoobSave._L.garcia.NoobSave.entities.Fichier;
+import NoobSave._L.garcia.NoobSave.entities.VersionFichier;
+import com.mongodb.bulk.BulkWriteError;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lot d'écritures regroupant les fichiers ingérés pendant une passe de synchronisation.
+ *
+ * <p>Au lieu d'un aller-retour vers MongoDB par fichier, les écritures sont accumulées puis envoyées en une
+ * seule opération groupée non ordonnée ({@link BulkOperations.BulkMode#UNORDERED}) d'upserts indexés par
+ * chemin relatif. Le lot est vidé dès qu'un des seuils configurés est atteint :</p>
+ * <ul>
+ *     <li>nombre d'opérations en attente ;</li>
+ *     <li>volume de contenu en attente (en octets) ;</li>
+ *     <li>ancienneté de la première opération en attente.</li>
+ * </ul>
+ *
+ * <p>Les entrées du manifeste ne sont enregistrées qu'après l'écriture effective des fichiers
+ * correspondants : un fichier dont l'écriture échoue sera relu à la passe suivante.</p>
+ *
+ * <p>Le lot reçoit aussi les blocs dédupliqués produits par le découpage des fichiers
+ * ({@link StockageBlocsService}). Les blocs en attente sont toujours écrits avant les fichiers du même
+ * lot, et les écritures sont sérialisées : un fichier n'est jamais enregistré avant ses blocs. Un fichier
+ * référençant un bloc dont l'écriture a échoué n'est pas enregistré.</p>
+ *
+ * <p>Chaque écriture de lot est planifiée dans le journal d'ingestion ({@link JournalIngestion}) avant de
+ * modifier la base, puis marquée terminée : après un arrêt brutal, les lots interrompus sont repris
+ * ({@link #reprendre(JournalIngestion.Reprise)}) avant toute nouvelle écriture.</p>
+ *
+ * <p>Le lot peut être alimenté depuis plusieurs threads ; il doit être vidé explicitement en fin de passe.</p>
+ */
+class LotEcritureFichiers {
+
+    /**
+     * Opération en attente : un fichier à écrire (ou {@code null} si seul le manifeste change) et
+     * l'entrée du manifeste à enregistrer une fois l'écriture effectuée.
+     *
+     * @param fichier Fichier à écrire, ou {@code null}.
+     * @param entree  Entrée du manifeste associée.
+     */
+    private record Operation(Fichier fichier, EntreeManifeste entree) {
+    }
+
+    /**
+     * Contenu détaché du lot pour écriture.
+     *
+     * @param operations Opérations détachées.
+     * @param blocs      Blocs détachés, indexés par identifiant.
+     */
+    private record Detache(List<Operation> operations, Map<String, StockageBlocsService.BlocEnAttente> blocs) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ManifesteService manifesteService;
+    private final StockageGridFsService stockageGridFsService;
+    private final StockageCorpsService stockageCorpsService;
+    private final StockageBlocsService stockageBlocsService;
+    private final VersionService versionService;
+    private final JournalIngestion journal;
+    private final int tailleMax;
+    private final long octetsMax;
+    private final long delaiMaxMs;
+
+    private List<Operation> enAttente = new ArrayList<>();
+    private Map<String, StockageBlocsService.BlocEnAttente> blocsEnAttente = new HashMap<>();
+    private long octetsEnAttente;
+    private long debutLot;
+
+    /**
+     * Nombre de lots détachés dont l'écriture n'est pas terminée. Protégé par le verrou du lot.
+     */
+    private int ecrituresEnCours;
+
+    /**
+     * Verrou sérialisant les écritures, afin qu'un fichier ne soit jamais écrit avant ses blocs.
+     */
+    private final Object verrouEcriture = new Object();
+
+    /**
+     * Blocs dont l'écriture a échoué pendant la vie du lot.
+     */
+    private final Set<String> blocsEnEchec = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Crée un lot d'écriture.
+     *
+     * @param mongoTemplate    Accès bas niveau à MongoDB.
+     * @param manifesteService Service du manifeste de synchronisation.
+     * @param stockageGridFsService Service de stockage GridFS, pour le nettoyage des contenus remplacés.
+     * @param stockageCorpsService  Service de stockage du contenu des petits fichiers.
+     * @param stockageBlocsService  Service de stockage des blocs dédupliqués.
+     * @param versionService        Service de l'historique des versions.
+     * @param journal               Journal d'ingestion.
+     * @param tailleMax        Nombre d'opérations déclenchant l'écriture du lot.
+     * @param octetsMax        Volume de contenu (en octets) déclenchant l'écriture du lot.
+     * @param delaiMaxMs       Ancienneté (en millisecondes) déclenchant l'écriture du lot.
+     */
+    LotEcritureFichiers(MongoTemplate mongoTemplate, ManifesteService manifesteService,
+                        StockageGridFsService stockageGridFsService, StockageCorpsService stockageCorpsService,
+                        StockageBlocsService stockageBlocsService, VersionService versionService,
+                        JournalIngestion journal, int tailleMax, long octetsMax, long delaiMaxMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.manifesteService = manifesteService;
+        this.stockageGridFsService = stockageGridFsService;
+        this.stockageCorpsService = stockageCorpsService;
+        this.stockageBlocsService = stockageBlocsService;
+        this.versionService = versionService;
+        this.journal = journal;
+        this.tailleMax = Math.max(1, tailleMax);
+        this.octetsMax = octetsMax;
+        this.delaiMaxMs = delaiMaxMs;
+    }
+
+    /**
+     * Ajoute un fichier nouveau ou modifié au lot.
+     *
+     * <p>Seul le contenu stocké dans le document compte dans le volume en attente : un contenu déjà
+     * transféré dans GridFS, ou découpé en blocs ajoutés séparément, n'est pas compté une seconde fois.</p>
+     *
+     * @param fichier Fichier à écrire (upsert par chemin relatif).
+     * @param entree  Entrée du manifeste à enregistrer après l'écriture.
+     */
+    void ajouter(Fichier fichier, EntreeManifeste entree) {
+        long octets = fichier.getContenu() != null ? fichier.getContenu().length : 0;
+        ajouter(new Operation(fichier, entree), octets);
+    }
+
+    /**
+     * Ajoute au lot un bloc issu du découpage d'un fichier. Un bloc déjà en attente n'est pas dupliqué :
+     * seul son nombre de références est augmenté.
+     *
+     * @param id   Identifiant (empreinte) du bloc.
+     * @param bloc Bloc à écrire.
+     */
+    void ajouterBloc(String id, StockageBlocsService.BlocEnAttente bloc) {
+        Detache aEcrire = null;
+        synchronized (this) {
+            demarrerSiVide();
+            StockageBlocsService.BlocEnAttente existant = blocsEnAttente.get(id);
+            if (existant == null) {
+                blocsEnAttente.put(id, bloc);
+                octetsEnAttente += bloc.donnees().length;
+            } else {
+                blocsEnAttente.put(id, new StockageBlocsService.BlocEnAttente(existant.donnees(), existant.compression(),
+                        existant.taille(), existant.occurrences() + bloc.occurrences()));
+            }
+            if (seuilAtteint()) {
+                aEcrire = detacher();
+            }
+        }
+        if (aEcrire != null) {
+            ecrire(aEcrire);
+        }
+    }
+
+    /**
+     * Ajoute au lot une entrée du manifeste seule, pour un fichier dont le contenu est inchangé.
+     *
+     * @param entree Entrée du manifeste à enregistrer.
+     */
+    void ajouter(EntreeManifeste entree) {
+        ajouter(new Operation(null, entree), 0);
+    }
+
+    /**
+     * Écrit immédiatement toutes les opérations en attente, puis attend la fin des écritures déclenchées
+     * par d'autres threads : au retour, toutes les opérations ajoutées avant l'appel ont été écrites.
+     */
+    void vider() {
+        Detache aEcrire;
+        synchronized (this) {
+            aEcrire = detacher();
+        }
+        ecrire(aEcrire);
+        synchronized (this) {
+            while (ecrituresEnCours > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ajoute une opération et écrit le lot si un seuil est atteint. L'écriture a lieu hors du verrou,
+     * pour ne pas bloquer les autres threads de la passe.
+     *
+     * @param operation Opération à ajouter.
+     * @param octets    Volume de contenu de l'opération.
+     */
+    private void ajouter(Operation operation, long octets) {
+        Detache aEcrire = null;
+        synchronized (this) {
+            demarrerSiVide();
+            enAttente.add(operation);
+            octetsEnAttente += octets;
+            if (seuilAtteint()) {
+                aEcrire = detacher();
+            }
+        }
+        if (aEcrire != null) {
+            ecrire(aEcrire);
+        }
+    }
+
+    /**
+     * Mémorise l'instant de la première opération d'un lot vide. Doit être appelée sous verrou.
+     */
+    private void demarrerSiVide() {
+        if (enAttente.isEmpty() && blocsEnAttente.isEmpty()) {
+            debutLot = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Indique si un des seuils d'écriture est atteint. Doit être appelée sous verrou.
+     *
+     * @return {@code true} si le lot doit être écrit.
+     */
+    private boolean seuilAtteint() {
+        return enAttente.size() + blocsEnAttente.size() >= tailleMax
+                || octetsEnAttente >= octetsMax
+                || System.currentTimeMillis() - debutLot >= delaiMaxMs;
+    }
+
+    /**
+     * Détache les opérations et les blocs en attente et réinitialise le lot. Doit être appelée sous verrou.
+     *
+     * @return Le contenu détaché.
+     */
+    private Detache detacher() {
+        Detache aEcrire = new Detache(enAttente, blocsEnAttente);
+        enAttente = new ArrayList<>();
+        blocsEnAttente = new HashMap<>();
+        octetsEnAttente = 0;
+        ecrituresEnCours++;
+        return aEcrire;
+    }
+
+    /**
+     * Écrit un lot : blocs d'abord, puis contenu des petits fichiers, puis upserts groupés des fichiers, puis
+     * enregistrement des nouvelles versions et des entrées du manifeste des fichiers effectivement écrits.
+     *
+     * <p>Les versions précédentes des fichiers du lot (contenu à libérer, numéro et blocs de base de la
+     * nouvelle version) sont lues en une seule requête avant l'écriture, puis le lot est planifié dans le
+     * journal d'ingestion ; l'intention de libérer des blocs y est journalisée avant la libération.</p>
+     *
+     * <p>Après une écriture réussie, le contenu non versionné de la version remplacée est libéré (suppression
+     * GridFS ou du corps, ou décrément des références de ses blocs) ; un contenu versionné reste référencé par son
+     * historique. En cas d'échec, c'est le nouveau contenu, devenu orphelin, qui est libéré.</p>
+     *
+     * @param lot Contenu détaché à écrire.
+     */
+    private void ecrire(Detache lot) {
+        try {
+            ecrireSousVerrou(lot);
+        } finally {
+            synchronized (this) {
+                ecrituresEnCours--;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Écrit un lot en détenant le verrou d'écriture (voir {@link #ecrire(Detache)}).
+     *
+     * @param lot Contenu détaché à écrire.
+     */
+    private void ecrireSousVerrou(Detache lot) {
+        synchronized (verrouEcriture) {
+            List<Operation> operations = lot.operations();
+            List<Operation> fichiers = new ArrayList<>(operations.stream().filter(op -> op.fichier() != null).toList());
+            Set<Operation> echecs = Collections.newSetFromMap(new IdentityHashMap<>());
+            attribuerCorps(fichiers);
+
+            Map<CleFichier, EmpreinteFichier> anciens = new HashMap<>();
+            Map<Operation, VersionFichier> versionsParOperation = new IdentityHashMap<>();
+            if (!fichiers.isEmpty()) {
+                try {
+                    anciens = chargerAnciens(fichiers);
+                    for (Operation op : fichiers) {
+                        if (op.fichier().getBlocs() != null) {
+                            versionsParOperation.put(op, versionService.creer(op.fichier(),
+                                    anciens.get(CleFichier.de(op.fichier()))));
+                        }
+                    }
+                } catch (DataAccessException e) {
+                    System.out.println("Erreur lors de la lecture des versions précédentes de " + fichiers.size()
+                            + " fichier(s) : " + e.getMessage());
+                    echecs.addAll(fichiers);
+                    fichiers.clear();
+                }
+            }
+            long numero = planifier(operations, echecs, anciens, versionsParOperation, lot.blocs().keySet());
+
+            if (!lot.blocs().isEmpty()) {
+                Set<String> echecsBlocs = stockageBlocsService.ecrire(lot.blocs());
+                blocsEnEchec.addAll(echecsBlocs);
+                journal.blocsEcrits(numero, echecsBlocs);
+            }
+            Iterator<Operation> iterateur = fichiers.iterator();
+            while (iterateur.hasNext()) {
+                Operation op = iterateur.next();
+                if (op.fichier().getBlocs() != null && op.fichier().getBlocs().stream().anyMatch(blocsEnEchec::contains)) {
+                    System.out.println("Fichier non enregistré, bloc(s) non écrit(s) : " + op.fichier().getChemin());
+                    echecs.add(op);
+                    iterateur.remove();
+                }
+            }
+            ecrireCorps(fichiers, echecs);
+
+            if (!fichiers.isEmpty()) {
+                try {
+                    BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Fichier.class);
+                    for (Operation op : fichiers) {
+                        bulk.upsert(Query.query(Criteria.where("racine").is(op.fichier().getRacine())
+                                        .and("cheminRelatif").is(op.fichier().getCheminRelatif())),
+                                upsert(op.fichier()));
+                    }
+                    bulk.execute();
+                } catch (BulkOperationException e) {
+                    for (BulkWriteError erreur : e.getErrors()) {
+                        Operation op = fichiers.get(erreur.getIndex());
+                        echecs.add(op);
+                        System.out.println("Erreur d'écriture pour le fichier : " + op.fichier().getChemin()
+                                + " - " + erreur.getMessage());
+                    }
+                } catch (DataAccessException e) {
+                    System.out.println("Erreur lors de l'écriture d'un lot de " + fichiers.size()
+                            + " fichier(s) : " + e.getMessage());
+                    echecs.addAll(fichiers);
+                }
+            }
+
+            List<String> blocsLiberes = new ArrayList<>();
+            List<VersionFichier> versions = new ArrayList<>();
+            for (Operation op : operations) {
+                if (op.fichier() == null) {
+                    continue;
+                }
+                if (echecs.contains(op)) {
+                    liberer(op.fichier().getContenuId(), op.fichier().getCorpsId(), op.fichier().getBlocs(), blocsLiberes);
+                    continue;
+                }
+                EmpreinteFichier ancien = anciens.get(CleFichier.de(op.fichier()));
+                if (ancien != null) {
+                    JournalIngestion.ContenuRemplace remplace = remplace(ancien);
+                    liberer(remplace.contenuId(), remplace.corpsId(), remplace.blocs(), blocsLiberes);
+                }
+                VersionFichier version = versionsParOperation.get(op);
+                if (version != null) {
+                    versions.add(version);
+                }
+            }
+            journal.liberer(numero, !blocsLiberes.isEmpty());
+            stockageBlocsService.liberer(blocsLiberes);
+            versionService.enregistrerTous(versions);
+
+            List<EntreeManifeste> entrees = operations.stream()
+                    .filter(op -> !echecs.contains(op))
+                    .map(Operation::entree)
+                    .toList();
+            manifesteService.enregistrerTous(entrees);
+            journal.terminer(numero);
+        }
+    }
+
+    /**
+     * Planifie un lot dans le journal d'ingestion : opérations (fichiers, contenus remplacés, versions et entrées
+     * du manifeste) et blocs à écrire. Les fichiers déjà en échec ne sont pas planifiés.
+     *
+     * @param operations           Opérations du lot.
+     * @param echecs               Opérations déjà en échec.
+     * @param anciens              Versions enregistrées des fichiers du lot.
+     * @param versionsParOperation Versions à enregistrer, par opération.
+     * @param blocs                Identifiants des blocs du lot.
+     * @return Le numéro du lot dans le journal.
+     */
+    private long planifier(List<Operation> operations, Set<Operation> echecs, Map<CleFichier, EmpreinteFichier> anciens,
+                           Map<Operation, VersionFichier> versionsParOperation, Set<String> blocs) {
+        List<JournalIngestion.OperationPrevue> prevues = new ArrayList<>();
+        Set<String> echecsPrecedents = new HashSet<>();
+        for (Operation op : operations) {
+            if (echecs.contains(op)) {
+                continue;
+            }
+            Fichier fichier = op.fichier();
+            EmpreinteFichier ancien = fichier != null ? anciens.get(CleFichier.de(fichier)) : null;
+            prevues.add(new JournalIngestion.OperationPrevue(fichier, ancien != null ? remplace(ancien) : null,
+                    versionsParOperation.get(op), op.entree()));
+            if (fichier != null && fichier.getBlocs() != null) {
+                fichier.getBlocs().stream().filter(blocsEnEchec::contains).forEach(echecsPrecedents::add);
+            }
+        }
+        return journal.prevoir(prevues, new HashSet<>(blocs), echecsPrecedents);
+    }
+
+    /**
+     * Reprend les écritures interrompues par un arrêt brutal, relevées dans le journal d'ingestion.
+     *
+     * <p>Pour chaque lot non terminé, l'état des fichiers en base indique si leur écriture a eu lieu : le
+     * contenu remplacé d'un fichier écrit est libéré et sa version et son entrée du manifeste sont enregistrées ;
+     * le contenu d'un fichier non écrit est libéré, sauf les blocs dont l'incrément n'est pas attesté. Les blocs
+     * ne sont pas libérés si le journal indique que leur libération avait commencé. Les contenus GridFS envoyés
+     * sans qu'aucun fichier ne les référence sont ensuite supprimés.</p>
+     *
+     * @param reprise Travail de reprise relevé à l'ouverture du journal.
+     * @throws DataAccessException Si la base est inaccessible : la reprise sera retentée.
+     */
+    void reprendre(JournalIngestion.Reprise reprise) {
+        synchronized (verrouEcriture) {
+            for (JournalIngestion.LotIncomplet lot : reprise.lots()) {
+                reprendre(lot);
+            }
+            int supprimes = 0;
+            for (String contenuId : reprise.contenus()) {
+                if (!mongoTemplate.exists(Query.query(Criteria.where("contenuId").is(contenuId)), Fichier.class)) {
+                    stockageGridFsService.supprimer(contenuId);
+                    supprimes++;
+                }
+            }
+            if (supprimes > 0) {
+                System.out.println("Contenu(s) GridFS orphelin(s) supprimé(s) : " + supprimes);
+            }
+        }
+    }
+
+    /**
+     * Reprend un lot interrompu (voir {@link #reprendre(JournalIngestion.Reprise)}).
+     *
+     * @param lot Lot planifié et non terminé.
+     */
+    private void reprendre(JournalIngestion.LotIncomplet lot) {
+        List<Operation> fichiers = lot.operations().stream()
+                .filter(op -> op.fichier() != null)
+                .map(op -> new Operation(op.fichier(), op.entree()))
+                .toList();
+        Map<CleFichier, EmpreinteFichier> actuels = fichiers.isEmpty() ? Map.of() : chargerAnciens(fichiers);
+        List<String> blocsLiberes = new ArrayList<>();
+        List<VersionFichier> versions = new ArrayList<>();
+        List<EntreeManifeste> entrees = new ArrayList<>();
+        int ecrits = 0;
+        for (JournalIngestion.OperationPrevue op : lot.operations()) {
+            Fichier fichier = op.fichier();
+            if (fichier == null) {
+                entrees.add(op.entree());
+            } else if (estEcrit(fichier, actuels.get(CleFichier.de(fichier)))) {
+                ecrits++;
+                JournalIngestion.ContenuRemplace remplace = op.remplace();
+                if (remplace != null) {
+                    liberer(remplace.contenuId(), remplace.corpsId(), remplace.blocs(), blocsLiberes);
+                }
+                if (op.version() != null && !mongoTemplate.exists(Query.query(Criteria.where("racine").is(fichier.getRacine())
+                        .and("cheminRelatif").is(fichier.getCheminRelatif())
+                        .and("numero").is(op.version().getNumero())), VersionFichier.class)) {
+                    versions.add(op.version());
+                }
+                entrees.add(op.entree());
+            } else {
+                List<String> blocs = fichier.getBlocs() == null ? null : fichier.getBlocs().stream()
+                        .filter(id -> !lot.blocsNonReferences().contains(id))
+                        .toList();
+                liberer(fichier.getContenuId(), fichier.getCorpsId(), blocs, blocsLiberes);
+            }
+        }
+        if (!lot.liberation()) {
+            journal.liberer(lot.lot(), true);
+            stockageBlocsService.liberer(blocsLiberes);
+        }
+        versionService.enregistrerTous(versions);
+        manifesteService.enregistrerTous(entrees);
+        journal.terminer(lot.lot());
+        System.out.println("Lot " + lot.lot() + " du journal d'ingestion repris : " + ecrits + " fichier(s) écrit(s), "
+                + (fichiers.size() - ecrits) + " fichier(s) annulé(s)");
+    }
+
+    /**
+     * Indique si l'écriture planifiée d'un fichier a eu lieu : le document enregistré référence son contenu.
+     *
+     * @param fichier Fichier planifié.
+     * @param actuel  Document enregistré, ou {@code null}.
+     * @return {@code true} si le fichier a été écrit.
+     */
+    private static boolean estEcrit(Fichier fichier, EmpreinteFichier actuel) {
+        if (actuel == null) {
+            return false;
+        }
+        if (fichier.getBlocs() != null) {
+            return fichier.getBlocs().equals(actuel.getBlocs())
+                    && Objects.equals(fichier.getVersion(), Objects.requireNonNullElse(actuel.getVersion(), 0));
+        }
+        if (fichier.getContenuId() != null) {
+            return fichier.getContenuId().equals(actuel.getContenuId());
+        }
+        return fichier.getCorpsId() != null && fichier.getCorpsId().equals(actuel.getCorpsId());
+    }
+
+    /**
+     * Décrit le contenu remplacé par l'écriture d'un fichier, à libérer une fois le fichier écrit.
+     *
+     * @param ancien Version enregistrée du fichier.
+     * @return Le contenu remplacé ; les blocs d'un contenu versionné appartiennent à son historique.
+     */
+    private static JournalIngestion.ContenuRemplace remplace(EmpreinteFichier ancien) {
+        boolean versionne = ancien.getVersion() != null && ancien.getVersion() > 0;
+        return new JournalIngestion.ContenuRemplace(ancien.getContenuId(), ancien.getCorpsId(),
+                versionne ? null : ancien.getBlocs());
+    }
+
+    /**
+     * Identifiant d'un fichier : racine de synchronisation et chemin relatif.
+     *
+     * @param racine        Racine de synchronisation, ou {@code null} pour le répertoire principal.
+     * @param cheminRelatif Chemin relatif du fichier.
+     */
+    private record CleFichier(String racine, String cheminRelatif) {
+
+        static CleFichier de(Fichier fichier) {
+            return new CleFichier(fichier.getRacine(), fichier.getCheminRelatif());
+        }
+    }
+
+    /**
+     * Lit la version enregistrée des fichiers d'un lot, en une requête par racine de synchronisation (une
+     * seule en pratique, un lot appartenant à une passe).
+     *
+     * @param fichiers Opérations d'écriture de fichiers.
+     * @return Les versions enregistrées, indexées par racine et chemin relatif.
+     */
+    private Map<CleFichier, EmpreinteFichier> chargerAnciens(List<Operation> fichiers) {
+        Map<String, List<String>> cheminsParRacine = new HashMap<>();
+        for (Operation op : fichiers) {
+            cheminsParRacine.computeIfAbsent(op.fichier().getRacine(), racine -> new ArrayList<>())
+                    .add(op.fichier().getCheminRelatif());
+        }
+        Map<CleFichier, EmpreinteFichier> anciens = new HashMap<>();
+        cheminsParRacine.forEach((racine, chemins) -> mongoTemplate.query(Fichier.class).as(EmpreinteFichier.class)
+                .matching(Query.query(Criteria.where("racine").is(racine).and("cheminRelatif").in(chemins)))
+                .all()
+                .forEach(ancien -> anciens.put(new CleFichier(racine, ancien.getCheminRelatif()), ancien)));
+        return anciens;
+    }
+
+    /**
+     * Renseigne l'identifiant du corps des fichiers stockés d'un seul tenant, avant la planification du lot.
+     *
+     * @param fichiers Opérations d'écriture de fichiers.
+     */
+    private void attribuerCorps(List<Operation> fichiers) {
+        fichiers.stream()
+                .filter(op -> op.fichier().getContenu() != null)
+                .forEach(op -> op.fichier().setCorpsId(stockageCorpsService.nouvelId()));
+    }
+
+    /**
+     * Enregistre, avant les fichiers eux-mêmes, le contenu des fichiers stockés d'un seul tenant. En cas
+     * d'échec, les fichiers concernés sont retirés de la liste et ajoutés aux échecs.
+     *
+     * @param fichiers Opérations d'écriture de fichiers, modifiée en cas d'échec.
+     * @param echecs   Opérations en échec.
+     */
+    private void ecrireCorps(List<Operation> fichiers, Set<Operation> echecs) {
+        List<Operation> avecCorps = fichiers.stream().filter(op -> op.fichier().getContenu() != null).toList();
+        if (avecCorps.isEmpty()) {
+            return;
+        }
+        List<CorpsFichier> corps = new ArrayList<>();
+        for (Operation op : avecCorps) {
+            corps.add(new CorpsFichier(op.fichier().getCorpsId(), op.fichier().getContenu()));
+        }
+        try {
+            stockageCorpsService.enregistrerTous(corps);
+        } catch (DataAccessException e) {
+            System.out.println("Erreur lors de l'écriture du contenu de " + avecCorps.size()
+                    + " fichier(s) : " + e.getMessage());
+            for (Operation op : avecCorps) {
+                stockageCorpsService.supprimer(op.fichier().getCorpsId());
+                op.fichier().setCorpsId(null);
+            }
+            fichiers.removeAll(avecCorps);
+            echecs.addAll(avecCorps);
+        }
+    }
+
+    /**
+     * Libère un contenu : le contenu GridFS et le corps d'un petit fichier sont supprimés immédiatement, les
+     * blocs sont ajoutés à la liste des blocs à libérer (hors blocs dont l'écriture a échoué, qui n'ont jamais
+     * été référencés).
+     *
+     * @param contenuId    Contenu GridFS, ou {@code null}.
+     * @param corpsId      Corps d'un petit fichier, ou {@code null}.
+     * @param blocs        Blocs du contenu, ou {@code null}.
+     * @param blocsLiberes Liste recevant les blocs à libérer.
+     */
+    private void liberer(String contenuId, String corpsId, List<String> blocs, List<String> blocsLiberes) {
+        if (contenuId != null) {
+            stockageGridFsService.supprimer(contenuId);
+        }
+        if (corpsId != null) {
+            stockageCorpsService.supprimer(corpsId);
+        }
+        if (blocs != null) {
+            blocs.stream().filter(id -> !blocsEnEchec.contains(id)).forEach(blocsLiberes::add);
+        }
+    }
+
+    /**
+     * Construit la mise à jour d'un upsert de fichier : tous les champs sont écrits, sauf la date d'ajout
+     * qui n'est renseignée qu'à la création du document.
+     *
+     * @param fichier Fichier à écrire.
+     * @return La mise à jour correspondante.
+     */
+    private static Update upsert(Fichier fichier) {
+        Update update = new Update()
+                .set("chemin", fichier.getChemin())
+                .set("nom", fichier.getNom())
+                .set("type", fichier.getType())
+                .set("empreinte", fichier.getEmpreinte())
+                .set("taille", fichier.getTaille())
+                .set("tailleStockee", fichier.getTailleStockee())
+                .set("ratioCompression", fichier.getRatioCompression())
+                .set("dateModification", fichier.getDateModification())
+                .setOnInsert("dateAjout", fichier.getDateAjout());
+        if (fichier.getCompression() != null) {
+            update.set("compression", fichier.getCompression());
+        } else {
+            update.unset("compression");
+        }
+        // Un contenu intégré au document par une version précédente de l'application est retiré
+        update.unset("contenu");
+        if (fichier.getBlocs() != null) {
+            return update.set("blocs", fichier.getBlocs()).set("version", fichier.getVersion())
+                    .unset("corpsId").unset("contenuId");
+        }
+        if (fichier.getContenuId() != null) {
+            return update.set("contenuId", fichier.getContenuId()).unset("corpsId").unset("blocs");
+        }
+        return update.set("corpsId", fichier.getCorpsId()).unset("contenuId").unset("blocs");
+    }
+}
@@ -0,0 +1,174 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.EntreeManifeste;
+import NoobSave._L.garcia.NoobSave.repository.ManifesteRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Service de gestion du manifeste de synchronisation.
+ *
+ * <p>Le manifeste associe à chaque fichier local sa taille, sa date de modification et sa clé système
+ * (inode) telles qu'observées lors de sa dernière ingestion. Il permet à une passe de synchronisation
+ * de ne rouvrir que les fichiers dont l'une de ces valeurs a changé : le coût d'une passe dépend alors
+ * du nombre de fichiers modifiés et non de la taille de l'arborescence.</p>
+ *
+ * @author torres léo
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class ManifesteService {
+
+    /**
+     * Référentiel pour gérer les entités {@link EntreeManifeste}.
+     */
+    private final ManifesteRepository manifesteRepository;
+
+    /**
+     * Accès bas niveau à MongoDB, pour les écritures groupées.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Calcule la clé d'un chemin dans le manifeste (chemin absolu et normalisé).
+     *
+     * @param chemin Chemin du fichier local.
+     * @return La clé utilisée pour identifier le fichier dans le manifeste.
+     */
+    public static String cle(Path chemin) {
+        return chemin.toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Charge en mémoire, au début d'une passe de synchronisation, les entrées du manifeste situées sous la
+     * racine synchronisée.
+     *
+     * @param racine Racine de la passe, absolue et normalisée.
+     * @return Une table (chemin → entrée) du manifeste persisté.
+     */
+    public Map<String, EntreeManifeste> charger(Path racine) {
+        String prefixe = racine.toString().endsWith(racine.getFileSystem().getSeparator())
+                ? racine.toString() : racine + racine.getFileSystem().getSeparator();
+        Map<String, EntreeManifeste> manifeste = new ConcurrentHashMap<>();
+        Query query = Query.query(Criteria.where("chemin").regex("^" + Pattern.quote(prefixe)));
+        for (EntreeManifeste entree : mongoTemplate.find(query, EntreeManifeste.class)) {
+            manifeste.put(entree.getChemin(), entree);
+        }
+        return manifeste;
+    }
+
+    /**
+     * Recherche l'entrée du manifeste d'un fichier.
+     *
+     * @param chemin Chemin du fichier local.
+     * @return L'entrée du manifeste, ou {@code null} si le fichier est inconnu.
+     */
+    public EntreeManifeste trouver(Path chemin) {
+        return manifesteRepository.findById(cle(chemin)).orElse(null);
+    }
+
+    /**
+     * Indique si un fichier est inchangé depuis sa dernière ingestion.
+     *
+     * <p>Le fichier est considéré inchangé si sa taille, sa date de modification et, lorsqu'elle est
+     * disponible des deux côtés, sa clé système sont identiques à celles de l'entrée du manifeste.</p>
+     *
+     * @param entree    Entrée du manifeste (peut être {@code null} si le fichier est inconnu).
+     * @param attributs Attributs actuels du fichier.
+     * @return {@code true} si le fichier n'a pas besoin d'être relu, sinon {@code false}.
+     */
+    public boolean estInchange(EntreeManifeste entree, BasicFileAttributes attributs) {
+        if (entree == null) {
+            return false;
+        }
+        String cleFichier = cleFichier(attributs);
+        return entree.getTaille() == attributs.size()
+                && entree.getDateModification() == attributs.lastModifiedTime().toMillis()
+                && (entree.getCleFichier() == null || cleFichier == null || entree.getCleFichier().equals(cleFichier));
+    }
+
+    /**
+     * Crée l'entrée du manifeste décrivant l'état courant d'un fichier.
+     *
+     * @param chemin    Chemin du fichier local.
+     * @param attributs Attributs du fichier lus avant son ingestion.
+     * @return La nouvelle entrée, à enregistrer une fois le fichier ingéré.
+     */
+    public EntreeManifeste creerEntree(Path chemin, BasicFileAttributes attributs) {
+        return new EntreeManifeste(
+                cle(chemin),
+                attributs.size(),
+                attributs.lastModifiedTime().toMillis(),
+                cleFichier(attributs)
+        );
+    }
+
+    /**
+     * Enregistre un ensemble d'entrées du manifeste en une seule opération groupée.
+     *
+     * @param entrees Entrées à enregistrer (créées ou remplacées).
+     */
+    public void enregistrerTous(Collection<EntreeManifeste> entrees) {
+        if (entrees.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EntreeManifeste.class);
+        for (EntreeManifeste entree : entrees) {
+            bulk.upsert(
+                    Query.query(Criteria.where("chemin").is(entree.getChemin())),
+                    new Update()
+                            .set("taille", entree.getTaille())
+                            .set("dateModification", entree.getDateModification())
+                            .set("cleFichier", entree.getCleFichier())
+            );
+        }
+        bulk.execute();
+    }
+
+    /**
+     * Retire un fichier du manifeste, afin qu'il soit relu à la prochaine passe.
+     *
+     * @param chemin Chemin du fichier local.
+     */
+    public void oublier(Path chemin) {
+        manifesteRepository.deleteById(cle(chemin));
+    }
+
+    /**
+     * Supprime du manifeste les entrées qui n'ont pas été rencontrées lors de la passe.
+     *
+     * @param manifeste  Manifeste chargé au début de la passe.
+     * @param cheminsVus Clés des fichiers rencontrés pendant la passe.
+     */
+    public void purger(Map<String, EntreeManifeste> manifeste, Set<String> cheminsVus) {
+        List<String> obsoletes = manifeste.keySet().stream()
+                .filter(chemin -> !cheminsVus.contains(chemin))
+                .toList();
+        if (!obsoletes.isEmpty()) {
+            manifesteRepository.deleteAllById(obsoletes);
+        }
+    }
+
+    /**
+     * Retourne la clé système du fichier (inode) sous forme de chaîne, si elle est disponible.
+     *
+     * @param attributs Attributs du fichier.
+     * @return La clé du fichier, ou {@code null} si le système de fichiers ne la fournit pas.
+     */
+    private static String cleFichier(BasicFileAttributes attributs) {
+        Object cle = attributs.fileKey();
+        return cle != null ? cle.toString() : null;
+    }
+}
@@ -1,11 +1,14 @@
 package NoobSave._L.garcia.NoobSave.service;
 
 import NoobSave._L.garcia.NoobSave.entities.Parametre;
+import NoobSave._L.garcia.NoobSave.entities.RacineSynchronisation;
 import NoobSave._L.garcia.NoobSave.repository.ParametreRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -20,6 +23,7 @@ import java.util.stream.Collectors;
  *     <li>Mettre à jour les paramètres de sauvegarde automatique.</li>
  *     <li>Gérer les extensions de fichiers autorisées.</li>
  *     <li>Configurer et valider le chemin de sauvegarde des fichiers.</li>
+ *     <li>Gérer les racines de synchronisation supplémentaires.</li>
  * </ul>
  *
  * <b>Note :</b> Les paramètres sont stockés dans une entité unique {@link Parametre}.
@@ -67,6 +71,47 @@ public class ParametreService {
         parametreRepository.save(p);
     }
 
+    /**
+     * Active ou désactive la surveillance en temps réel du répertoire de sauvegarde.
+     *
+     * @param enabled Indique si la surveillance en temps réel doit être activée.
+     */
+    public void updateRealTimeWatchEnabled(boolean enabled) {
+        Parametre p = getParametre();
+        p.setRealTimeWatchEnabled(enabled);
+        parametreRepository.save(p);
+    }
+
+    /**
+     * Active ou désactive l'adaptation de l'intervalle de sauvegarde automatique au rythme des changements.
+     *
+     * @param enabled Indique si l'intervalle adaptatif doit être activé.
+     */
+    public void updateAdaptiveIntervalEnabled(boolean enabled) {
+        Parametre p = getParametre();
+        p.setAdaptiveIntervalEnabled(enabled);
+        parametreRepository.save(p);
+    }
+
+    /**
+     * Met à jour les limites de débit de lecture des passes de synchronisation.
+     *
+     * @param interactive    {@code true} pour les passes interactives, {@code false} pour les passes de fond.
+     * @param bytesPerSecond Octets lus par seconde (0 = illimité).
+     * @param filesPerSecond Fichiers parcourus par seconde (0 = illimité).
+     */
+    public void updateScanThrottle(boolean interactive, long bytesPerSecond, long filesPerSecond) {
+        Parametre p = getParametre();
+        if (interactive) {
+            p.setInteractiveMaxBytesPerSecond(Math.max(0, bytesPerSecond));
+            p.setInteractiveMaxFilesPerSecond(Math.max(0, filesPerSecond));
+        } else {
+            p.setScanMaxBytesPerSecond(Math.max(0, bytesPerSecond));
+            p.setScanMaxFilesPerSecond(Math.max(0, filesPerSecond));
+        }
+        parametreRepository.save(p);
+    }
+
     /**
      * Met à jour l'intervalle de sauvegarde automatique.
      *
@@ -95,6 +140,31 @@ public class ParametreService {
         parametreRepository.save(p);
     }
 
+    /**
+     * Met à jour les règles de filtrage des fichiers, en plus des extensions autorisées.
+     *
+     * @param included Motifs de chemins inclus (glob, ou expression régulière préfixée par {@code regex:}).
+     * @param excluded Motifs de chemins exclus.
+     * @param minSize  Taille minimale en octets (0 = aucune limite).
+     * @param maxSize  Taille maximale en octets (0 = aucune limite).
+     * @param minAgeMs Âge minimal de la dernière modification en millisecondes (0 = aucune limite).
+     * @param maxAgeMs Âge maximal de la dernière modification en millisecondes (0 = aucune limite).
+     * @throws IllegalArgumentException Si un motif est invalide.
+     */
+    public void updateFileFilter(List<String> included, List<String> excluded,
+                                 long minSize, long maxSize, long minAgeMs, long maxAgeMs) {
+        FiltreFichiers.valider(included);
+        FiltreFichiers.valider(excluded);
+        Parametre p = getParametre();
+        p.setIncludedPatterns(included == null ? List.of() : included);
+        p.setExcludedPatterns(excluded == null ? List.of() : excluded);
+        p.setMinFileSize(Math.max(0, minSize));
+        p.setMaxFileSize(Math.max(0, maxSize));
+        p.setMinFileAgeMs(Math.max(0, minAgeMs));
+        p.setMaxFileAgeMs(Math.max(0, maxAgeMs));
+        parametreRepository.save(p);
+    }
+
     /**
      * Retourne la liste des extensions de fichiers autorisées.
      *
@@ -119,7 +189,8 @@ public class ParametreService {
      * <p>Valide que le chemin spécifié est un répertoire existant avant de le sauvegarder en base.</p>
      *
      * @param path Chemin de sauvegarde à définir.
-     * @throws IllegalArgumentException Si le chemin est invalide ou inexistant.
+     * @throws IllegalArgumentException Si le chemin est invalide ou inexistant, ou s'il est égal, parent ou
+     *                                  enfant d'une racine de synchronisation.
      */
     public void updateSavePath(String path) {
         if (path == null || path.trim().isEmpty()) {
@@ -130,12 +201,75 @@ public class ParametreService {
             throw new IllegalArgumentException("Le chemin spécifié n'est pas un répertoire valide : " + path);
         }
         Parametre p = getParametre();
+        Path chemin = normaliser(path);
+        Optional.ofNullable(p.getSyncRoots()).orElse(List.of()).stream()
+                .filter(racine -> chevauchent(chemin, normaliser(racine.getChemin())))
+                .findFirst()
+                .ifPresent(racine -> {
+                    throw new IllegalArgumentException("Le répertoire chevauche la racine de synchronisation "
+                            + racine.getNom() + " : " + racine.getChemin());
+                });
         System.out.println("Chemin reçu pour sauvegarde : " + path); // Journal
         p.setSavePath(path);
         parametreRepository.save(p);
     }
 
 
+    /**
+     * Ajoute une racine de synchronisation, ou remplace la racine de même nom.
+     *
+     * @param racine Racine à enregistrer.
+     * @throws IllegalArgumentException Si le nom est invalide, si le chemin n'est pas un répertoire existant,
+     *                                  s'il est égal, parent ou enfant du chemin de sauvegarde ou d'une autre
+     *                                  racine, ou si un motif est invalide.
+     */
+    public void updateSyncRoot(RacineSynchronisation racine) {
+        if (racine.getNom() == null || !racine.getNom().matches("[A-Za-z0-9._-]+")) {
+            throw new IllegalArgumentException("Nom de racine invalide : " + racine.getNom());
+        }
+        if (racine.getChemin() == null || !new File(racine.getChemin()).isDirectory()) {
+            throw new IllegalArgumentException("Le chemin spécifié n'est pas un répertoire valide : " + racine.getChemin());
+        }
+        FiltreFichiers.valider(racine.getMotifsInclus());
+        FiltreFichiers.valider(racine.getMotifsExclus());
+        Parametre p = getParametre();
+        List<RacineSynchronisation> racines = new ArrayList<>(Optional.ofNullable(p.getSyncRoots()).orElse(List.of()));
+        racines.removeIf(existante -> existante.getNom().equals(racine.getNom()));
+        Path chemin = normaliser(racine.getChemin());
+        // Un même fichier ne doit relever que d'une racine : ni égalité ni imbrication, dans un sens ou dans l'autre
+        if (p.getSavePath() != null && chevauchent(chemin, normaliser(p.getSavePath()))) {
+            throw new IllegalArgumentException("Le répertoire chevauche le chemin de sauvegarde : " + p.getSavePath());
+        }
+        racines.stream()
+                .filter(existante -> chevauchent(chemin, normaliser(existante.getChemin())))
+                .findFirst()
+                .ifPresent(existante -> {
+                    throw new IllegalArgumentException("Le répertoire chevauche la racine de synchronisation "
+                            + existante.getNom() + " : " + existante.getChemin());
+                });
+        racine.setChemin(chemin.toString());
+        racines.add(racine);
+        p.setSyncRoots(racines);
+        parametreRepository.save(p);
+    }
+
+    /**
+     * Supprime une racine de synchronisation. Les fichiers déjà sauvegardés depuis cette racine sont conservés.
+     *
+     * @param nom Nom de la racine.
+     * @return {@code true} si la racine existait.
+     */
+    public boolean deleteSyncRoot(String nom) {
+        Parametre p = getParametre();
+        List<RacineSynchronisation> racines = new ArrayList<>(Optional.ofNullable(p.getSyncRoots()).orElse(List.of()));
+        boolean supprimee = racines.removeIf(racine -> racine.getNom().equals(nom));
+        if (supprimee) {
+            p.setSyncRoots(racines);
+            parametreRepository.save(p);
+        }
+        return supprimee;
+    }
+
     /**
      * Réinitialise le chemin de sauvegarde à une valeur nulle.
      *
@@ -147,6 +281,17 @@ public class ParametreService {
         parametreRepository.save(p); // Sauvegarde les modifications
     }
 
+    /**
+     * Chemin absolu et normalisé, pour comparer des répertoires saisis sous des formes différentes.
+     */
+    private static Path normaliser(String chemin) {
+        return new File(chemin).toPath().toAbsolutePath().normalize();
+    }
 
-
+    /**
+     * Indique si deux répertoires sont égaux ou imbriqués l'un dans l'autre.
+     */
+    private static boolean chevauchent(Path a, Path b) {
+        return a.startsWith(b) || b.startsWith(a);
+    }
 }
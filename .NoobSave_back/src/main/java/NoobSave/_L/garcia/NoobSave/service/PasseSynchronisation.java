@@ -0,0 +1,217 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.dto.MetadonneesFichier;
+import NoobSave._L.garcia.NoobSave.entities.EntreeManifeste;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * État partagé d'une passe de synchronisation parallèle.
+ *
+ * <p>Une passe répartit le parcours des répertoires et l'ingestion des fichiers modifiés sur des threads
+ * virtuels. Le nombre d'opérations d'entrée/sortie simultanées (lecture d'un répertoire, ingestion d'un
+ * fichier) est borné par un sémaphore dont la taille correspond au parallélisme configuré.</p>
+ *
+ * <p>Une passe mémorise aussi son avancement pour les points de reprise ({@link PointRepriseService}) :
+ * répertoires repris d'une passe interrompue, répertoires terminés dont les écritures sont confirmées,
+ * et répertoires terminés en attente de confirmation.</p>
+ *
+ * <p>Une passe doit être fermée à la fin du parcours afin de libérer son exécuteur.</p>
+ */
+@Getter
+class PasseSynchronisation implements AutoCloseable {
+
+    /**
+     * Nom de la racine de synchronisation de la passe, ou {@code null} pour le répertoire de sauvegarde principal.
+     */
+    private final String nomRacine;
+
+    /**
+     * Manifeste chargé au début de la passe.
+     */
+    private final Map<String, EntreeManifeste> manifeste;
+
+    /**
+     * Métadonnées des fichiers enregistrés, chargées au début de la passe et indexées par chemin relatif.
+     */
+    private final Map<String, MetadonneesFichier> metadonnees;
+
+    /**
+     * Répertoire racine de la passe, base des chemins relatifs.
+     */
+    private final Path racine;
+
+    /**
+     * Tâche associée à la passe, qui reçoit sa progression et peut en demander l'annulation.
+     */
+    private final TacheSynchronisation tache;
+
+    /**
+     * Limiteur du débit de lecture de la passe.
+     */
+    private final LimiteurDebit limiteur;
+
+    /**
+     * Filtre des fichiers à sauvegarder, compilé au début de la passe.
+     */
+    private final FiltreFichiers filtre;
+
+    /**
+     * Lot regroupant les écritures de la passe.
+     */
+    private final LotEcritureFichiers lot;
+
+    /**
+     * Clés des fichiers rencontrés pendant la passe.
+     */
+    private final Set<String> cheminsVus = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Exécuteur créant un thread virtuel par tâche.
+     */
+    private final ExecutorService executeur = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Permis limitant le nombre d'opérations d'entrée/sortie simultanées.
+     */
+    private final Semaphore permis;
+
+    /**
+     * Date de début de la passe.
+     */
+    private final LocalDateTime dateDebut = LocalDateTime.now();
+
+    /**
+     * Répertoires entièrement traités par une passe interrompue, ignorés par cette passe.
+     */
+    private final Set<String> repertoiresRepris;
+
+    /**
+     * Répertoires entièrement traités dont les fichiers ont été écrits en base.
+     */
+    private final Set<String> repertoiresTermines = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Répertoires entièrement parcourus dont les écritures n'ont pas encore été confirmées.
+     */
+    private final Set<String> repertoiresAValider = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Instant du dernier enregistrement du point de reprise.
+     */
+    private final AtomicLong dernierPointReprise = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Indique qu'un enregistrement du point de reprise est en cours.
+     */
+    private final AtomicBoolean pointRepriseEnCours = new AtomicBoolean();
+
+    /**
+     * Crée une passe de synchronisation.
+     *
+     * @param nomRacine    Nom de la racine de synchronisation, ou {@code null} pour le répertoire principal.
+     * @param manifeste    Manifeste chargé au début de la passe.
+     * @param metadonnees  Métadonnées des fichiers enregistrés, indexées par chemin relatif.
+     * @param racine       Répertoire racine de la passe.
+     * @param repris       Répertoires entièrement traités par une passe interrompue.
+     * @param tache        Tâche associée à la passe.
+     * @param limiteur     Limiteur du débit de lecture de la passe.
+     * @param filtre       Filtre des fichiers à sauvegarder.
+     * @param lot          Lot regroupant les écritures de la passe.
+     * @param parallelisme Nombre maximal d'opérations d'entrée/sortie simultanées.
+     */
+    PasseSynchronisation(String nomRacine, Map<String, EntreeManifeste> manifeste, Map<String, MetadonneesFichier> metadonnees,
+                         Path racine, Set<String> repris, TacheSynchronisation tache, LimiteurDebit limiteur,
+                         FiltreFichiers filtre, LotEcritureFichiers lot, int parallelisme) {
+        this.nomRacine = nomRacine;
+        this.manifeste = manifeste;
+        this.metadonnees = metadonnees;
+        this.racine = racine;
+        this.repertoiresRepris = repris;
+        this.tache = tache;
+        this.limiteur = limiteur;
+        this.filtre = filtre;
+        this.repertoiresTermines.addAll(repris);
+        this.lot = lot;
+        this.permis = new Semaphore(Math.max(1, parallelisme));
+    }
+
+    /**
+     * Soumet une tâche à exécuter sur un thread virtuel.
+     *
+     * @param tache Tâche retournant un nombre de fichiers traités.
+     * @return Le résultat futur de la tâche.
+     */
+    Future<Integer> soumettre(Callable<Integer> tache) {
+        return executeur.submit(tache);
+    }
+
+    /**
+     * Attend la fin d'une tâche et retourne son résultat.
+     *
+     * @param tache Tâche soumise par {@link #soumettre(Callable)}.
+     * @return Le nombre de fichiers traités par la tâche, ou 0 si elle a échoué.
+     */
+    int attendre(Future<Integer> tache) {
+        try {
+            return tache.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.out.println("Erreur lors de la synchronisation : " + e.getCause().getMessage());
+        }
+        return 0;
+    }
+
+    /**
+     * Acquiert un permis d'entrée/sortie, en attendant si le parallélisme maximal est atteint.
+     *
+     * @throws InterruptedException Si le thread est interrompu pendant l'attente.
+     */
+    void acquerir() throws InterruptedException {
+        permis.acquire();
+    }
+
+    /**
+     * Libère un permis d'entrée/sortie.
+     */
+    void liberer() {
+        permis.release();
+    }
+
+    /**
+     * Réserve l'enregistrement du point de reprise si l'intervalle est écoulé et qu'aucun autre
+     * enregistrement n'est en cours. Une réservation obtenue doit être suivie de
+     * {@link #terminerPointReprise()}.
+     *
+     * @param intervalleMs Intervalle minimal entre deux enregistrements, en millisecondes.
+     * @return {@code true} si l'appelant doit enregistrer le point de reprise.
+     */
+    boolean reserverPointReprise(long intervalleMs) {
+        return System.currentTimeMillis() - dernierPointReprise.get() >= intervalleMs
+                && pointRepriseEnCours.compareAndSet(false, true);
+    }
+
+    /**
+     * Libère la réservation obtenue par {@link #reserverPointReprise(long)}.
+     */
+    void terminerPointReprise() {
+        dernierPointReprise.set(System.currentTimeMillis());
+        pointRepriseEnCours.set(false);
+    }
+
+    /**
+     * Attend la fin des tâches en cours puis libère l'exécuteur.
+     */
+    @Override
+    public void close() {
+        executeur.close();
+    }
+}
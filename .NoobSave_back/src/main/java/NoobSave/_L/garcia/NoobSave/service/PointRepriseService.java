@@ -0,0 +1,137 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.PointReprise;
+import NoobSave._L.garcia.NoobSave.repository.PointRepriseRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Service des points de reprise des passes de synchronisation.
+ *
+ * <p>Pendant une passe, les répertoires entièrement traités sont enregistrés périodiquement (toutes les
+ * {@code noobsave.sync.reprise.intervalle-ms} millisecondes) dans la collection {@code sync_checkpoints},
+ * après l'écriture effective de leurs fichiers. Si l'application s'arrête avant la fin de la passe, la
+ * passe suivante sur la même racine ne parcourt pas à nouveau ces répertoires. Le point de reprise est
+ * supprimé à la fin de la passe ; un point plus ancien que {@code noobsave.sync.reprise.validite-heures}
+ * est ignoré.</p>
+ *
+ * @author torres léo
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class PointRepriseService {
+
+    /**
+     * Référentiel des points de reprise.
+     */
+    private final PointRepriseRepository pointRepriseRepository;
+
+    /**
+     * Intervalle minimal (en millisecondes) entre deux enregistrements du point de reprise d'une passe.
+     */
+    @Value("${noobsave.sync.reprise.intervalle-ms:30000}")
+    private long intervalleMs;
+
+    /**
+     * Durée de validité (en heures) d'un point de reprise.
+     */
+    @Value("${noobsave.sync.reprise.validite-heures:24}")
+    private long validiteHeures;
+
+    /**
+     * @return L'intervalle minimal (en millisecondes) entre deux enregistrements du point de reprise.
+     */
+    public long getIntervalleMs() {
+        return intervalleMs;
+    }
+
+    /**
+     * Charge le point de reprise d'une racine, s'il existe et n'a pas expiré.
+     *
+     * @param racine Répertoire racine de la passe, absolu et normalisé.
+     * @return Les répertoires déjà traités, relatifs à la racine, ou un ensemble vide.
+     */
+    public Set<String> charger(Path racine) {
+        Optional<PointReprise> point = pointRepriseRepository.findById(racine.toString());
+        if (point.isEmpty()) {
+            return Set.of();
+        }
+        LocalDateTime miseAJour = point.get().getDateMiseAJour();
+        if (miseAJour == null || miseAJour.isBefore(LocalDateTime.now().minusHours(validiteHeures))) {
+            System.out.println("Point de reprise expiré ignoré pour : " + racine);
+            pointRepriseRepository.deleteById(racine.toString());
+            return Set.of();
+        }
+        List<String> termines = point.get().getRepertoiresTermines();
+        System.out.println("Reprise de la synchronisation de " + racine + " (début : " + point.get().getDateDebut()
+                + ", " + (termines != null ? termines.size() : 0) + " répertoire(s) déjà traité(s))");
+        return termines != null ? Set.copyOf(termines) : Set.of();
+    }
+
+    /**
+     * Enregistre le point de reprise d'une passe. Une erreur d'écriture n'interrompt pas la passe.
+     *
+     * @param racine    Répertoire racine de la passe, absolu et normalisé.
+     * @param dateDebut Date de début de la passe.
+     * @param termines  Répertoires entièrement traités, relatifs à la racine.
+     */
+    public void enregistrer(Path racine, LocalDateTime dateDebut, Collection<String> termines) {
+        Set<String> ensemble = new HashSet<>(termines);
+        List<String> compacte = ensemble.stream()
+                .filter(repertoire -> !repertoire.isEmpty() && !estTermine(parent(repertoire), ensemble))
+                .sorted()
+                .toList();
+        try {
+            pointRepriseRepository.save(new PointReprise(racine.toString(), dateDebut, LocalDateTime.now(),
+                    ensemble.contains("") ? List.of("") : compacte));
+        } catch (DataAccessException e) {
+            System.out.println("Erreur lors de l'enregistrement du point de reprise : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Supprime le point de reprise d'une racine, à la fin d'une passe complète.
+     *
+     * @param racine Répertoire racine de la passe, absolu et normalisé.
+     */
+    public void supprimer(Path racine) {
+        pointRepriseRepository.deleteById(racine.toString());
+    }
+
+    /**
+     * Indique si un répertoire, ou l'un de ses parents, figure parmi les répertoires traités.
+     *
+     * @param repertoire Chemin relatif du répertoire ({@code ""} pour la racine), ou {@code null}.
+     * @param termines   Répertoires entièrement traités.
+     * @return {@code true} si le répertoire a déjà été entièrement traité.
+     */
+    public static boolean estTermine(String repertoire, Set<String> termines) {
+        for (String courant = repertoire; courant != null; courant = parent(courant)) {
+            if (termines.contains(courant)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Retourne le chemin relatif du répertoire parent.
+     *
+     * @param repertoire Chemin relatif d'un répertoire.
+     * @return Le chemin relatif du parent ({@code ""} pour la racine), ou {@code null} pour la racine elle-même.
+     */
+    private static String parent(String repertoire) {
+        if (repertoire.isEmpty()) {
+            return null;
+        }
+        int separateur = repertoire.lastIndexOf('/');
+        return separateur < 0 ? "" : repertoire.substring(0, separateur);
+    }
+}
@@ -0,0 +1,160 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Règles des fichiers {@code .noobsaveignore} applicables à un répertoire de la sauvegarde.
+ *
+ * <p>Un fichier {@code .noobsaveignore} peut être placé à n'importe quel niveau du répertoire de sauvegarde ;
+ * ses règles, en syntaxe {@code .gitignore}, s'appliquent au contenu du répertoire qui le contient :</p>
+ * <ul>
+ *     <li>les lignes vides et les commentaires ({@code #}) sont ignorés ;</li>
+ *     <li>un motif préfixé par {@code !} réintègre un chemin exclu par une règle précédente ;</li>
+ *     <li>un motif terminé par {@code /} ne désigne que des répertoires ;</li>
+ *     <li>un motif contenant un {@code /} est ancré au répertoire du fichier, sinon il est comparé au nom
+ *     de l'entrée à n'importe quelle profondeur ;</li>
+ *     <li>{@code *}, {@code ?} et {@code **} ont la même signification que dans un glob.</li>
+ * </ul>
+ *
+ * <p>Les règles forment une chaîne du répertoire de sauvegarde vers le répertoire courant ; la dernière
+ * règle correspondante l'emporte, les fichiers les plus profonds ayant priorité. Comme dans git, une entrée
+ * d'un répertoire exclu ne peut pas être réintégrée, puisque le répertoire n'est pas parcouru.</p>
+ *
+ * <p>L'évaluation travaille sur la représentation textuelle du chemin, sans allocation.</p>
+ */
+final class ReglesIgnorees {
+
+    /**
+     * Nom des fichiers de règles.
+     */
+    static final String NOM_FICHIER = ".noobsaveignore";
+
+    /**
+     * Chaîne vide, sans aucune règle.
+     */
+    static final ReglesIgnorees AUCUNE = new ReglesIgnorees(null, -1, new Regle[0]);
+
+    /**
+     * Règle d'un fichier {@code .noobsaveignore}.
+     *
+     * @param motif          Glob, sans préfixe {@code !} ni {@code /} initial ou final.
+     * @param negation       {@code true} si la règle réintègre les chemins correspondants.
+     * @param repertoireSeul {@code true} si la règle ne désigne que des répertoires.
+     * @param ancre          {@code true} si le motif est comparé au chemin relatif au fichier de règles, et
+     *                       non au seul nom de l'entrée.
+     */
+    private record Regle(String motif, boolean negation, boolean repertoireSeul, boolean ancre) {
+
+        /**
+         * Analyse une ligne d'un fichier {@code .noobsaveignore}.
+         *
+         * @param ligne Ligne du fichier.
+         * @return La règle, ou {@code null} pour une ligne vide ou un commentaire.
+         */
+        static Regle analyser(String ligne) {
+            String motif = ligne.stripTrailing();
+            if (motif.isEmpty() || motif.startsWith("#")) {
+                return null;
+            }
+            boolean negation = motif.startsWith("!");
+            if (negation || motif.startsWith("\\#") || motif.startsWith("\\!")) {
+                motif = motif.substring(1);
+            }
+            boolean repertoireSeul = motif.endsWith("/");
+            if (repertoireSeul) {
+                motif = motif.substring(0, motif.length() - 1);
+            }
+            boolean ancre = motif.indexOf('/') >= 0;
+            if (motif.startsWith("/")) {
+                motif = motif.substring(1);
+            }
+            return motif.isEmpty() ? null : new Regle(motif, negation, repertoireSeul, ancre);
+        }
+
+        boolean correspond(String chemin, int debut, int debutNom) {
+            return FiltreFichiers.glob(motif, 0, chemin, ancre ? debut : debutNom);
+        }
+    }
+
+    private final ReglesIgnorees parent;
+
+    /**
+     * Longueur du chemin relatif du répertoire contenant le fichier de règles ({@code -1} pour la chaîne
+     * vide, 0 pour le répertoire de sauvegarde).
+     */
+    private final int longueurBase;
+
+    private final Regle[] regles;
+
+    private ReglesIgnorees(ReglesIgnorees parent, int longueurBase, Regle[] regles) {
+        this.parent = parent;
+        this.longueurBase = longueurBase;
+        this.regles = regles;
+    }
+
+    /**
+     * Retourne les règles applicables au contenu d'un répertoire, en ajoutant à cette chaîne celles de son
+     * fichier {@code .noobsaveignore} s'il en a un.
+     *
+     * @param repertoire        Répertoire parcouru.
+     * @param repertoireRelatif Chemin relatif du répertoire dans la sauvegarde ({@code ""} pour la racine).
+     * @return Les règles applicables au contenu du répertoire.
+     */
+    ReglesIgnorees pour(Path repertoire, String repertoireRelatif) {
+        Path fichier = repertoire.resolve(NOM_FICHIER);
+        if (!Files.isRegularFile(fichier)) {
+            return this;
+        }
+        List<Regle> lues = new ArrayList<>();
+        try {
+            for (String ligne : Files.readAllLines(fichier, StandardCharsets.UTF_8)) {
+                Regle regle = Regle.analyser(ligne);
+                if (regle != null) {
+                    lues.add(regle);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Erreur lors de la lecture de " + fichier + " : " + e.getMessage());
+            return this;
+        }
+        return lues.isEmpty() ? this : new ReglesIgnorees(this, repertoireRelatif.length(), lues.toArray(Regle[]::new));
+    }
+
+    /**
+     * Indique si une entrée est ignorée.
+     *
+     * @param chemin     Chemin de l'entrée.
+     * @param racine     Répertoire de sauvegarde, base des chemins relatifs.
+     * @param repertoire {@code true} si l'entrée est un répertoire.
+     * @return {@code true} si la dernière règle correspondante exclut l'entrée.
+     */
+    boolean ignore(Path chemin, Path racine, boolean repertoire) {
+        if (parent == null) {
+            return false;
+        }
+        String texte = chemin.toString();
+        return evaluer(texte, FiltreFichiers.debutRelatif(texte, racine.toString()), FiltreFichiers.debutNom(texte),
+                repertoire) > 0;
+    }
+
+    /**
+     * Évalue la chaîne de la racine vers ce niveau.
+     *
+     * @return 1 si l'entrée est exclue, -1 si elle est réintégrée, 0 si aucune règle ne correspond.
+     */
+    private int evaluer(String chemin, int debutRelatif, int debutNom, boolean repertoire) {
+        int resultat = parent == null ? 0 : parent.evaluer(chemin, debutRelatif, debutNom, repertoire);
+        int debut = debutRelatif + (longueurBase > 0 ? longueurBase + 1 : 0);
+        for (Regle regle : regles) {
+            if ((!regle.repertoireSeul() || repertoire) && regle.correspond(chemin, debut, debutNom)) {
+                resultat = regle.negation() ? -1 : 1;
+            }
+        }
+        return resultat;
+    }
+}
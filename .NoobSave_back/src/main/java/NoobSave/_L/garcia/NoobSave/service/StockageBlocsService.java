@@ -0,0 +1,785 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.Bloc;
+import NoobSave._L.garcia.NoobSave.entities.Fichier;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteUpsert;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service de stockage du contenu des fichiers sous forme de blocs dédupliqués.
+ *
+ * <p>Le contenu est découpé en blocs définis par leur contenu ({@link DecoupeurFastCdc}) ; chaque bloc est
+ * identifié par l'empreinte SHA-256 de ses octets et stocké une seule fois dans la collection {@code blocs},
+ * avec un compteur de références. Un fichier enregistré ne conserve que la liste ordonnée de ses blocs :
+ * lorsqu'un fichier est modifié, seuls les blocs qui n'existent pas encore sont transférés. Les octets des
+ * blocs sont compressés selon la politique de {@link CompressionService}.</p>
+ *
+ * <p>Les métadonnées des blocs (taille, compression, références) sont conservées dans la collection
+ * {@code blocs} ; leurs octets sont confiés au {@link StockageContenu} désigné par
+ * {@code noobsave.stockage.contenu} : la base elle-même ({@code mongo}, par défaut), un répertoire local
+ * adressé par contenu ({@code local}) ou des fichiers pack regroupant les blocs ({@code pack}). Les blocs écrits avant le choix d'un autre stockage restent lisibles
+ * depuis la base. L'écriture des blocs et la suppression des blocs libérés sont mutuellement exclusives :
+ * un bloc en cours de réutilisation ne perd jamais ses octets.</p>
+ *
+ * <p>Chaque bloc mémorise la date de son dernier accès (référence par un fichier ingéré, ou lecture). Si
+ * {@code noobsave.stockage.froid.active} est activé, une tâche de fond déplace les blocs auxquels personne
+ * n'a accédé depuis {@code noobsave.stockage.froid.delai-jours} jours (contenu de fichiers jamais relus,
+ * anciennes versions) vers un niveau de stockage froid : un second répertoire adressé par contenu, où les
+ * blocs stockés bruts sont compressés. Les blocs des fichiers téléchargés récemment
+ * ({@code noobsave.stockage.froid.telechargement-jours}) ou souvent ({@code noobsave.stockage.froid.telechargements-min})
+ * restent dans le stockage principal. Un bloc froid est lu de manière transparente, puis remonté dans le
+ * stockage principal.</p>
+ *
+ * <p>Les identifiants de blocs utilisent toujours SHA-256, indépendamment de
+ * {@code noobsave.empreinte.algorithme} : deux blocs différents ne doivent jamais partager un identifiant.</p>
+ *
+ * @author torres léo
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class StockageBlocsService {
+
+    /**
+     * Nombre de blocs chargés par requête lors de la lecture d'un contenu.
+     */
+    private static final int BLOCS_PAR_LECTURE = 16;
+
+    /**
+     * Nombre de blocs déplacés vers le niveau froid par opération.
+     */
+    private static final int BLOCS_PAR_REFROIDISSEMENT = 256;
+
+    /**
+     * Ancienneté au-delà de laquelle la lecture d'un bloc met à jour sa date de dernier accès.
+     */
+    private static final Duration PRECISION_ACCES = Duration.ofHours(1);
+
+    /**
+     * Accès bas niveau à MongoDB, pour les écritures groupées.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Compression et décompression des octets des blocs.
+     */
+    private final CompressionService compressionService;
+
+    /**
+     * Stockages de contenu disponibles.
+     */
+    private final List<StockageContenu> stockages;
+
+    /**
+     * Nom du stockage de contenu, injecté via la clé {@code noobsave.stockage.contenu}.
+     */
+    @Value("${noobsave.stockage.contenu:mongo}")
+    private String nomStockage;
+
+    /**
+     * Stockage de contenu utilisé.
+     */
+    private StockageContenu stockage;
+
+    /**
+     * Déplacement des blocs inutilisés vers le niveau froid, injecté via la clé {@code noobsave.stockage.froid.active}.
+     */
+    @Value("${noobsave.stockage.froid.active:false}")
+    private boolean froidActif;
+
+    /**
+     * Répertoire du niveau froid, injecté via la clé {@code noobsave.stockage.froid.repertoire}.
+     */
+    @Value("${noobsave.stockage.froid.repertoire:./../stockage-froid}")
+    private String repertoireFroid;
+
+    /**
+     * Nombre de jours sans accès après lequel un bloc est déplacé vers le niveau froid, injecté via la clé
+     * {@code noobsave.stockage.froid.delai-jours}.
+     */
+    @Value("${noobsave.stockage.froid.delai-jours:30}")
+    private int delaiFroidJours;
+
+    /**
+     * Nombre de jours suivant le dernier téléchargement d'un fichier pendant lesquels ses blocs restent dans le
+     * stockage principal, injecté via la clé {@code noobsave.stockage.froid.telechargement-jours}.
+     */
+    @Value("${noobsave.stockage.froid.telechargement-jours:90}")
+    private int delaiTelechargementJours;
+
+    /**
+     * Nombre de téléchargements à partir duquel les blocs d'un fichier restent dans le stockage principal
+     * (0 pour désactiver), injecté via la clé {@code noobsave.stockage.froid.telechargements-min}.
+     */
+    @Value("${noobsave.stockage.froid.telechargements-min:5}")
+    private long telechargementsMin;
+
+    /**
+     * Algorithme de compression des blocs bruts déplacés vers le niveau froid, injecté via la clé
+     * {@code noobsave.stockage.froid.compression}.
+     */
+    @Value("${noobsave.stockage.froid.compression:zstd}")
+    private String compressionFroid;
+
+    /**
+     * Niveau de stockage froid. Toujours disponible en lecture, même si le déplacement est désactivé.
+     */
+    private StockageContenu froid;
+
+    /**
+     * Création de l'index des blocs par date de dernier accès.
+     */
+    private final IndexService indexService;
+
+    /**
+     * Verrou partagé par les écritures de blocs, exclusif pour la suppression des blocs libérés.
+     */
+    private final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+
+    /**
+     * Taille moyenne visée des blocs, en octets.
+     */
+    @Value("${noobsave.stockage.deduplication.taille-moyenne-octets:65536}")
+    private int tailleMoyenne;
+
+    /**
+     * Découpeur initialisé à partir de la taille moyenne configurée.
+     */
+    private DecoupeurFastCdc decoupeur;
+
+    /**
+     * Nombre maximal de blocs d'un fichier. La liste des identifiants est enregistrée dans le document du
+     * fichier et dans l'instantané de ses versions : elle doit rester loin de la limite de 16 Mo d'un document
+     * MongoDB (environ 77 octets par identifiant).
+     */
+    @Value("${noobsave.stockage.deduplication.blocs-max:131072}")
+    private int blocsMax;
+
+    /**
+     * Bloc découpé en attente d'écriture.
+     *
+     * @param donnees     Octets du bloc, compressés si {@code compression} est renseigné.
+     * @param compression Algorithme de compression des octets, ou {@code null}.
+     * @param taille      Taille du bloc avant compression.
+     * @param occurrences Nombre de références à ajouter au bloc.
+     */
+    record BlocEnAttente(byte[] donnees, String compression, int taille, int occurrences) {
+
+        StockageContenu.Contenu contenu() {
+            return new StockageContenu.Contenu(donnees, compression);
+        }
+    }
+
+    /**
+     * Résultat du découpage d'un fichier.
+     *
+     * @param blocs         Identifiants ordonnés des blocs du fichier.
+     * @param taille        Nombre total d'octets découpés.
+     * @param tailleStockee Nombre total d'octets après compression des blocs.
+     */
+    public record Decoupage(List<String> blocs, long taille, long tailleStockee) {
+    }
+
+    /**
+     * Initialise le découpeur avec la taille moyenne configurée, sélectionne le stockage de contenu et crée le
+     * niveau froid.
+     *
+     * @throws IllegalStateException Si aucun stockage ne porte le nom configuré.
+     */
+    @PostConstruct
+    void initialiser() {
+        decoupeur = new DecoupeurFastCdc(tailleMoyenne);
+        stockage = stockages.stream()
+                .filter(candidat -> candidat.nom().equalsIgnoreCase(nomStockage))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Stockage de contenu non supporté : " + nomStockage));
+        froid = new StockageContenuLocal(repertoireFroid, true);
+    }
+
+    /**
+     * Indique si le contenu est stocké hors de la base, auquel cas tout contenu doit être découpé en blocs
+     * pour ne laisser en base que des métadonnées.
+     *
+     * @return {@code true} si le stockage de contenu n'est pas la base MongoDB.
+     */
+    public boolean contenuHorsBase() {
+        return !stockage.enBase();
+    }
+
+    /**
+     * Indique si un fichier peut être découpé avec la taille de bloc configurée sans dépasser le nombre
+     * maximal de blocs. Le nombre de blocs est majoré à partir de la taille minimale d'un bloc.
+     *
+     * @param taille Taille du fichier, en octets.
+     * @return {@code true} si le découpage produit au plus {@code blocsMax} blocs.
+     */
+    public boolean decoupable(long taille) {
+        return taille / decoupeur.getTailleMin() < blocsMax;
+    }
+
+    /**
+     * Retourne le découpeur adapté à la taille d'un fichier : le découpeur configuré si le fichier est
+     * {@link #decoupable(long) découpable}, sinon un découpeur de taille moyenne suffisante pour respecter le
+     * nombre maximal de blocs. Les blocs de ce dernier ne se dédupliquent qu'avec ceux de fichiers de taille
+     * comparable.
+     */
+    private DecoupeurFastCdc decoupeur(long taille) {
+        if (decoupable(taille)) {
+            return decoupeur;
+        }
+        long tailleMin = taille / blocsMax + 1;
+        long moyenne = Long.highestOneBit(tailleMin * 4 - 1) << 1;
+        return new DecoupeurFastCdc((int) Math.min(moyenne, 1 << 26));
+    }
+
+    /**
+     * Découpe un fichier local en blocs, en calculant son empreinte au passage.
+     *
+     * <p>Chaque bloc est identifié par l'empreinte de ses octets bruts, compressé s'il y a lieu, puis
+     * transmis à la destination fournie (typiquement un lot d'écriture). La mémoire utilisée est bornée par
+     * la taille maximale d'un bloc. Les fichiers qui ne sont pas {@link #decoupable(long) découpables} avec
+     * la taille configurée le sont avec des blocs plus grands.</p>
+     *
+     * @param chemin       Chemin du fichier local.
+     * @param accumulateur Accumulateur d'empreinte alimenté par les octets lus.
+     * @param codec        Algorithme de compression des blocs, ou {@code null} pour les stocker bruts.
+     * @param destination  Destinataire des blocs (identifiant, bloc à écrire).
+     * @return Les identifiants ordonnés des blocs, la taille découpée et la taille après compression.
+     * @throws IOException Si une erreur survient lors de la lecture du fichier.
+     */
+    Decoupage decouper(Path chemin, CalculateurEmpreinte.Accumulateur accumulateur, CodecCompression codec,
+                       BiConsumer<String, BlocEnAttente> destination) throws IOException {
+        MessageDigest sha256 = nouveauSha256();
+        List<String> blocs = new ArrayList<>();
+        long[] taille = {0, 0};
+        try (FileChannel canal = FileChannel.open(chemin, StandardOpenOption.READ);
+             InputStream flux = CalculateurEmpreinte.fluxAvecEmpreinte(Channels.newInputStream(canal), accumulateur)) {
+            decoupeur(canal.size()).decouper(flux, (tampon, debut, longueur) -> {
+                byte[] donnees = Arrays.copyOfRange(tampon, debut, debut + longueur);
+                String id = HexFormat.of().formatHex(sha256.digest(donnees));
+                byte[] compresse = codec != null ? compressionService.compresserSiRentable(codec, donnees) : null;
+                BlocEnAttente bloc = compresse != null
+                        ? new BlocEnAttente(compresse, codec.nom(), longueur, 1)
+                        : new BlocEnAttente(donnees, null, longueur, 1);
+                destination.accept(id, bloc);
+                blocs.add(id);
+                taille[0] += longueur;
+                taille[1] += bloc.donnees().length;
+            });
+        }
+        return new Decoupage(blocs, taille[0], taille[1]);
+    }
+
+    /**
+     * Écrit un ensemble de blocs et incrémente leurs compteurs de références.
+     *
+     * <p>Les blocs déjà présents en base sont détectés par une requête ne portant que sur leurs
+     * identifiants : seuls leurs compteurs sont incrémentés, leurs octets ne sont pas retransférés. Les
+     * octets des autres sont d'abord écrits dans le stockage de contenu (ou, s'il s'agit de la base, dans la
+     * même opération que leurs métadonnées), puis leurs métadonnées sont insérées par upsert. Si un bloc supposé présent a été supprimé entre-temps, l'upsert crée un document
+     * sans octets : ceux-ci sont alors réécrits.</p>
+     *
+     * @param blocs Blocs à écrire, indexés par identifiant.
+     * @return Les identifiants des blocs dont l'écriture a échoué.
+     */
+    Set<String> ecrire(Map<String, BlocEnAttente> blocs) {
+        Set<String> echecs = new HashSet<>();
+        if (blocs.isEmpty()) {
+            return echecs;
+        }
+        List<String> ids = new ArrayList<>(blocs.keySet());
+        verrou.readLock().lock();
+        try {
+            Set<String> existants = existants(ids);
+            if (!stockage.enBase()) {
+                Map<String, StockageContenu.Contenu> nouveaux = new HashMap<>();
+                ids.stream().filter(id -> !existants.contains(id)).forEach(id -> nouveaux.put(id, blocs.get(id).contenu()));
+                stockage.ecrire(nouveaux);
+            }
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Bloc.class);
+            LocalDateTime maintenant = LocalDateTime.now();
+            for (String id : ids) {
+                BlocEnAttente bloc = blocs.get(id);
+                Update update = new Update().inc("references", bloc.occurrences()).set("dernierAcces", maintenant);
+                if (!existants.contains(id)) {
+                    update.set("taille", bloc.taille());
+                    if (stockage.enBase()) {
+                        // Octets et compression écrits ensemble, dans la même opération que les métadonnées
+                        update.set("donnees", bloc.donnees()).set("compression", bloc.compression());
+                    }
+                }
+                bulk.upsert(requeteParId(id), update);
+            }
+
+            List<BulkWriteUpsert> insertions;
+            try {
+                insertions = bulk.execute().getUpserts();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError erreur : e.getErrors()) {
+                    echecs.add(ids.get(erreur.getIndex()));
+                    System.out.println("Erreur d'écriture pour le bloc : " + ids.get(erreur.getIndex())
+                            + " - " + erreur.getMessage());
+                }
+                insertions = e.getResult().getUpserts();
+            }
+
+            for (BulkWriteUpsert insertion : insertions) {
+                String id = ids.get(insertion.getIndex());
+                if (existants.contains(id)) {
+                    // Bloc supprimé entre la vérification et l'incrément : ses octets sont réécrits
+                    BlocEnAttente bloc = blocs.get(id);
+                    stockage.ecrire(Map.of(id, bloc.contenu()));
+                    mongoTemplate.updateFirst(requeteParId(id), new Update().set("taille", bloc.taille()), Bloc.class);
+                }
+            }
+        } catch (DataAccessException | IOException e) {
+            System.out.println("Erreur lors de l'écriture d'un lot de " + ids.size() + " bloc(s) : " + e.getMessage());
+            echecs.addAll(ids);
+        } finally {
+            verrou.readLock().unlock();
+        }
+        return echecs;
+    }
+
+    /**
+     * Décrémente les compteurs de références d'une liste de blocs, puis supprime les blocs qui ne sont
+     * plus référencés.
+     *
+     * @param blocs Identifiants des blocs libérés (un identifiant répété est décrémenté autant de fois).
+     */
+    public void liberer(Collection<String> blocs) {
+        if (blocs == null || blocs.isEmpty()) {
+            return;
+        }
+        Map<String, Long> occurrences = blocs.stream()
+                .collect(Collectors.groupingBy(id -> id, Collectors.counting()));
+        verrou.writeLock().lock();
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Bloc.class);
+            occurrences.forEach((id, n) -> bulk.updateOne(requeteParId(id), new Update().inc("references", -n)));
+            bulk.execute();
+            Query libres = Query.query(Criteria.where("_id").in(occurrences.keySet()).and("references").lte(0));
+            libres.fields().include("_id").include("froid");
+            Map<Boolean, List<String>> supprimes = mongoTemplate.find(libres, Bloc.class).stream()
+                    .collect(Collectors.partitioningBy(bloc -> Boolean.TRUE.equals(bloc.getFroid()),
+                            Collectors.mapping(Bloc::getId, Collectors.toList())));
+            List<String> chauds = supprimes.get(false);
+            List<String> froids = supprimes.get(true);
+            if (!chauds.isEmpty() || !froids.isEmpty()) {
+                List<String> tous = new ArrayList<>(chauds);
+                tous.addAll(froids);
+                mongoTemplate.remove(Query.query(Criteria.where("_id").in(tous)), Bloc.class);
+                if (!chauds.isEmpty()) {
+                    stockage.supprimer(chauds);
+                }
+                if (!froids.isEmpty()) {
+                    froid.supprimer(froids);
+                }
+            }
+        } catch (DataAccessException e) {
+            System.out.println("Erreur lors de la libération de " + occurrences.size() + " bloc(s) : " + e.getMessage());
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Déplace vers le niveau froid, par lots et à intervalle régulier, les blocs auxquels personne n'a accédé
+     * depuis le délai configuré. Les blocs écrits avant l'introduction de la date de dernier accès la
+     * reçoivent d'abord : ils ne sont déplacés qu'une fois le délai écoulé. Les blocs des fichiers téléchargés
+     * récemment ou souvent sont ensuite marqués comme accédés, ce qui les écarte du déplacement.
+     */
+    @Scheduled(initialDelayString = "${noobsave.stockage.froid.intervalle-ms:86400000}",
+            fixedDelayString = "${noobsave.stockage.froid.intervalle-ms:86400000}")
+    public void refroidir() {
+        if (!froidActif) {
+            return;
+        }
+        try {
+            indexService.assurerIndex(Bloc.class);
+            mongoTemplate.updateMulti(Query.query(Criteria.where("dernierAcces").exists(false)),
+                    new Update().set("dernierAcces", LocalDateTime.now()), Bloc.class);
+            LocalDateTime limite = LocalDateTime.now().minusDays(delaiFroidJours);
+            conserverTelecharges(limite);
+            int deplaces = 0;
+            int lot;
+            do {
+                lot = refroidir(limite);
+                deplaces += lot;
+            } while (lot == BLOCS_PAR_REFROIDISSEMENT);
+            if (deplaces > 0) {
+                System.out.println("Blocs déplacés vers le niveau froid : " + deplaces);
+            }
+        } catch (DataAccessException | IOException e) {
+            System.out.println("Erreur lors du déplacement des blocs vers le niveau froid : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Marque comme accédés les blocs du contenu courant des fichiers téléchargés depuis moins de
+     * {@code delaiTelechargementJours} jours, ou au moins {@code telechargementsMin} fois, afin qu'ils ne soient
+     * pas déplacés vers le niveau froid.
+     *
+     * @param limite Date de dernier accès en deçà de laquelle un bloc serait déplacé.
+     */
+    private void conserverTelecharges(LocalDateTime limite) {
+        List<Criteria> criteres = new ArrayList<>();
+        criteres.add(Criteria.where("dernierTelechargement").gte(LocalDateTime.now().minusDays(delaiTelechargementJours)));
+        if (telechargementsMin > 0) {
+            criteres.add(Criteria.where("nombreTelechargements").gte(telechargementsMin));
+        }
+        Query query = Query.query(new Criteria().andOperator(Criteria.where("blocs").exists(true),
+                new Criteria().orOperator(criteres)));
+        query.fields().include("blocs");
+        LocalDateTime maintenant = LocalDateTime.now();
+        Set<String> ids = new HashSet<>();
+        try (Stream<Fichier> fichiers = mongoTemplate.stream(query, Fichier.class)) {
+            for (Iterator<Fichier> iterateur = fichiers.iterator(); iterateur.hasNext(); ) {
+                ids.addAll(iterateur.next().getBlocs());
+                if (ids.size() >= BLOCS_PAR_REFROIDISSEMENT || !iterateur.hasNext()) {
+                    mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids).and("dernierAcces").lt(limite)),
+                            new Update().set("dernierAcces", maintenant), Bloc.class);
+                    ids.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Déplace un lot de blocs vers le niveau froid : les octets sont lus, compressés s'ils étaient bruts,
+     * écrits dans le niveau froid, puis retirés du stockage principal. Le déplacement est exclusif avec
+     * l'écriture et la libération des blocs.
+     *
+     * @param limite Date de dernier accès en deçà de laquelle un bloc est déplacé.
+     * @return Nombre de blocs déplacés ; inférieur à {@value #BLOCS_PAR_REFROIDISSEMENT} s'il n'en reste plus.
+     * @throws IOException Si la lecture ou l'écriture des octets échoue.
+     */
+    private int refroidir(LocalDateTime limite) throws IOException {
+        verrou.writeLock().lock();
+        try {
+            Query query = Query.query(Criteria.where("froid").ne(true).and("dernierAcces").lt(limite))
+                    .limit(BLOCS_PAR_REFROIDISSEMENT);
+            query.fields().include("donnees").include("compression");
+            List<Bloc> blocs = mongoTemplate.find(query, Bloc.class);
+            Map<String, StockageContenu.Contenu> contenus = new HashMap<>();
+            Set<String> horsBase = new HashSet<>();
+            for (Bloc bloc : blocs) {
+                if (bloc.getDonnees() != null) {
+                    contenus.put(bloc.getId(), new StockageContenu.Contenu(bloc.getDonnees(), bloc.getCompression()));
+                } else {
+                    horsBase.add(bloc.getId());
+                }
+            }
+            if (!horsBase.isEmpty()) {
+                contenus.putAll(stockage.lire(horsBase));
+            }
+            if (contenus.isEmpty()) {
+                return 0;
+            }
+            CodecCompression codec = "aucune".equalsIgnoreCase(compressionFroid) ? null : compressionService.codec(compressionFroid);
+            Map<String, StockageContenu.Contenu> froids = new HashMap<>();
+            contenus.forEach((id, contenu) -> {
+                byte[] compresse = contenu.compression() == null && codec != null
+                        ? compressionService.compresserSiRentable(codec, contenu.donnees()) : null;
+                froids.put(id, compresse != null ? new StockageContenu.Contenu(compresse, codec.nom()) : contenu);
+            });
+            froid.ecrire(froids);
+            mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(froids.keySet())),
+                    new Update().set("froid", true).unset("donnees").unset("compression"), Bloc.class);
+            stockage.supprimer(froids.keySet());
+            // Un bloc introuvable interrompt le déplacement : il serait sinon sélectionné à nouveau
+            return froids.size() == blocs.size() ? froids.size() : 0;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remonte dans le stockage principal des blocs lus depuis le niveau froid.
+     *
+     * <p>Seuls les blocs encore présents et froids sont remontés : un bloc libéré entre sa lecture et sa
+     * remontée n'est pas recréé. Les blocs stockés en base sont mis à jour sans upsert ; sinon, la libération
+     * étant exclusive avec la remontée, les blocs trouvés ne peuvent pas être supprimés avant l'écriture de
+     * leurs octets.</p>
+     *
+     * @param contenus Contenus lus, indexés par identifiant.
+     * @throws IOException Si l'écriture des octets échoue.
+     */
+    private void promouvoir(Map<String, StockageContenu.Contenu> contenus) throws IOException {
+        verrou.readLock().lock();
+        try {
+            Query query = Query.query(Criteria.where("_id").in(contenus.keySet()).and("froid").is(true));
+            query.fields().include("_id");
+            Set<String> froids = mongoTemplate.find(query, Bloc.class).stream()
+                    .map(Bloc::getId)
+                    .collect(Collectors.toSet());
+            if (froids.isEmpty()) {
+                return;
+            }
+            if (stockage.enBase()) {
+                BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Bloc.class);
+                for (String id : froids) {
+                    StockageContenu.Contenu contenu = contenus.get(id);
+                    bulk.updateOne(Query.query(Criteria.where("_id").is(id).and("froid").is(true)),
+                            new Update().set("donnees", contenu.donnees()).set("compression", contenu.compression())
+                                    .unset("froid"));
+                }
+                bulk.execute();
+            } else {
+                Map<String, StockageContenu.Contenu> remontes = new HashMap<>(contenus);
+                remontes.keySet().retainAll(froids);
+                stockage.ecrire(remontes);
+                mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(froids)),
+                        new Update().unset("froid"), Bloc.class);
+            }
+            froid.supprimer(froids);
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ouvre un flux de lecture reconstituant un contenu à partir de ses blocs.
+     *
+     * <p>Les blocs sont chargés par groupes de {@value #BLOCS_PAR_LECTURE}, au fil de la lecture, et
+     * décompressés un par un.</p>
+     *
+     * @param blocs Identifiants ordonnés des blocs du contenu.
+     * @return Un flux sur le contenu.
+     */
+    public InputStream ouvrir(List<String> blocs) {
+        return new FluxBlocs(blocs);
+    }
+
+    /**
+     * Recherche, parmi des identifiants de blocs, ceux déjà présents en base.
+     *
+     * @param ids Identifiants à vérifier.
+     * @return Les identifiants des blocs existants.
+     */
+    private Set<String> existants(Collection<String> ids) {
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Bloc.class).stream()
+                .map(Bloc::getId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Construit la requête sélectionnant un bloc par son identifiant.
+     *
+     * @param id Identifiant du bloc.
+     * @return La requête correspondante.
+     */
+    private static Query requeteParId(String id) {
+        return Query.query(Criteria.where("_id").is(id));
+    }
+
+    /**
+     * Crée une instance de calcul SHA-256.
+     *
+     * @return L'instance créée.
+     */
+    private static MessageDigest nouveauSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponible", e);
+        }
+    }
+
+    /**
+     * Flux concaténant les octets d'une liste ordonnée de blocs, chargés par groupes.
+     */
+    private class FluxBlocs extends InputStream {
+
+        private final List<String> ids;
+        private final Deque<byte[]> charges = new ArrayDeque<>();
+        private int suivant;
+        private byte[] courant;
+        private int position;
+
+        FluxBlocs(List<String> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!avancer()) {
+                return -1;
+            }
+            return courant[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] tampon, int debut, int longueur) throws IOException {
+            Objects.checkFromIndexSize(debut, longueur, tampon.length);
+            if (longueur == 0) {
+                return 0;
+            }
+            if (!avancer()) {
+                return -1;
+            }
+            int n = Math.min(longueur, courant.length - position);
+            System.arraycopy(courant, position, tampon, debut, n);
+            position += n;
+            return n;
+        }
+
+        /**
+         * Positionne le flux sur un bloc non épuisé, en chargeant le groupe suivant si nécessaire.
+         *
+         * @return {@code false} si tous les blocs ont été lus.
+         * @throws IOException Si un bloc est introuvable.
+         */
+        private boolean avancer() throws IOException {
+            while (courant == null || position >= courant.length) {
+                if (charges.isEmpty()) {
+                    if (suivant >= ids.size()) {
+                        return false;
+                    }
+                    charger();
+                }
+                courant = charges.poll();
+                position = 0;
+            }
+            return true;
+        }
+
+        /**
+         * Charge le groupe de blocs suivant : métadonnées en une requête, puis octets absents de la base
+         * depuis le stockage de contenu ou le niveau froid. Un bloc changé de niveau pendant la lecture est
+         * recherché une seconde fois. Les blocs froids lus sont ensuite remontés dans le stockage principal.
+         *
+         * @throws IOException Si un bloc est introuvable.
+         */
+        private void charger() throws IOException {
+            List<String> groupe = ids.subList(suivant, Math.min(suivant + BLOCS_PAR_LECTURE, ids.size()));
+            Map<String, Bloc> trouves = trouver(new HashSet<>(groupe));
+            Map<String, StockageContenu.Contenu> lus = new HashMap<>();
+            Map<String, StockageContenu.Contenu> promus = new HashMap<>();
+            for (int essai = 0; essai < 2; essai++) {
+                Set<String> chauds = new HashSet<>();
+                Set<String> froids = new HashSet<>();
+                for (Bloc bloc : trouves.values()) {
+                    if (lus.containsKey(bloc.getId())) {
+                        continue;
+                    }
+                    if (bloc.getDonnees() != null) {
+                        lus.put(bloc.getId(), new StockageContenu.Contenu(bloc.getDonnees(), bloc.getCompression()));
+                    } else if (Boolean.TRUE.equals(bloc.getFroid())) {
+                        froids.add(bloc.getId());
+                    } else {
+                        chauds.add(bloc.getId());
+                    }
+                }
+                if (!chauds.isEmpty()) {
+                    lus.putAll(stockage.lire(chauds));
+                }
+                if (!froids.isEmpty()) {
+                    Map<String, StockageContenu.Contenu> lusFroids = froid.lire(froids);
+                    lus.putAll(lusFroids);
+                    promus.putAll(lusFroids);
+                }
+                Set<String> manquants = new HashSet<>(trouves.keySet());
+                manquants.removeAll(lus.keySet());
+                if (manquants.isEmpty()) {
+                    break;
+                }
+                trouves.putAll(trouver(manquants));
+            }
+            for (String id : groupe) {
+                StockageContenu.Contenu contenu = lus.get(id);
+                if (contenu == null) {
+                    throw new FileNotFoundException("Bloc introuvable : " + id);
+                }
+                if (contenu.compression() == null) {
+                    charges.add(contenu.donnees());
+                } else {
+                    try (InputStream flux = compressionService.decompresser(contenu.compression(),
+                            new ByteArrayInputStream(contenu.donnees()))) {
+                        charges.add(flux.readAllBytes());
+                    }
+                }
+            }
+            acceder(trouves.values(), promus);
+            suivant += groupe.size();
+        }
+
+        /**
+         * Lit les métadonnées d'un ensemble de blocs.
+         *
+         * @param groupe Identifiants des blocs.
+         * @return Les blocs trouvés, indexés par identifiant.
+         * @throws IOException Si la lecture échoue.
+         */
+        private Map<String, Bloc> trouver(Set<String> groupe) throws IOException {
+            Map<String, Bloc> trouves = new HashMap<>();
+            try {
+                for (Bloc bloc : mongoTemplate.find(Query.query(Criteria.where("_id").in(groupe)), Bloc.class)) {
+                    trouves.put(bloc.getId(), bloc);
+                }
+            } catch (DataAccessException e) {
+                throw new IOException("Erreur lors de la lecture des blocs : " + e.getMessage(), e);
+            }
+            return trouves;
+        }
+
+        /**
+         * Met à jour la date de dernier accès des blocs lus (à {@link #PRECISION_ACCES} près) et remonte les
+         * blocs lus depuis le niveau froid. Une erreur n'interrompt pas la lecture.
+         *
+         * @param blocs  Blocs lus.
+         * @param promus Contenus lus depuis le niveau froid.
+         */
+        private void acceder(Collection<Bloc> blocs, Map<String, StockageContenu.Contenu> promus) {
+            LocalDateTime maintenant = LocalDateTime.now();
+            List<String> anciens = blocs.stream()
+                    .filter(bloc -> bloc.getDernierAcces() == null
+                            || bloc.getDernierAcces().isBefore(maintenant.minus(PRECISION_ACCES)))
+                    .map(Bloc::getId)
+                    .toList();
+            try {
+                if (!anciens.isEmpty()) {
+                    mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(anciens)),
+                            new Update().set("dernierAcces", maintenant), Bloc.class);
+                }
+                if (!promus.isEmpty()) {
+                    promouvoir(promus);
+                }
+            } catch (DataAccessException | IOException e) {
+                System.out.println("Erreur lors de la mise à jour des blocs lus : " + e.getMessage());
+            }
+        }
+    }
+}
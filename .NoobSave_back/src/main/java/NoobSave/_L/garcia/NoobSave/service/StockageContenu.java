@@ -0,0 +1,63 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Emplacement de stockage des octets du contenu des fichiers, adressés par leur empreinte SHA-256.
+ *
+ * <p>Chaque implémentation enregistrée comme composant Spring est proposée par {@link StockageBlocsService},
+ * qui utilise celle désignée par {@code noobsave.stockage.contenu}. Les métadonnées des blocs (taille,
+ * références) restent dans la collection {@code blocs} ; les octets, éventuellement compressés, passent par
+ * le stockage de contenu avec le nom de leur algorithme de compression, toujours écrits ensemble. Un contenu
+ * étant identifié par l'empreinte de ses octets bruts, son écriture est idempotente.</p>
+ */
+public interface StockageContenu {
+
+    /**
+     * Contenu stocké.
+     *
+     * @param donnees     Octets, compressés si {@code compression} est renseigné.
+     * @param compression Algorithme de compression des octets, ou {@code null} s'ils sont bruts.
+     */
+    record Contenu(byte[] donnees, String compression) {
+    }
+
+    /**
+     * @return Le nom du stockage, tel qu'indiqué dans {@code noobsave.stockage.contenu} (par exemple {@code local}).
+     */
+    String nom();
+
+    /**
+     * Indique si les octets sont conservés dans la base MongoDB.
+     *
+     * @return {@code true} si le contenu est stocké dans la base, {@code false} s'il est stocké ailleurs.
+     */
+    boolean enBase();
+
+    /**
+     * Écrit durablement un ensemble de contenus.
+     *
+     * @param contenus Contenus à écrire, indexés par identifiant.
+     * @throws IOException Si un contenu n'a pas pu être écrit ; aucun contenu du lot n'est alors garanti.
+     */
+    void ecrire(Map<String, Contenu> contenus) throws IOException;
+
+    /**
+     * Lit un ensemble de contenus.
+     *
+     * @param ids Identifiants des contenus.
+     * @return Les contenus trouvés, indexés par identifiant ; un contenu introuvable est absent.
+     * @throws IOException Si une erreur survient lors de la lecture.
+     */
+    Map<String, Contenu> lire(Collection<String> ids) throws IOException;
+
+    /**
+     * Supprime des contenus de ce stockage, parce qu'ils ne sont plus référencés ou qu'ils ont été déplacés vers
+     * un autre niveau de stockage. Un contenu introuvable est ignoré.
+     *
+     * @param ids Identifiants des contenus.
+     */
+    void supprimer(Collection<String> ids);
+}
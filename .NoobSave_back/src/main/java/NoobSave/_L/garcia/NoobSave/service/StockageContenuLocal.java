@@ -0,0 +1,193 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Stockage du contenu dans un répertoire local, adressé par contenu.
+ *
+ * <p>Chaque contenu est un fichier nommé par son empreinte, réparti sur deux niveaux de sous-répertoires
+ * d'après ses premiers caractères ({@code 9f/86/9f86d0...}) afin de limiter le nombre d'entrées par
+ * répertoire. Les écritures sont atomiques : le contenu est écrit dans un fichier temporaire du même
+ * répertoire, puis renommé ; un lecteur ne voit jamais un contenu partiel, et un fichier temporaire laissé
+ * par un arrêt brutal n'est jamais lu. Chaque fichier commence par le nom de l'algorithme de compression
+ * de ses octets (un octet de longueur, puis le nom en ASCII, vide pour des octets bruts) : le contenu est
+ * décrit par lui-même, même si deux écritures concurrentes du même bloc ont fait des choix de compression
+ * différents.</p>
+ *
+ * <p>Si {@code noobsave.stockage.local.fsync} est actif, les synchronisations sur disque sont groupées par
+ * lot : tous les fichiers temporaires du lot sont écrits, puis synchronisés, puis renommés, et chaque
+ * répertoire modifié n'est synchronisé qu'une fois par lot.</p>
+ */
+@Component
+public class StockageContenuLocal implements StockageContenu {
+
+    /**
+     * Répertoire racine du stockage, injecté via la clé {@code noobsave.stockage.local.repertoire}.
+     */
+    @Value("${noobsave.stockage.local.repertoire:./../stockage}")
+    private String repertoire;
+
+    /**
+     * Synchronisation sur disque des contenus écrits, injectée via la clé {@code noobsave.stockage.local.fsync}.
+     */
+    @Value("${noobsave.stockage.local.fsync:true}")
+    private boolean fsync;
+
+    /**
+     * Crée le stockage local configuré par {@code noobsave.stockage.local.*}.
+     */
+    public StockageContenuLocal() {
+    }
+
+    /**
+     * Crée un stockage local dans un autre répertoire (par exemple le niveau froid de {@link StockageBlocsService}).
+     *
+     * @param repertoire Répertoire racine du stockage.
+     * @param fsync      Synchronisation sur disque des contenus écrits.
+     */
+    StockageContenuLocal(String repertoire, boolean fsync) {
+        this.repertoire = repertoire;
+        this.fsync = fsync;
+    }
+
+    @Override
+    public String nom() {
+        return "local";
+    }
+
+    @Override
+    public boolean enBase() {
+        return false;
+    }
+
+    @Override
+    public void ecrire(Map<String, Contenu> contenus) throws IOException {
+        Map<Path, Path> temporaires = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Contenu> contenu : contenus.entrySet()) {
+                Path cible = chemin(contenu.getKey());
+                if (Files.exists(cible)) {
+                    continue;
+                }
+                Files.createDirectories(cible.getParent());
+                Path temporaire = cible.resolveSibling(cible.getFileName() + ".tmp-" + UUID.randomUUID());
+                try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE)) {
+                    temporaires.put(temporaire, cible);
+                    byte[] compression = Objects.requireNonNullElse(contenu.getValue().compression(), "")
+                            .getBytes(StandardCharsets.US_ASCII);
+                    ByteBuffer[] tampons = {
+                            ByteBuffer.wrap(new byte[]{(byte) compression.length}),
+                            ByteBuffer.wrap(compression),
+                            ByteBuffer.wrap(contenu.getValue().donnees())
+                    };
+                    while (tampons[2].hasRemaining()) {
+                        canal.write(tampons);
+                    }
+                }
+            }
+            if (fsync) {
+                for (Path temporaire : temporaires.keySet()) {
+                    synchroniser(temporaire);
+                }
+            }
+            Set<Path> repertoires = new HashSet<>();
+            Iterator<Map.Entry<Path, Path>> iterateur = temporaires.entrySet().iterator();
+            while (iterateur.hasNext()) {
+                Map.Entry<Path, Path> temporaire = iterateur.next();
+                Files.move(temporaire.getKey(), temporaire.getValue(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                iterateur.remove();
+                repertoires.add(temporaire.getValue().getParent());
+            }
+            if (fsync) {
+                for (Path modifie : repertoires) {
+                    synchroniserRepertoire(modifie);
+                }
+            }
+        } finally {
+            for (Path temporaire : temporaires.keySet()) {
+                Files.deleteIfExists(temporaire);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Contenu> lire(Collection<String> ids) throws IOException {
+        Map<String, Contenu> contenus = new HashMap<>();
+        for (String id : ids) {
+            try (InputStream flux = Files.newInputStream(chemin(id))) {
+                int longueur = flux.read();
+                byte[] compression = flux.readNBytes(Math.max(longueur, 0));
+                if (longueur < 0 || compression.length < longueur) {
+                    throw new IOException("Contenu tronqué : " + id);
+                }
+                contenus.put(id, new Contenu(flux.readAllBytes(),
+                        longueur == 0 ? null : new String(compression, StandardCharsets.US_ASCII)));
+            } catch (NoSuchFileException e) {
+                // Contenu introuvable : absent du résultat
+            }
+        }
+        return contenus;
+    }
+
+    @Override
+    public void supprimer(Collection<String> ids) {
+        for (String id : ids) {
+            try {
+                Files.deleteIfExists(chemin(id));
+            } catch (IOException e) {
+                System.out.println("Erreur lors de la suppression du contenu " + id + " : " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Calcule le chemin d'un contenu.
+     *
+     * @param id Empreinte hexadécimale du contenu.
+     * @return Le chemin du fichier du contenu.
+     * @throws IllegalArgumentException Si l'identifiant n'est pas une empreinte hexadécimale.
+     */
+    private Path chemin(String id) {
+        if (id.length() < 4 || !id.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            throw new IllegalArgumentException("Identifiant de contenu invalide : " + id);
+        }
+        return Paths.get(repertoire, id.substring(0, 2)).resolve(id.substring(2, 4)).resolve(id);
+    }
+
+    /**
+     * Synchronise sur disque le contenu d'un fichier écrit.
+     *
+     * @param fichier Fichier à synchroniser.
+     * @throws IOException Si la synchronisation échoue.
+     */
+    private static void synchroniser(Path fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+    }
+
+    /**
+     * Synchronise sur disque les entrées d'un répertoire, afin que les renommages survivent à un arrêt
+     * brutal. Les systèmes qui ne permettent pas d'ouvrir un répertoire sont ignorés.
+     *
+     * @param modifie Répertoire à synchroniser.
+     */
+    private static void synchroniserRepertoire(Path modifie) {
+        try (FileChannel canal = FileChannel.open(modifie, StandardOpenOption.READ)) {
+            canal.force(true);
+        } catch (IOException e) {
+            // Synchronisation d'un répertoire non supportée (Windows)
+        }
+    }
+}
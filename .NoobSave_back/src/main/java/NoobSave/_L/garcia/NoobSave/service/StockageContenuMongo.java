@@ -0,0 +1,82 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.Bloc;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stockage du contenu dans la base MongoDB : les octets sont conservés dans le document du bloc
+ * (champs {@code donnees} et {@code compression} de la collection {@code blocs}).
+ *
+ * <p>Lors de l'ingestion, {@link StockageBlocsService} écrit les octets des nouveaux blocs dans la même
+ * opération que leurs métadonnées ; ce stockage ne sert alors qu'à la lecture et aux réécritures.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class StockageContenuMongo implements StockageContenu {
+
+    /**
+     * Accès bas niveau à MongoDB, pour les écritures groupées.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public String nom() {
+        return "mongo";
+    }
+
+    @Override
+    public boolean enBase() {
+        return true;
+    }
+
+    @Override
+    public void ecrire(Map<String, Contenu> contenus) throws IOException {
+        if (contenus.isEmpty()) {
+            return;
+        }
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Bloc.class);
+            contenus.forEach((id, contenu) -> bulk.upsert(Query.query(Criteria.where("_id").is(id)),
+                    new Update().set("donnees", contenu.donnees()).set("compression", contenu.compression())));
+            bulk.execute();
+        } catch (DataAccessException e) {
+            throw new IOException("Erreur lors de l'écriture de " + contenus.size() + " contenu(s) : " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Contenu> lire(Collection<String> ids) throws IOException {
+        Map<String, Contenu> contenus = new HashMap<>();
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include("donnees").include("compression");
+        try {
+            for (Bloc bloc : mongoTemplate.find(query, Bloc.class)) {
+                if (bloc.getDonnees() != null) {
+                    contenus.put(bloc.getId(), new Contenu(bloc.getDonnees(), bloc.getCompression()));
+                }
+            }
+        } catch (DataAccessException e) {
+            throw new IOException("Erreur lors de la lecture des blocs : " + e.getMessage(), e);
+        }
+        return contenus;
+    }
+
+    @Override
+    public void supprimer(Collection<String> ids) {
+        // Les octets d'un bloc libéré sont supprimés avec son document ; ceux d'un bloc conservé sont retirés
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids)),
+                new Update().unset("donnees").unset("compression"), Bloc.class);
+    }
+}
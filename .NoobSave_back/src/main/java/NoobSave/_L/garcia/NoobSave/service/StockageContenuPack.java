@@ -0,0 +1,472 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.Bloc;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Stockage du contenu regroupé dans des fichiers pack, sur le modèle des packs de git.
+ *
+ * <p>La plupart des blocs sont petits : les stocker un par un (document MongoDB ou fichier) coûte plus en
+ * surcharge par objet qu'en octets. Ce stockage ajoute les contenus les uns à la suite des autres dans un
+ * fichier pack ({@code pack-00000001.pack}, ...) jusqu'à {@code noobsave.stockage.pack.taille-max-octets}, puis
+ * passe au suivant. L'index des emplacements (numéro du pack, position et longueur de l'entrée) est conservé
+ * dans le document du bloc ({@link Bloc}) : aucun document ni entrée d'index supplémentaire n'est créé, et
+ * une lecture est une lecture positionnée ({@link FileChannel#read(ByteBuffer, long)}) dans le pack.</p>
+ *
+ * <p>Chaque entrée contient l'empreinte du contenu, le nom de son algorithme de compression et ses octets :
+ * elle est décrite par elle-même, et une lecture vérifie qu'elle porte bien l'empreinte attendue. Les packs
+ * ne sont jamais modifiés : une entrée dont le bloc a été supprimé, ou réécrit ailleurs, devient morte.
+ * Les packs dont la proportion d'octets morts dépasse {@code noobsave.stockage.pack.compactage.seuil} sont
+ * compactés en arrière-plan : leurs entrées vivantes sont recopiées dans le pack courant, puis le pack est
+ * supprimé.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class StockageContenuPack implements StockageContenu {
+
+    /**
+     * Taille de l'empreinte SHA-256 en tête de chaque entrée, en octets.
+     */
+    private static final int TAILLE_EMPREINTE = 32;
+
+    /**
+     * Nombre d'entrées recopiées par opération groupée lors du compactage.
+     */
+    private static final int ENTREES_PAR_COMPACTAGE = 256;
+
+    /**
+     * Accès bas niveau à MongoDB, pour l'index des emplacements.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Création de l'index des blocs par pack.
+     */
+    private final IndexService indexService;
+
+    /**
+     * Répertoire des fichiers pack, injecté via la clé {@code noobsave.stockage.pack.repertoire}.
+     */
+    @Value("${noobsave.stockage.pack.repertoire:./../packs}")
+    private String repertoire;
+
+    /**
+     * Taille à partir de laquelle un pack est scellé, injectée via la clé {@code noobsave.stockage.pack.taille-max-octets}.
+     */
+    @Value("${noobsave.stockage.pack.taille-max-octets:67108864}")
+    private long tailleMax;
+
+    /**
+     * Synchronisation sur disque des entrées écrites, injectée via la clé {@code noobsave.stockage.pack.fsync}.
+     */
+    @Value("${noobsave.stockage.pack.fsync:true}")
+    private boolean fsync;
+
+    /**
+     * Proportion d'octets morts déclenchant le compactage d'un pack, injectée via la clé
+     * {@code noobsave.stockage.pack.compactage.seuil}.
+     */
+    @Value("${noobsave.stockage.pack.compactage.seuil:0.5}")
+    private double seuilCompactage;
+
+    /**
+     * Verrou des écritures en fin de pack (ajouts et changement de pack courant).
+     */
+    private final Object verrouEcriture = new Object();
+
+    /**
+     * Verrou partagé par les lectures, exclusif pour la suppression d'un pack compacté.
+     */
+    private final ReentrantReadWriteLock verrouPacks = new ReentrantReadWriteLock();
+
+    /**
+     * Canaux de lecture ouverts, indexés par numéro de pack.
+     */
+    private final Map<Integer, FileChannel> lectures = new ConcurrentHashMap<>();
+
+    /**
+     * Numéro du pack courant, ou 0 s'il n'est pas encore ouvert. Protégé par {@link #verrouEcriture}.
+     */
+    private int courant;
+
+    /**
+     * Canal d'écriture du pack courant. Protégé par {@link #verrouEcriture}.
+     */
+    private FileChannel ecriture;
+
+    /**
+     * Emplacement d'une entrée.
+     *
+     * @param pack     Numéro du pack.
+     * @param position Position de l'entrée dans le pack.
+     * @param longueur Longueur de l'entrée, en-tête compris.
+     */
+    private record Emplacement(int pack, long position, int longueur) {
+    }
+
+    @Override
+    public String nom() {
+        return "pack";
+    }
+
+    @Override
+    public boolean enBase() {
+        return false;
+    }
+
+    /**
+     * Ajoute les contenus à la fin du pack courant, puis enregistre leurs emplacements dans les documents
+     * des blocs. Les entrées d'un lot ne sont synchronisées sur disque qu'une fois.
+     *
+     * @param contenus Contenus à écrire, indexés par identifiant.
+     * @throws IOException Si l'écriture échoue ; les entrées déjà ajoutées deviennent mortes.
+     */
+    @Override
+    public void ecrire(Map<String, Contenu> contenus) throws IOException {
+        if (contenus.isEmpty()) {
+            return;
+        }
+        indexService.assurerIndex(Bloc.class);
+        Map<String, Emplacement> emplacements = ajouter(contenus);
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Bloc.class);
+            emplacements.forEach((id, emplacement) -> bulk.upsert(Query.query(Criteria.where("_id").is(id)),
+                    emplacer(new Update(), emplacement)));
+            bulk.execute();
+        } catch (DataAccessException e) {
+            throw new IOException("Erreur lors de l'indexation de " + contenus.size() + " contenu(s) : " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<String, Contenu> lire(Collection<String> ids) throws IOException {
+        Map<String, Contenu> contenus = new HashMap<>();
+        Set<String> restants = new HashSet<>(ids);
+        // Un pack compacté entre la lecture de l'index et celle de l'entrée : l'emplacement est relu une fois
+        for (int essai = 0; essai < 2 && !restants.isEmpty(); essai++) {
+            Map<String, Emplacement> emplacements = emplacements(restants);
+            restants.retainAll(emplacements.keySet());
+            verrouPacks.readLock().lock();
+            try {
+                for (Map.Entry<String, Emplacement> entree : emplacements.entrySet()) {
+                    try {
+                        contenus.put(entree.getKey(), lireEntree(entree.getKey(), entree.getValue()));
+                        restants.remove(entree.getKey());
+                    } catch (NoSuchFileException e) {
+                        // Pack supprimé par le compactage
+                    }
+                }
+            } finally {
+                verrouPacks.readLock().unlock();
+            }
+        }
+        return contenus;
+    }
+
+    @Override
+    public void supprimer(Collection<String> ids) {
+        // Les entrées deviennent mortes : leur place est récupérée par le compactage. L'emplacement d'un bloc
+        // libéré disparaît avec son document ; celui d'un bloc conservé est retiré.
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids).and("pack").exists(true)),
+                new Update().unset("pack").unset("position").unset("longueur"), Bloc.class);
+    }
+
+    /**
+     * Compacte, à intervalle régulier, les packs scellés dont la proportion d'octets morts dépasse le seuil
+     * configuré. Les octets vivants de chaque pack sont totalisés en une agrégation sur les blocs.
+     */
+    @Scheduled(initialDelayString = "${noobsave.stockage.pack.compactage.intervalle-ms:3600000}",
+            fixedDelayString = "${noobsave.stockage.pack.compactage.intervalle-ms:3600000}")
+    public void compacter() {
+        Path racine = Paths.get(repertoire);
+        if (!Files.isDirectory(racine)) {
+            return;
+        }
+        List<Integer> scelles = new ArrayList<>();
+        try (Stream<Path> packs = Files.list(racine)) {
+            packs.map(StockageContenuPack::numero).filter(n -> n > 0).forEach(scelles::add);
+        } catch (IOException e) {
+            System.out.println("Erreur lors de la lecture du répertoire des packs : " + e.getMessage());
+            return;
+        }
+        // Le dernier pack est le pack courant, ou celui que reprendra la prochaine écriture
+        scelles.sort(null);
+        if (scelles.size() < 2) {
+            return;
+        }
+        scelles.remove(scelles.size() - 1);
+        try {
+            indexService.assurerIndex(Bloc.class);
+            Map<Integer, Long> vivants = new HashMap<>();
+            Aggregation agregation = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("pack").in(scelles)),
+                    Aggregation.group("pack").sum("longueur").as("octets"));
+            for (Document total : mongoTemplate.aggregate(agregation, Bloc.class, Document.class)) {
+                vivants.put(((Number) total.get("_id")).intValue(), ((Number) total.get("octets")).longValue());
+            }
+            for (int pack : scelles) {
+                long taille = Files.size(chemin(pack));
+                long morts = taille - vivants.getOrDefault(pack, 0L);
+                if (taille > 0 && morts >= seuilCompactage * taille) {
+                    compacter(pack);
+                }
+            }
+        } catch (DataAccessException | IOException e) {
+            System.out.println("Erreur lors du compactage des packs : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recopie les entrées vivantes d'un pack dans le pack courant, puis supprime le pack. L'emplacement d'un
+     * bloc n'est mis à jour que s'il désigne toujours l'entrée recopiée ; le pack n'est supprimé que si plus
+     * aucun bloc ne le désigne.
+     *
+     * @param pack Numéro du pack à compacter.
+     * @throws IOException Si la lecture ou l'écriture d'une entrée échoue.
+     */
+    private void compacter(int pack) throws IOException {
+        Query query = Query.query(Criteria.where("pack").is(pack));
+        query.fields().include("pack").include("position").include("longueur");
+        List<Bloc> vivants = mongoTemplate.find(query, Bloc.class);
+        long recopies = 0;
+        for (int debut = 0; debut < vivants.size(); debut += ENTREES_PAR_COMPACTAGE) {
+            List<Bloc> groupe = vivants.subList(debut, Math.min(debut + ENTREES_PAR_COMPACTAGE, vivants.size()));
+            Map<String, Contenu> contenus = new LinkedHashMap<>();
+            verrouPacks.readLock().lock();
+            try {
+                for (Bloc bloc : groupe) {
+                    contenus.put(bloc.getId(), lireEntree(bloc.getId(),
+                            new Emplacement(pack, bloc.getPosition(), bloc.getLongueur())));
+                }
+            } finally {
+                verrouPacks.readLock().unlock();
+            }
+            Map<String, Emplacement> emplacements = ajouter(contenus);
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Bloc.class);
+            for (Bloc bloc : groupe) {
+                bulk.updateOne(Query.query(Criteria.where("_id").is(bloc.getId()).and("pack").is(pack)
+                                .and("position").is(bloc.getPosition())),
+                        emplacer(new Update(), emplacements.get(bloc.getId())));
+            }
+            bulk.execute();
+            recopies += groupe.size();
+        }
+        if (mongoTemplate.exists(Query.query(Criteria.where("pack").is(pack)), Bloc.class)) {
+            System.out.println("Pack " + pack + " encore référencé, suppression reportée");
+            return;
+        }
+        verrouPacks.writeLock().lock();
+        try {
+            FileChannel canal = lectures.remove(pack);
+            if (canal != null) {
+                canal.close();
+            }
+            Files.deleteIfExists(chemin(pack));
+        } finally {
+            verrouPacks.writeLock().unlock();
+        }
+        System.out.println("Pack " + pack + " compacté : " + recopies + " entrée(s) recopiée(s)");
+    }
+
+    /**
+     * Ajoute des contenus à la fin du pack courant, en changeant de pack dès que la taille maximale est
+     * atteinte.
+     *
+     * @param contenus Contenus à ajouter, indexés par identifiant.
+     * @return Les emplacements des entrées ajoutées.
+     * @throws IOException Si l'écriture échoue.
+     */
+    private Map<String, Emplacement> ajouter(Map<String, Contenu> contenus) throws IOException {
+        Map<String, Emplacement> emplacements = new HashMap<>();
+        synchronized (verrouEcriture) {
+            for (Map.Entry<String, Contenu> contenu : contenus.entrySet()) {
+                if (ecriture == null || ecriture.size() >= tailleMax) {
+                    ouvrirSuivant();
+                }
+                ByteBuffer entree = entree(contenu.getKey(), contenu.getValue());
+                long position = ecriture.size();
+                int longueur = entree.remaining();
+                while (entree.hasRemaining()) {
+                    ecriture.write(entree);
+                }
+                emplacements.put(contenu.getKey(), new Emplacement(courant, position, longueur));
+            }
+            if (fsync) {
+                ecriture.force(false);
+            }
+        }
+        return emplacements;
+    }
+
+    /**
+     * Scelle le pack courant et ouvre le suivant. Au premier appel, reprend le dernier pack existant s'il
+     * n'a pas atteint la taille maximale. Doit être appelée sous {@link #verrouEcriture}.
+     *
+     * @throws IOException Si le pack ne peut pas être ouvert.
+     */
+    private void ouvrirSuivant() throws IOException {
+        if (ecriture != null) {
+            if (fsync) {
+                ecriture.force(false);
+            }
+            ecriture.close();
+            ecriture = null;
+        } else {
+            Path racine = Paths.get(repertoire);
+            Files.createDirectories(racine);
+            try (Stream<Path> packs = Files.list(racine)) {
+                courant = packs.mapToInt(StockageContenuPack::numero).max().orElse(0);
+            }
+            if (courant > 0 && Files.size(chemin(courant)) < tailleMax) {
+                ecriture = FileChannel.open(chemin(courant), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                return;
+            }
+        }
+        courant++;
+        ecriture = FileChannel.open(chemin(courant), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Lit une entrée par une lecture positionnée et vérifie son empreinte. Doit être appelée sous le verrou
+     * de lecture des packs.
+     *
+     * @param id          Identifiant attendu.
+     * @param emplacement Emplacement de l'entrée.
+     * @return Le contenu de l'entrée.
+     * @throws NoSuchFileException Si le pack n'existe plus.
+     * @throws IOException         Si l'entrée est illisible ou ne correspond pas à l'identifiant.
+     */
+    private Contenu lireEntree(String id, Emplacement emplacement) throws IOException {
+        FileChannel canal = lectures.get(emplacement.pack());
+        if (canal == null) {
+            canal = lectures.computeIfAbsent(emplacement.pack(), pack -> {
+                try {
+                    return FileChannel.open(chemin(pack), StandardOpenOption.READ);
+                } catch (IOException e) {
+                    return null;
+                }
+            });
+            if (canal == null) {
+                throw new NoSuchFileException(chemin(emplacement.pack()).toString());
+            }
+        }
+        ByteBuffer entree = ByteBuffer.allocate(emplacement.longueur());
+        while (entree.hasRemaining()) {
+            if (canal.read(entree, emplacement.position() + entree.position()) < 0) {
+                throw new EOFException("Entrée tronquée dans le pack " + emplacement.pack() + " : " + id);
+            }
+        }
+        entree.flip();
+        byte[] empreinte = new byte[TAILLE_EMPREINTE];
+        entree.get(empreinte);
+        if (!Arrays.equals(empreinte, HexFormat.of().parseHex(id))) {
+            throw new IOException("Entrée inattendue dans le pack " + emplacement.pack() + " pour le contenu " + id);
+        }
+        byte[] compression = new byte[entree.get() & 0xFF];
+        entree.get(compression);
+        byte[] donnees = new byte[entree.getInt()];
+        entree.get(donnees);
+        return new Contenu(donnees, compression.length == 0 ? null : new String(compression, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Lit l'emplacement des contenus dans l'index.
+     *
+     * @param ids Identifiants des contenus.
+     * @return Les emplacements trouvés, indexés par identifiant.
+     * @throws IOException Si l'index ne peut pas être lu.
+     */
+    private Map<String, Emplacement> emplacements(Collection<String> ids) throws IOException {
+        Map<String, Emplacement> emplacements = new HashMap<>();
+        Query query = Query.query(Criteria.where("_id").in(ids).and("pack").exists(true));
+        query.fields().include("pack").include("position").include("longueur");
+        try {
+            for (Bloc bloc : mongoTemplate.find(query, Bloc.class)) {
+                emplacements.put(bloc.getId(), new Emplacement(bloc.getPack(), bloc.getPosition(), bloc.getLongueur()));
+            }
+        } catch (DataAccessException e) {
+            throw new IOException("Erreur lors de la lecture des emplacements : " + e.getMessage(), e);
+        }
+        return emplacements;
+    }
+
+    /**
+     * Construit une entrée : empreinte, longueur et nom de l'algorithme de compression, longueur et octets
+     * du contenu.
+     *
+     * @param id      Empreinte hexadécimale du contenu.
+     * @param contenu Contenu.
+     * @return Le tampon de l'entrée, prêt à être écrit.
+     */
+    private static ByteBuffer entree(String id, Contenu contenu) {
+        byte[] empreinte = HexFormat.of().parseHex(id);
+        if (empreinte.length != TAILLE_EMPREINTE) {
+            throw new IllegalArgumentException("Identifiant de contenu invalide : " + id);
+        }
+        byte[] compression = Objects.requireNonNullElse(contenu.compression(), "").getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer entree = ByteBuffer.allocate(TAILLE_EMPREINTE + 1 + compression.length + 4 + contenu.donnees().length);
+        entree.put(empreinte).put((byte) compression.length).put(compression)
+                .putInt(contenu.donnees().length).put(contenu.donnees());
+        return entree.flip();
+    }
+
+    /**
+     * Renseigne l'emplacement d'une entrée dans une mise à jour du document d'un bloc.
+     *
+     * @param update      Mise à jour.
+     * @param emplacement Emplacement de l'entrée.
+     * @return La mise à jour complétée.
+     */
+    private static Update emplacer(Update update, Emplacement emplacement) {
+        return update.set("pack", emplacement.pack())
+                .set("position", emplacement.position())
+                .set("longueur", emplacement.longueur());
+    }
+
+    /**
+     * Calcule le chemin d'un pack.
+     *
+     * @param pack Numéro du pack.
+     * @return Le chemin du fichier pack.
+     */
+    private Path chemin(int pack) {
+        return Paths.get(repertoire, String.format("pack-%08d.pack", pack));
+    }
+
+    /**
+     * Extrait le numéro d'un pack de son nom de fichier.
+     *
+     * @param fichier Fichier du répertoire des packs.
+     * @return Le numéro du pack, ou 0 s'il ne s'agit pas d'un pack.
+     */
+    private static int numero(Path fichier) {
+        String nom = fichier.getFileName().toString();
+        if (!nom.matches("pack-\\d{8}\\.pack")) {
+            return 0;
+        }
+        return Integer.parseInt(nom.substring(5, 13));
+    }
+}
@@ -0,0 +1,185 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.CorpsFichier;
+import NoobSave._L.garcia.NoobSave.entities.Fichier;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service de stockage du contenu des petits fichiers, séparé de leurs métadonnées.
+ *
+ * <p>Le contenu d'un fichier stocké d'un seul tenant est enregistré dans la collection {@code corps_fichiers}
+ * ({@link CorpsFichier}) ; le document {@link Fichier} n'en conserve que l'identifiant. Les listes de fichiers
+ * ne transfèrent donc que des métadonnées, et le contenu n'est lu qu'au téléchargement ou à la restauration.</p>
+ *
+ * <p>Les fichiers enregistrés avant cette séparation conservent leur contenu dans leur document : il reste
+ * lisible, et est déplacé vers {@code corps_fichiers} à la première synchronisation ({@link #migrer()}).</p>
+ *
+ * @author torres léo
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class StockageCorpsService {
+
+    /**
+     * Nombre de contenus déplacés par opération groupée lors de la migration.
+     */
+    private static final int TAILLE_LOT_MIGRATION = 100;
+
+    /**
+     * Accès bas niveau à MongoDB.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Indique si la migration des contenus intégrés aux documents a déjà été effectuée pendant cette exécution.
+     */
+    private final AtomicBoolean migre = new AtomicBoolean();
+
+    /**
+     * Génère l'identifiant d'un nouveau corps.
+     *
+     * @return Un identifiant unique.
+     */
+    public String nouvelId() {
+        return new ObjectId().toHexString();
+    }
+
+    /**
+     * Enregistre un ensemble de corps en une seule opération groupée.
+     *
+     * @param corps Corps à enregistrer.
+     * @throws DataAccessException Si l'écriture échoue.
+     */
+    public void enregistrerTous(Collection<CorpsFichier> corps) {
+        if (corps.isEmpty()) {
+            return;
+        }
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CorpsFichier.class);
+        bulk.insert(new ArrayList<>(corps));
+        bulk.execute();
+    }
+
+    /**
+     * Lit le contenu stocké d'un fichier enregistré d'un seul tenant, tel qu'il est stocké (éventuellement
+     * compressé).
+     *
+     * @param fichier Fichier enregistré en base.
+     * @return Les octets stockés du fichier.
+     * @throws IOException Si le contenu est introuvable.
+     */
+    public byte[] lire(Fichier fichier) throws IOException {
+        String corpsId = fichier.getCorpsId();
+        if (corpsId == null) {
+            // Fichier enregistré avant la séparation : contenu intégré à son document, s'il n'a pas été migré depuis
+            Query query = Query.query(Criteria.where("_id").is(new ObjectId(fichier.getId())));
+            query.fields().include("contenu").include("corpsId");
+            Document document = mongoTemplate.findOne(query, Document.class, mongoTemplate.getCollectionName(Fichier.class));
+            Binary contenu = document != null ? document.get("contenu", Binary.class) : null;
+            corpsId = document != null ? document.getString("corpsId") : null;
+            if (contenu != null || corpsId == null) {
+                return contenu != null ? contenu.getData() : new byte[0];
+            }
+        }
+        CorpsFichier corps = mongoTemplate.findById(corpsId, CorpsFichier.class);
+        if (corps == null || corps.getDonnees() == null) {
+            throw new FileNotFoundException("Contenu introuvable : " + corpsId);
+        }
+        return corps.getDonnees();
+    }
+
+    /**
+     * Supprime un corps.
+     *
+     * @param id Identifiant du corps.
+     */
+    public void supprimer(String id) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)), CorpsFichier.class);
+    }
+
+    /**
+     * Déplace vers {@code corps_fichiers} le contenu des fichiers enregistrés avant la séparation, une seule
+     * fois par exécution. Chaque document n'est mis à jour que s'il contient encore son contenu ; un corps
+     * dont le document a été modifié entre-temps est supprimé.
+     */
+    public void migrer() {
+        if (!migre.compareAndSet(false, true)) {
+            return;
+        }
+        Query query = Query.query(Criteria.where("contenu").exists(true));
+        query.fields().include("contenu");
+        int nbMigres = 0;
+        List<Document> lot = new ArrayList<>();
+        try (Stream<Document> flux = mongoTemplate.stream(query, Document.class,
+                mongoTemplate.getCollectionName(Fichier.class))) {
+            for (Document document : (Iterable<Document>) flux::iterator) {
+                lot.add(document);
+                if (lot.size() >= TAILLE_LOT_MIGRATION) {
+                    nbMigres += migrer(lot);
+                    lot.clear();
+                }
+            }
+            nbMigres += migrer(lot);
+        } catch (DataAccessException e) {
+            migre.set(false);
+            System.out.println("Erreur lors de la migration du contenu des fichiers : " + e.getMessage());
+        }
+        if (nbMigres > 0) {
+            System.out.println("Contenu déplacé hors du document pour " + nbMigres + " fichier(s)");
+        }
+    }
+
+    /**
+     * Déplace vers {@code corps_fichiers} le contenu d'un lot de documents de fichiers.
+     *
+     * @param documents Documents des fichiers (identifiant et contenu).
+     * @return Nombre de fichiers migrés.
+     */
+    private int migrer(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return 0;
+        }
+        List<CorpsFichier> corps = new ArrayList<>();
+        // Collection désignée par son nom : le champ contenu n'est plus persisté par l'entité
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED,
+                mongoTemplate.getCollectionName(Fichier.class));
+        for (Document document : documents) {
+            Binary contenu = document.get("contenu", Binary.class);
+            CorpsFichier corpsFichier = new CorpsFichier(nouvelId(), contenu != null ? contenu.getData() : new byte[0]);
+            corps.add(corpsFichier);
+            bulk.updateOne(Query.query(Criteria.where("_id").is(document.get("_id")).and("contenu").exists(true)),
+                    new Update().set("corpsId", corpsFichier.getId()).unset("contenu"));
+        }
+        enregistrerTous(corps);
+        int modifies = bulk.execute().getModifiedCount();
+        if (modifies < documents.size()) {
+            // Documents modifiés ou supprimés entre-temps : corps orphelins
+            Set<String> orphelins = corps.stream().map(CorpsFichier::getId).collect(Collectors.toSet());
+            Query references = Query.query(Criteria.where("corpsId").in(orphelins));
+            references.fields().include("corpsId");
+            mongoTemplate.find(references, Fichier.class).forEach(fichier -> orphelins.remove(fichier.getCorpsId()));
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(orphelins)), CorpsFichier.class);
+        }
+        return modifies;
+    }
+}
@@ -0,0 +1,132 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSUploadStream;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import lombok.RequiredArgsConstructor;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Service de stockage du contenu des fichiers volumineux dans GridFS.
+ *
+ * <p>Le contenu est transféré en flux depuis un {@link FileChannel} vers les morceaux (chunks) GridFS :
+ * la mémoire utilisée par fichier est bornée par la taille d'un morceau, quelle que soit la taille du
+ * fichier, et la limite de 16 Mo d'un document MongoDB ne s'applique plus. Le document
+ * {@link NoobSave._L.garcia.NoobSave.entities.Fichier} ne conserve que l'identifiant du contenu.</p>
+ *
+ * <p>Le contenu peut être compressé pendant le transfert ; l'algorithme est alors mémorisé par le fichier
+ * et le contenu est décompressé à la lecture.</p>
+ *
+ * @author torres léo
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class StockageGridFsService {
+
+    /**
+     * Accès au stockage GridFS.
+     */
+    private final GridFsTemplate gridFsTemplate;
+
+    /**
+     * Accès à la base MongoDB, pour les transferts GridFS en écriture par flux.
+     */
+    private final MongoDatabaseFactory mongoDatabaseFactory;
+
+    /**
+     * Résultat du stockage d'un contenu.
+     *
+     * @param id            Identifiant du contenu stocké.
+     * @param tailleStockee Nombre d'octets stockés (après compression éventuelle).
+     */
+    public record Stockage(String id, long tailleStockee) {
+    }
+
+    /**
+     * Stocke le contenu d'un fichier local dans GridFS, en calculant son empreinte au passage.
+     *
+     * @param id           Identifiant attribué au contenu (voir {@link JournalIngestion#prevoirContenu()}).
+     * @param chemin       Chemin du fichier local.
+     * @param typeMime     Type MIME du fichier.
+     * @param accumulateur Accumulateur d'empreinte alimenté par les octets lus.
+     * @param codec        Algorithme de compression du contenu, ou {@code null} pour le stocker brut.
+     * @return L'identifiant du contenu stocké et sa taille après compression.
+     * @throws IOException Si une erreur survient lors de la lecture du fichier.
+     */
+    public Stockage stocker(String id, Path chemin, String typeMime, CalculateurEmpreinte.Accumulateur accumulateur,
+                            CodecCompression codec) throws IOException {
+        GridFSUploadOptions options = new GridFSUploadOptions().metadata(new Document("_contentType", typeMime));
+        GridFSUploadStream envoi = GridFSBuckets.create(mongoDatabaseFactory.getMongoDatabase())
+                .openUploadStream(new BsonObjectId(new ObjectId(id)), chemin.getFileName().toString(), options);
+        long[] ecrits = {0};
+        OutputStream compteur = new FilterOutputStream(envoi) {
+            @Override
+            public void write(byte[] tampon, int debut, int longueur) throws IOException {
+                out.write(tampon, debut, longueur);
+                ecrits[0] += longueur;
+            }
+        };
+        try (FileChannel canal = FileChannel.open(chemin, StandardOpenOption.READ);
+             InputStream flux = CalculateurEmpreinte.fluxAvecEmpreinte(Channels.newInputStream(canal), accumulateur);
+             OutputStream sortie = codec != null ? codec.compresser(compteur) : compteur) {
+            flux.transferTo(sortie);
+        } catch (IOException | RuntimeException e) {
+            envoi.abort();
+            throw e;
+        }
+        return new Stockage(id, ecrits[0]);
+    }
+
+    /**
+     * Ouvre un flux de lecture sur un contenu stocké dans GridFS.
+     *
+     * @param id Identifiant du contenu.
+     * @return Un flux sur le contenu, à fermer par l'appelant.
+     * @throws IOException Si le contenu est introuvable ou illisible.
+     */
+    public InputStream ouvrir(String id) throws IOException {
+        GridFSFile fichier = gridFsTemplate.findOne(requeteParId(id));
+        if (fichier == null) {
+            throw new FileNotFoundException("Contenu GridFS introuvable : " + id);
+        }
+        return gridFsTemplate.getResource(fichier).getInputStream();
+    }
+
+    /**
+     * Supprime un contenu stocké dans GridFS.
+     *
+     * @param id Identifiant du contenu.
+     */
+    public void supprimer(String id) {
+        gridFsTemplate.delete(requeteParId(id));
+    }
+
+    /**
+     * Construit la requête sélectionnant un contenu GridFS par son identifiant.
+     *
+     * @param id Identifiant du contenu.
+     * @return La requête correspondante.
+     */
+    private static Query requeteParId(String id) {
+        return Query.query(Criteria.where("_id").is(new ObjectId(id)));
+    }
+}
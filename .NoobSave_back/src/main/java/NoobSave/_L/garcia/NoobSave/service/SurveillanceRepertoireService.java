@@ -0,0 +1,316 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Service de surveillance en temps réel du répertoire de sauvegarde.
+ *
+ * <p>Lorsque la surveillance est activée dans les paramètres, un {@link WatchService} est enregistré
+ * récursivement sur le répertoire de sauvegarde. Les événements de création, de modification et de
+ * suppression alimentent une file d'attente avec anti-rebond : un fichier n'est ingéré qu'une fois qu'il
+ * n'a plus reçu d'événement pendant le délai configuré. Un parcours complet n'est effectué qu'au démarrage
+ * de la surveillance et lorsque le système signale un débordement ({@code OVERFLOW}).</p>
+ *
+ * @author torres léo
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class SurveillanceRepertoireService {
+
+    /**
+     * Service de synchronisation des fichiers.
+     */
+    private final FichierService fichierService;
+
+    /**
+     * Coordination des passes de synchronisation complètes.
+     */
+    private final TacheSynchronisationService tacheSynchronisationService;
+
+    /**
+     * Service pour accéder aux paramètres globaux.
+     */
+    private final ParametreService parametreService;
+
+    /**
+     * Délai (en millisecondes) sans nouvel événement avant l'ingestion d'un fichier.
+     */
+    @Value("${noobsave.surveillance.anti-rebond-ms:500}")
+    private long antiRebondMs;
+
+    /**
+     * Service de surveillance actif, ou {@code null} si la surveillance est arrêtée.
+     */
+    private volatile WatchService watchService;
+
+    /**
+     * Racine actuellement surveillée.
+     */
+    private volatile Path racine;
+
+    /**
+     * Répertoire associé à chaque clé de surveillance enregistrée.
+     */
+    private final Map<WatchKey, Path> repertoires = new ConcurrentHashMap<>();
+
+    /**
+     * Chemins en attente d'ingestion, associés à l'instant de leur dernier événement.
+     */
+    private final Map<Path, Long> enAttente = new ConcurrentHashMap<>();
+
+    /**
+     * Indique qu'un parcours complet de la racine est nécessaire.
+     */
+    private final AtomicBoolean parcoursCompletDemande = new AtomicBoolean();
+
+    /**
+     * Démarre, redémarre ou arrête la surveillance selon les paramètres courants.
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void verifierSurveillance() {
+        boolean active = parametreService.getParametre().isRealTimeWatchEnabled();
+        if (!active) {
+            if (watchService != null) {
+                arreter();
+            }
+            return;
+        }
+        Path cheminSauvegarde = fichierService.cheminSauvegarde().toAbsolutePath().normalize();
+        if (watchService == null || !cheminSauvegarde.equals(racine)) {
+            arreter();
+            demarrer(cheminSauvegarde);
+        }
+    }
+
+    /**
+     * Ingère les chemins dont le délai d'anti-rebond est écoulé, ou effectue un parcours complet si
+     * un débordement a été signalé.
+     *
+     * <p>L'ingestion d'un chemin partage le verrou de la racine avec les passes de synchronisation : un
+     * chemin reçu pendant une passe reste en attente jusqu'à la fin de celle-ci. Un chemin dont l'ingestion
+     * échoue sur une erreur inattendue (base indisponible...) est remis en attente, sans interrompre le
+     * traitement des autres.</p>
+     */
+    @Scheduled(fixedDelay = 250)
+    public void traiterFileAttente() {
+        Path racineActuelle = racine;
+        if (watchService == null || racineActuelle == null) {
+            return;
+        }
+
+        if (parcoursCompletDemande.getAndSet(false)) {
+            enAttente.clear();
+            tacheSynchronisationService.demarrer("SURVEILLANCE", racineActuelle);
+            return;
+        }
+
+        long limite = System.currentTimeMillis() - antiRebondMs;
+        for (Map.Entry<Path, Long> entree : enAttente.entrySet()) {
+            Path chemin = entree.getKey();
+            // Retrait conditionnel : un événement plus récent laisse le chemin en attente
+            if (entree.getValue() > limite || !enAttente.remove(chemin, entree.getValue())) {
+                continue;
+            }
+            try {
+                if (Files.isRegularFile(chemin)) {
+                    // Racine occupée par une passe : le chemin est présenté de nouveau au tour suivant
+                    if (!fichierService.synchroniserFichier(chemin)) {
+                        enAttente.putIfAbsent(chemin, entree.getValue());
+                    }
+                } else if (!Files.exists(chemin)) {
+                    fichierService.oublierFichier(chemin);
+                }
+            } catch (IOException e) {
+                System.out.println("Erreur lors de l'ingestion de : " + chemin + " - " + e.getMessage());
+            } catch (RuntimeException e) {
+                // Base indisponible par exemple : sans parcours périodique, le chemin ne doit pas être perdu
+                System.out.println("Erreur lors de l'ingestion de : " + chemin + ", nouvel essai au tour suivant - "
+                        + e.getMessage());
+                enAttente.putIfAbsent(chemin, entree.getValue());
+            }
+        }
+    }
+
+    /**
+     * Démarre la surveillance récursive d'une racine.
+     *
+     * @param nouvelleRacine Répertoire à surveiller.
+     */
+    private synchronized void demarrer(Path nouvelleRacine) {
+        if (!Files.isDirectory(nouvelleRacine)) {
+            System.out.println("Surveillance impossible, répertoire introuvable : " + nouvelleRacine);
+            return;
+        }
+        try {
+            WatchService service = nouvelleRacine.getFileSystem().newWatchService();
+            enregistrerArborescence(service, nouvelleRacine);
+            racine = nouvelleRacine;
+            watchService = service;
+            // Rattrape les changements survenus pendant que la surveillance était arrêtée
+            parcoursCompletDemande.set(true);
+            Thread.ofPlatform()
+                    .daemon()
+                    .name("noobsave-surveillance")
+                    .start(() -> boucleEvenements(service));
+            System.out.println("Surveillance en temps réel démarrée sur : " + nouvelleRacine);
+        } catch (IOException e) {
+            System.out.println("Erreur lors du démarrage de la surveillance : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Arrête la surveillance en cours, s'il y en a une.
+     */
+    @PreDestroy
+    public synchronized void arreter() {
+        WatchService service = watchService;
+        watchService = null;
+        racine = null;
+        repertoires.clear();
+        enAttente.clear();
+        parcoursCompletDemande.set(false);
+        if (service != null) {
+            try {
+                service.close();
+                System.out.println("Surveillance en temps réel arrêtée.");
+            } catch (IOException e) {
+                System.out.println("Erreur lors de l'arrêt de la surveillance : " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Boucle de réception des événements du système de fichiers, exécutée sur un thread dédié.
+     *
+     * <p>Une erreur inattendue sur un événement est journalisée sans interrompre la boucle. Si le thread
+     * se termine malgré tout alors que ce service est toujours actif, la surveillance est arrêtée pour être
+     * redémarrée par la vérification périodique.</p>
+     *
+     * @param service Service de surveillance dont les événements sont consommés.
+     */
+    private void boucleEvenements(WatchService service) {
+        try {
+            while (true) {
+                WatchKey cle = service.take();
+                Path repertoire = repertoires.get(cle);
+                if (repertoire != null) {
+                    for (WatchEvent<?> evenement : cle.pollEvents()) {
+                        try {
+                            traiterEvenement(service, repertoire, evenement);
+                        } catch (RuntimeException e) {
+                            // Base indisponible lors de l'enregistrement d'un répertoire par exemple : le
+                            // parcours complet rattrape les fichiers qui n'ont pas été mis en attente
+                            System.out.println("Erreur lors du traitement d'un événement dans : " + repertoire
+                                    + ", parcours complet demandé - " + e.getMessage());
+                            parcoursCompletDemande.set(true);
+                        }
+                    }
+                }
+                if (!cle.reset()) {
+                    repertoires.remove(cle);
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Surveillance arrêtée
+        } finally {
+            abandonner(service);
+        }
+    }
+
+    /**
+     * Arrête la surveillance si le service donné est toujours le service actif, c'est-à-dire si sa boucle
+     * d'événements s'est terminée sans arrêt demandé.
+     *
+     * @param service Service dont la boucle d'événements vient de se terminer.
+     */
+    private synchronized void abandonner(WatchService service) {
+        if (watchService == service) {
+            System.out.println("Boucle de surveillance interrompue, redémarrage à la prochaine vérification.");
+            arreter();
+        }
+    }
+
+    /**
+     * Traite un événement : met le chemin en attente, enregistre les nouveaux sous-répertoires ou
+     * demande un parcours complet en cas de débordement.
+     *
+     * @param service    Service de surveillance actif.
+     * @param repertoire Répertoire dans lequel l'événement s'est produit.
+     * @param evenement  Événement reçu.
+     */
+    private void traiterEvenement(WatchService service, Path repertoire, WatchEvent<?> evenement) {
+        if (evenement.kind() == OVERFLOW) {
+            System.out.println("Débordement de la file d'événements, parcours complet demandé.");
+            parcoursCompletDemande.set(true);
+            return;
+        }
+        Path chemin = repertoire.resolve((Path) evenement.context());
+        if (evenement.kind() == ENTRY_CREATE && Files.isDirectory(chemin, LinkOption.NOFOLLOW_LINKS)) {
+            // Les fichiers créés avant l'enregistrement du répertoire sont mis en attente par le parcours
+            try {
+                enregistrerArborescence(service, chemin);
+            } catch (IOException e) {
+                System.out.println("Erreur lors de l'enregistrement de : " + chemin + " - " + e.getMessage());
+            }
+            return;
+        }
+        enAttente.put(chemin, System.currentTimeMillis());
+    }
+
+    /**
+     * Enregistre récursivement un répertoire et ses sous-répertoires auprès du service de surveillance,
+     * et met en attente les fichiers qu'ils contiennent déjà. Les arborescences exclues (motifs globaux,
+     * fichiers {@code .noobsaveignore}) ne sont ni parcourues ni surveillées.
+     *
+     * @param service    Service de surveillance.
+     * @param repertoire Répertoire racine de l'arborescence à enregistrer.
+     * @throws IOException Si le parcours de l'arborescence échoue.
+     */
+    private void enregistrerArborescence(WatchService service, Path repertoire) throws IOException {
+        boolean enregistrementInitial = watchService != service;
+        Predicate<Path> exclu = fichierService.exclusionRepertoires();
+        Files.walkFileTree(repertoire, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (exclu.test(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                try {
+                    repertoires.put(dir.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+                } catch (IOException e) {
+                    System.out.println("Impossible de surveiller : " + dir + " - " + e.getMessage());
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!enregistrementInitial) {
+                    enAttente.put(file, System.currentTimeMillis());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,176 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.dto.EtatTacheSynchronisation;
+import NoobSave._L.garcia.NoobSave.dto.EtatTacheSynchronisation.Statut;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tâche de synchronisation d'un répertoire : identité, statut, compteurs de progression et demande
+ * d'annulation.
+ *
+ * <p>Les compteurs sont mis à jour par les threads de la passe ; l'état est lu à tout moment via
+ * {@link #etat()}. L'annulation est coopérative : la passe consulte {@link #estAnnulee()} avant chaque
+ * répertoire et chaque fichier, puis s'arrête proprement.</p>
+ */
+class TacheSynchronisation {
+
+    @Getter
+    private final String id = UUID.randomUUID().toString();
+
+    @Getter
+    private final String origine;
+
+    @Getter
+    private final Path racine;
+
+    private volatile Statut statut = Statut.EN_ATTENTE;
+    private volatile LocalDateTime dateDebut;
+    private volatile LocalDateTime dateFin;
+    private volatile long debutNanos;
+    private volatile long finNanos;
+    private volatile String erreur;
+    private volatile boolean annulationDemandee;
+
+    private final AtomicLong fichiersParcourus = new AtomicLong();
+    private final AtomicLong fichiersIngeres = new AtomicLong();
+    private final AtomicLong octetsLus = new AtomicLong();
+    private final AtomicLong fichiersEstimes = new AtomicLong();
+
+    /**
+     * Crée une tâche de synchronisation en attente.
+     *
+     * @param origine Origine de la tâche (par exemple {@code MANUELLE} ou {@code PLANIFIEE}).
+     * @param racine  Répertoire à synchroniser.
+     */
+    TacheSynchronisation(String origine, Path racine) {
+        this.origine = origine;
+        this.racine = racine;
+    }
+
+    /**
+     * @return {@code true} si la tâche a été déclenchée par un utilisateur (origine {@code MANUELLE}).
+     */
+    boolean estInteractive() {
+        return "MANUELLE".equals(origine);
+    }
+
+    /**
+     * Marque le début de l'exécution de la tâche.
+     */
+    void demarrer() {
+        debutNanos = System.nanoTime();
+        dateDebut = LocalDateTime.now();
+        if (statut == Statut.EN_ATTENTE) {
+            statut = Statut.EN_COURS;
+        }
+    }
+
+    /**
+     * Marque la fin de la tâche : terminée, ou annulée si l'annulation a été demandée entre-temps.
+     */
+    void terminer() {
+        fin(annulationDemandee ? Statut.ANNULEE : Statut.TERMINEE, null);
+    }
+
+    /**
+     * Marque l'échec de la tâche.
+     *
+     * @param message Message d'erreur.
+     */
+    void echouer(String message) {
+        fin(Statut.ECHOUEE, message);
+    }
+
+    /**
+     * Demande l'annulation coopérative de la tâche. Sans effet sur une tâche déjà finie.
+     *
+     * @return {@code true} si la demande a été prise en compte.
+     */
+    boolean annuler() {
+        if (estFinie()) {
+            return false;
+        }
+        annulationDemandee = true;
+        statut = Statut.ANNULATION_DEMANDEE;
+        return true;
+    }
+
+    /**
+     * @return {@code true} si l'annulation de la tâche a été demandée.
+     */
+    boolean estAnnulee() {
+        return annulationDemandee;
+    }
+
+    /**
+     * @return {@code true} si la tâche est terminée, annulée ou en échec.
+     */
+    boolean estFinie() {
+        return statut == Statut.TERMINEE || statut == Statut.ANNULEE || statut == Statut.ECHOUEE;
+    }
+
+    /**
+     * Fixe le nombre de fichiers attendu pour la passe, utilisé pour estimer le temps restant.
+     *
+     * @param nombre Nombre de fichiers estimé.
+     */
+    void estimer(long nombre) {
+        fichiersEstimes.set(nombre);
+    }
+
+    /**
+     * Compte un fichier valide rencontré pendant le parcours.
+     */
+    void fichierParcouru() {
+        fichiersParcourus.incrementAndGet();
+    }
+
+    /**
+     * Compte un fichier relu depuis le disque.
+     *
+     * @param octets  Taille du fichier lu.
+     * @param ingere  {@code true} si le contenu du fichier, nouveau ou modifié, a été ingéré ; {@code false}
+     *                notamment si seule sa date de modification a changé.
+     */
+    void fichierLu(long octets, boolean ingere) {
+        octetsLus.addAndGet(octets);
+        if (ingere) {
+            fichiersIngeres.incrementAndGet();
+        }
+    }
+
+    /**
+     * Construit l'état instantané de la tâche, avec débits et temps restant estimé.
+     *
+     * @return L'état de la tâche.
+     */
+    EtatTacheSynchronisation etat() {
+        long parcourus = fichiersParcourus.get();
+        long octets = octetsLus.get();
+        long estimes = Math.max(fichiersEstimes.get(), parcourus);
+        double secondes = debutNanos == 0 ? 0
+                : ((finNanos != 0 ? finNanos : System.nanoTime()) - debutNanos) / 1_000_000_000.0;
+        double fichiersParSeconde = secondes > 0 ? parcourus / secondes : 0;
+        Long restantes = null;
+        if (estFinie()) {
+            restantes = 0L;
+        } else if (fichiersParSeconde > 0 && estimes > parcourus) {
+            restantes = Math.round((estimes - parcourus) / fichiersParSeconde);
+        }
+        return new EtatTacheSynchronisation(id, origine, racine.toString(), statut, dateDebut, dateFin,
+                parcourus, fichiersIngeres.get(), octets, estimes, fichiersParSeconde,
+                secondes > 0 ? octets / secondes : 0, restantes, erreur);
+    }
+
+    private void fin(Statut statutFinal, String message) {
+        finNanos = System.nanoTime();
+        dateFin = LocalDateTime.now();
+        erreur = message;
+        statut = statutFinal;
+    }
+}
@@ -0,0 +1,460 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.dto.EtatPlanification;
+import NoobSave._L.garcia.NoobSave.dto.EtatTacheSynchronisation;
+import NoobSave._L.garcia.NoobSave.entities.Parametre;
+import NoobSave._L.garcia.NoobSave.entities.RacineSynchronisation;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Service d'exécution et de coordination des synchronisations, sous forme de tâches asynchrones.
+ *
+ * <p>Les synchronisations manuelles (API), planifiées et déclenchées par la surveillance ne s'exécutent pas
+ * sur le thread appelant : chaque synchronisation est une {@link TacheSynchronisation} identifiée, exécutée
+ * sur un thread virtuel, dont la progression peut être consultée et qui peut être annulée de manière
+ * coopérative. Une tâche annulée laisse un point de reprise ({@link PointRepriseService}) : la tâche
+ * suivante reprend là où elle s'est arrêtée.</p>
+ *
+ * <p>Deux passes ne s'exécutent jamais en même temps sur le même répertoire. Pour chaque répertoire, l'état
+ * (passe en cours, passe suivante en attente) est remplacé atomiquement, sans verrou :</p>
+ * <ul>
+ *     <li>si aucune passe n'est en cours, une nouvelle passe démarre ;</li>
+ *     <li>sinon, une demande manuelle programme une unique passe de suivi, qui démarrera à la fin de la
+ *     passe en cours afin de prendre en compte les changements survenus pendant celle-ci ; les demandes
+ *     suivantes rejoignent cette passe de suivi ;</li>
+ *     <li>une demande planifiée rejoint la passe en cours (ou la passe de suivi) sans en programmer.</li>
+ * </ul>
+ *
+ * <p>Chaque racine de synchronisation ({@link RacineSynchronisation}) est planifiée indépendamment, avec
+ * son propre intervalle (ou l'intervalle global) compté à partir de la fin de sa dernière passe, terminée
+ * ou en échec : une racine en erreur n'est retentée qu'à l'intervalle suivant. Les passes de racines
+ * différentes s'exécutent en parallèle, chacune sur son thread virtuel et son exécuteur.</p>
+ *
+ * <p>En mode adaptatif ({@code Parametre.adaptiveIntervalEnabled}), l'intervalle des passes planifiées du
+ * répertoire de sauvegarde principal suit
+ * le rythme des changements : il est divisé par deux après une passe ayant trouvé au moins
+ * {@code noobsave.sync.adaptatif.seuil-changements} fichiers nouveaux ou modifiés, doublé après une passe
+ * n'en ayant trouvé aucun, et reste compris entre {@code noobsave.sync.adaptatif.intervalle-min-ms} et
+ * {@code noobsave.sync.adaptatif.intervalle-max-ms}.</p>
+ *
+ * <p>Les tâches sont conservées en mémoire ; seules les {@code noobsave.sync.taches.historique} tâches
+ * finies les plus récentes sont gardées.</p>
+ *
+ * @author torres léo
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class TacheSynchronisationService {
+
+    /**
+     * État de coordination d'un répertoire : passe en cours et passe de suivi en attente.
+     *
+     * @param enCours  Passe en cours, ou {@code null}.
+     * @param suivante Passe de suivi programmée, ou {@code null}.
+     */
+    private record Vol(TacheSynchronisation enCours, TacheSynchronisation suivante) {
+    }
+
+    /**
+     * État d'un répertoire sans passe en cours.
+     */
+    private static final Vol LIBRE = new Vol(null, null);
+
+    /**
+     * Service des fichiers, qui exécute les passes de synchronisation.
+     */
+    private final FichierService fichierService;
+
+    /**
+     * Service pour accéder aux paramètres globaux.
+     */
+    private final ParametreService parametreService;
+
+    /**
+     * Nombre de tâches finies conservées pour consultation.
+     */
+    @Value("${noobsave.sync.taches.historique:20}")
+    private int historique;
+
+    /**
+     * Borne inférieure de l'intervalle adaptatif, en millisecondes.
+     */
+    @Value("${noobsave.sync.adaptatif.intervalle-min-ms:5000}")
+    private long intervalleMinMs;
+
+    /**
+     * Borne supérieure de l'intervalle adaptatif, en millisecondes.
+     */
+    @Value("${noobsave.sync.adaptatif.intervalle-max-ms:3600000}")
+    private long intervalleMaxMs;
+
+    /**
+     * Nombre de changements à partir duquel une passe raccourcit l'intervalle adaptatif.
+     */
+    @Value("${noobsave.sync.adaptatif.seuil-changements:20}")
+    private long seuilChangements;
+
+    /**
+     * Tâches connues, dans l'ordre de création.
+     */
+    private final Map<String, TacheSynchronisation> taches = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    /**
+     * État de coordination de chaque répertoire synchronisé.
+     */
+    private final Map<Path, AtomicReference<Vol>> vols = new ConcurrentHashMap<>();
+
+    /**
+     * Exécuteur créant un thread virtuel par tâche.
+     */
+    private final ExecutorService executeur = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Instant (en millisecondes depuis l'epoch) de la fin de la dernière passe terminée ou en échec de chaque
+     * racine.
+     */
+    private final Map<Path, Long> dernieresSynchronisations = new ConcurrentHashMap<>();
+
+    /**
+     * Intervalle adaptatif courant en millisecondes, ou 0 tant qu'il n'a pas été initialisé.
+     */
+    private final AtomicLong intervalleAdaptatif = new AtomicLong();
+
+    /**
+     * Nombre de fichiers nouveaux ou modifiés trouvés par la dernière passe terminée, ou -1.
+     */
+    private final AtomicLong derniersChangements = new AtomicLong(-1);
+
+    /**
+     * Demande une synchronisation manuelle de toutes les racines de synchronisation.
+     *
+     * @param origine Origine des tâches (par exemple {@code MANUELLE}).
+     * @return L'état des tâches qui prendront en compte la demande, une par racine.
+     */
+    public List<EtatTacheSynchronisation> demarrerToutes(String origine) {
+        return fichierService.racines(parametreService.getParametre()).stream()
+                .map(racine -> demander(origine, Paths.get(racine.getChemin()), true).etat())
+                .toList();
+    }
+
+    /**
+     * Demande une synchronisation manuelle d'une racine de synchronisation nommée.
+     *
+     * @param origine   Origine de la tâche.
+     * @param nomRacine Nom de la racine.
+     * @return L'état de la tâche qui prendra en compte la demande, ou vide si la racine est inconnue.
+     */
+    public Optional<EtatTacheSynchronisation> demarrerRacine(String origine, String nomRacine) {
+        return fichierService.racines(parametreService.getParametre()).stream()
+                .filter(racine -> nomRacine.equals(racine.getNom()))
+                .findFirst()
+                .map(racine -> demander(origine, Paths.get(racine.getChemin()), true).etat());
+    }
+
+    /**
+     * Demande une synchronisation manuelle du répertoire de sauvegarde actif.
+     *
+     * @param origine Origine de la tâche (par exemple {@code MANUELLE}).
+     * @return L'état de la tâche qui prendra en compte la demande : nouvelle passe, ou passe de suivi
+     * programmée après la passe en cours.
+     */
+    public EtatTacheSynchronisation demarrer(String origine) {
+        return demander(origine, fichierService.cheminSauvegarde(), true).etat();
+    }
+
+    /**
+     * Demande une synchronisation complète d'un répertoire, par exemple suite à un débordement des
+     * événements de surveillance. Une passe de suivi est programmée si une passe est déjà en cours.
+     *
+     * @param origine Origine de la tâche.
+     * @param racine  Répertoire à synchroniser.
+     * @return L'état de la tâche qui prendra en compte la demande.
+     */
+    public EtatTacheSynchronisation demarrer(String origine, Path racine) {
+        return demander(origine, racine, true).etat();
+    }
+
+    /**
+     * Retourne l'état d'une tâche.
+     *
+     * @param id Identifiant de la tâche.
+     * @return L'état de la tâche, ou vide si elle est inconnue.
+     */
+    public Optional<EtatTacheSynchronisation> obtenir(String id) {
+        return Optional.ofNullable(taches.get(id)).map(TacheSynchronisation::etat);
+    }
+
+    /**
+     * Liste l'état des tâches connues, de la plus récente à la plus ancienne.
+     *
+     * @return Les états des tâches.
+     */
+    public List<EtatTacheSynchronisation> lister() {
+        List<TacheSynchronisation> copie;
+        synchronized (taches) {
+            copie = new ArrayList<>(taches.values());
+        }
+        Collections.reverse(copie);
+        return copie.stream().map(TacheSynchronisation::etat).toList();
+    }
+
+    /**
+     * Demande l'annulation d'une tâche. Une tâche en cours s'arrête après les écritures en cours ; une passe
+     * de suivi en attente ne démarrera pas.
+     *
+     * @param id Identifiant de la tâche.
+     * @return L'état de la tâche, ou vide si elle est inconnue.
+     */
+    public Optional<EtatTacheSynchronisation> annuler(String id) {
+        TacheSynchronisation tache = taches.get(id);
+        if (tache == null) {
+            return Optional.empty();
+        }
+        tache.annuler();
+        return Optional.of(tache.etat());
+    }
+
+    /**
+     * Sauvegarde régulière des fichiers à un intervalle fixe si l'auto-save est activée.
+     *
+     * <p>La synchronisation de chaque racine est demandée sous forme de tâche {@code PLANIFIEE}, qui rejoint
+     * la passe en cours de cette racine s'il y en a une. L'intervalle (celui de la racine, sinon l'intervalle
+     * fixe, ou adaptatif si ce mode est actif) est compté à partir de la fin de la dernière passe terminée de
+     * la racine, quelle que soit son origine.</p>
+     */
+    @Scheduled(fixedRate = 1000) // vérification chaque seconde, l'intervalle effectif décide du déclenchement
+    public void regularSave() {
+        Parametre parametre = parametreService.getParametre();
+        if (!parametre.isAutoSaveEnabled()) {
+            return;
+        }
+
+        long maintenant = System.currentTimeMillis();
+        for (RacineSynchronisation racine : fichierService.racines(parametre)) {
+            if (racine.estPrincipale() && parametre.isRealTimeWatchEnabled()) {
+                // En surveillance temps réel, les changements sont capturés par SurveillanceRepertoireService
+                continue;
+            }
+            Path chemin = Paths.get(racine.getChemin());
+            long intervalMs = racine.getIntervalle() > 0 ? racine.getIntervalle() : intervalleEffectif(parametre);
+            long sinceLastMs = maintenant - dernieresSynchronisations.getOrDefault(chemin, 0L);
+            if (sinceLastMs >= intervalMs) {
+                demander("PLANIFIEE", chemin, false);
+            }
+        }
+    }
+
+    /**
+     * Retourne l'état de la planification des sauvegardes automatiques du répertoire de sauvegarde principal,
+     * dont l'intervalle effectif.
+     *
+     * @return L'état de la planification.
+     */
+    public EtatPlanification etatPlanification() {
+        Parametre parametre = parametreService.getParametre();
+        long intervalle = intervalleEffectif(parametre);
+        LocalDateTime prochaine = null;
+        if (parametre.isAutoSaveEnabled() && !parametre.isRealTimeWatchEnabled()) {
+            long derniere = dernieresSynchronisations.getOrDefault(principale(), 0L);
+            long instant = Math.max(derniere + intervalle, System.currentTimeMillis());
+            prochaine = LocalDateTime.ofInstant(Instant.ofEpochMilli(instant), ZoneId.systemDefault());
+        }
+        return new EtatPlanification(parametre.isAdaptiveIntervalEnabled(), intervalle, intervalleMinMs,
+                intervalleMaxMs, derniersChangements.get(), prochaine);
+    }
+
+    /**
+     * Arrête l'exécuteur à l'arrêt de l'application, en demandant l'annulation des tâches en cours :
+     * elles laissent un point de reprise.
+     */
+    @PreDestroy
+    public void arreter() {
+        synchronized (taches) {
+            taches.values().forEach(TacheSynchronisation::annuler);
+        }
+        executeur.close();
+    }
+
+    /**
+     * Coordonne une demande de synchronisation d'un répertoire : démarre une passe si aucune n'est en cours,
+     * sinon rejoint la passe de suivi, ou la programme si {@code suivi} est vrai. Une passe de suivi annulée
+     * avant son démarrage est remplacée.
+     *
+     * @param origine Origine de la demande.
+     * @param chemin  Répertoire à synchroniser.
+     * @param suivi   {@code true} pour programmer une passe de suivi si une passe est en cours.
+     * @return La tâche qui prendra en compte la demande.
+     */
+    private TacheSynchronisation demander(String origine, Path chemin, boolean suivi) {
+        Path racine = chemin.toAbsolutePath().normalize();
+        AtomicReference<Vol> vol = vols.computeIfAbsent(racine, r -> new AtomicReference<>(LIBRE));
+        TacheSynchronisation nouvelle = null;
+        while (true) {
+            Vol actuel = vol.get();
+            if (actuel.suivante() != null && !actuel.suivante().estAnnulee()) {
+                return actuel.suivante();
+            }
+            if (actuel.enCours() != null && !suivi) {
+                return actuel.enCours();
+            }
+            if (nouvelle == null) {
+                nouvelle = new TacheSynchronisation(origine, racine);
+            }
+            if (actuel.enCours() == null) {
+                if (vol.compareAndSet(actuel, new Vol(nouvelle, null))) {
+                    enregistrer(nouvelle);
+                    lancer(nouvelle, vol);
+                    return nouvelle;
+                }
+            } else if (vol.compareAndSet(actuel, new Vol(actuel.enCours(), nouvelle))) {
+                if (actuel.suivante() != null) {
+                    // Passe de suivi annulée avant son démarrage : remplacée par la nouvelle
+                    actuel.suivante().terminer();
+                }
+                System.out.println("Synchronisation en cours sur " + racine + " : passe de suivi programmée");
+                enregistrer(nouvelle);
+                return nouvelle;
+            }
+        }
+    }
+
+    /**
+     * Soumet l'exécution d'une passe, puis, à sa fin, démarre la passe de suivi éventuelle.
+     *
+     * @param tache Tâche à exécuter.
+     * @param vol   État de coordination du répertoire de la tâche.
+     */
+    private void lancer(TacheSynchronisation tache, AtomicReference<Vol> vol) {
+        executeur.submit(() -> {
+            executer(tache);
+            Vol actuel;
+            Vol suivant;
+            do {
+                actuel = vol.get();
+                suivant = actuel.suivante() != null ? new Vol(actuel.suivante(), null) : LIBRE;
+            } while (!vol.compareAndSet(actuel, suivant));
+            if (suivant.enCours() != null) {
+                lancer(suivant.enCours(), vol);
+            }
+        });
+    }
+
+    /**
+     * Exécute une tâche sur le thread virtuel qui lui est dédié. Une tâche annulée avant son démarrage
+     * n'est pas exécutée.
+     *
+     * @param tache Tâche à exécuter.
+     */
+    private void executer(TacheSynchronisation tache) {
+        tache.demarrer();
+        try {
+            if (!tache.estAnnulee()) {
+                fichierService.synchroniserFichiersDuRepertoire(tache.getRacine(), tache);
+            }
+            tache.terminer();
+            if (!tache.estAnnulee()) {
+                dernieresSynchronisations.put(tache.getRacine(), System.currentTimeMillis());
+                if (tache.getRacine().equals(principale())) {
+                    ajusterIntervalle(tache.etat().getFichiersIngeres());
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Erreur lors de la synchronisation " + tache.getId() + " : " + e.getMessage());
+            tache.echouer(e.getMessage());
+            // Sans quoi la sauvegarde planifiée relancerait la passe à chaque seconde
+            dernieresSynchronisations.put(tache.getRacine(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @return Le répertoire de sauvegarde principal, absolu et normalisé.
+     */
+    private Path principale() {
+        return fichierService.cheminSauvegarde().toAbsolutePath().normalize();
+    }
+
+    /**
+     * Retourne l'intervalle entre deux passes planifiées : l'intervalle configuré, ou l'intervalle adaptatif
+     * si ce mode est actif (initialisé à l'intervalle configuré, borné).
+     *
+     * @param parametre Paramètres courants.
+     * @return L'intervalle effectif, en millisecondes.
+     */
+    private long intervalleEffectif(Parametre parametre) {
+        if (!parametre.isAdaptiveIntervalEnabled()) {
+            intervalleAdaptatif.set(0);
+            return parametre.getAutoSaveInterval();
+        }
+        intervalleAdaptatif.compareAndSet(0, borner(parametre.getAutoSaveInterval()));
+        return intervalleAdaptatif.get();
+    }
+
+    /**
+     * Ajuste l'intervalle adaptatif d'après le nombre de changements trouvés par une passe terminée.
+     *
+     * @param changements Nombre de fichiers nouveaux ou modifiés trouvés par la passe.
+     */
+    private void ajusterIntervalle(long changements) {
+        derniersChangements.set(changements);
+        long avant = intervalleAdaptatif.get();
+        if (avant == 0) {
+            return;
+        }
+        long apres = intervalleAdaptatif.updateAndGet(intervalle -> {
+            if (changements == 0) {
+                return borner(intervalle * 2);
+            }
+            return changements >= seuilChangements ? borner(intervalle / 2) : intervalle;
+        });
+        if (apres != avant) {
+            System.out.println("Intervalle de sauvegarde adaptatif : " + avant + " ms -> " + apres + " ms ("
+                    + changements + " changement(s))");
+        }
+    }
+
+    /**
+     * Borne un intervalle entre les limites de l'intervalle adaptatif.
+     *
+     * @param intervalle Intervalle en millisecondes.
+     * @return L'intervalle borné.
+     */
+    private long borner(long intervalle) {
+        return Math.max(intervalleMinMs, Math.min(intervalleMaxMs, intervalle));
+    }
+
+    /**
+     * Enregistre une nouvelle tâche et retire les tâches finies les plus anciennes au-delà de l'historique.
+     *
+     * @param tache Tâche à enregistrer.
+     */
+    private void enregistrer(TacheSynchronisation tache) {
+        synchronized (taches) {
+            taches.put(tache.getId(), tache);
+            long finies = taches.values().stream().filter(TacheSynchronisation::estFinie).count();
+            Iterator<TacheSynchronisation> iterateur = taches.values().iterator();
+            while (finies > historique && iterateur.hasNext()) {
+                if (iterateur.next().estFinie()) {
+                    iterateur.remove();
+                    finies--;
+                }
+            }
+        }
+    }
+}
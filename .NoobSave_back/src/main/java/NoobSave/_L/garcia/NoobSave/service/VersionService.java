@@ -0,0 +1,375 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.dto.EmpreinteFichier;
+import NoobSave._L.garcia.NoobSave.dto.ResumeVersion;
+import NoobSave._L.garcia.NoobSave.entities.Fichier;
+import NoobSave._L.garcia.NoobSave.entities.VersionFichier;
+import NoobSave._L.garcia.NoobSave.repository.VersionFichierRepository;
+import com.mongodb.bulk.BulkWriteError;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Service de gestion de l'historique des versions des fichiers.
+ *
+ * <p>Chaque changement de contenu d'un fichier découpé en blocs crée une {@link VersionFichier}. Les blocs
+ * n'étant stockés qu'une fois ({@link StockageBlocsService}), une version ne coûte que la description de sa
+ * liste de blocs : celle-ci est enregistrée sous forme de delta par rapport à la version précédente
+ * (plages de blocs recopiées et blocs insérés), avec un instantané complet toutes les
+ * {@code noobsave.versions.instantane-tous-les} versions pour borner la reconstruction.</p>
+ *
+ * <p>Les références des blocs appartiennent aux versions : le contenu courant d'un fichier est sa dernière
+ * version. Au-delà de {@code noobsave.versions.max} versions, les plus anciennes sont supprimées et leurs
+ * blocs libérés.</p>
+ *
+ * @author torres léo
+ * @version 1.0
+ */
+@Service
+@RequiredArgsConstructor
+public class VersionService {
+
+    /**
+     * Nombre maximal de positions candidates examinées pour un bloc lors du calcul d'un delta.
+     */
+    private static final int CANDIDATS_MAX = 8;
+
+    /**
+     * Référentiel des versions.
+     */
+    private final VersionFichierRepository versionFichierRepository;
+
+    /**
+     * Stockage des blocs dédupliqués, pour la libération des versions supprimées.
+     */
+    private final StockageBlocsService stockageBlocsService;
+
+    /**
+     * Création paresseuse des index MongoDB.
+     */
+    private final IndexService indexService;
+
+    /**
+     * Accès bas niveau à MongoDB, pour les écritures groupées.
+     */
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Nombre de versions entre deux instantanés complets.
+     */
+    @Value("${noobsave.versions.instantane-tous-les:10}")
+    private int intervalleInstantane;
+
+    /**
+     * Nombre maximal de versions conservées par fichier.
+     */
+    @Value("${noobsave.versions.max:50}")
+    private int versionsMax;
+
+    /**
+     * Prépare la version correspondant au nouveau contenu d'un fichier et renseigne son numéro de version.
+     *
+     * <p>La version est un instantané pour la première version, toutes les
+     * {@code noobsave.versions.instantane-tous-les} versions, ou lorsque la version précédente n'est pas
+     * versionnée ; sinon, c'est un delta par rapport à la liste de blocs de la version précédente.</p>
+     *
+     * @param fichier Fichier dont le contenu vient d'être découpé en blocs.
+     * @param ancien  Version actuellement enregistrée du fichier, ou {@code null} pour un nouveau fichier.
+     * @return La version à enregistrer après l'écriture du fichier.
+     */
+    public VersionFichier creer(Fichier fichier, EmpreinteFichier ancien) {
+        int precedente = ancien != null && ancien.getVersion() != null ? ancien.getVersion() : 0;
+        List<String> base = precedente > 0 && ancien.getBlocs() != null ? ancien.getBlocs() : null;
+        int numero = precedente + 1;
+        fichier.setVersion(numero);
+
+        VersionFichier version = new VersionFichier();
+        version.setRacine(fichier.getRacine());
+        version.setCheminRelatif(fichier.getCheminRelatif());
+        version.setNumero(numero);
+        version.setDateVersion(LocalDateTime.now());
+        version.setDateModification(fichier.getDateModification());
+        version.setType(fichier.getType());
+        version.setEmpreinte(fichier.getEmpreinte());
+        version.setTaille(fichier.getTaille());
+        if (base == null || (numero - 1) % Math.max(1, intervalleInstantane) == 0) {
+            version.setInstantane(true);
+            version.setBlocs(fichier.getBlocs());
+        } else {
+            version.setDelta(calculerDelta(base, fichier.getBlocs()));
+        }
+        return version;
+    }
+
+    /**
+     * Enregistre un ensemble de versions en une opération groupée, puis supprime les versions excédentaires
+     * des fichiers concernés.
+     *
+     * @param versions Versions à enregistrer.
+     */
+    void enregistrerTous(List<VersionFichier> versions) {
+        if (versions.isEmpty()) {
+            return;
+        }
+        indexService.assurerIndex(VersionFichier.class);
+        Set<VersionFichier> echecs = Collections.newSetFromMap(new IdentityHashMap<>());
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, VersionFichier.class);
+            bulk.insert(versions);
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError erreur : e.getErrors()) {
+                VersionFichier version = versions.get(erreur.getIndex());
+                echecs.add(version);
+                System.out.println("Erreur d'écriture de la version " + version.getNumero() + " du fichier : "
+                        + version.getCheminRelatif() + " - " + erreur.getMessage());
+            }
+        } catch (DataAccessException e) {
+            System.out.println("Erreur lors de l'écriture de " + versions.size() + " version(s) : " + e.getMessage());
+            return;
+        }
+        for (VersionFichier version : versions) {
+            if (!echecs.contains(version) && version.getNumero() > versionsMax) {
+                elaguer(version.getRacine(), version.getCheminRelatif(), version.getNumero());
+            }
+        }
+    }
+
+    /**
+     * Liste les métadonnées des versions d'un fichier, de la plus récente à la plus ancienne.
+     *
+     * @param racine Racine de synchronisation du fichier ({@code null} pour le répertoire principal).
+     * @param chemin Chemin relatif du fichier.
+     * @return Les versions du fichier.
+     */
+    public List<ResumeVersion> lister(String racine, String chemin) {
+        return versionFichierRepository.findByRacineAndCheminRelatifOrderByNumeroDesc(racine, chemin);
+    }
+
+    /**
+     * Reconstruit une version d'un fichier : la liste complète de ses blocs est obtenue à partir du dernier
+     * instantané qui la précède, en appliquant au plus {@code noobsave.versions.instantane-tous-les - 1} deltas.
+     *
+     * @param racine Racine de synchronisation du fichier ({@code null} pour le répertoire principal).
+     * @param chemin Chemin relatif du fichier.
+     * @param numero Numéro de la version.
+     * @return La version, sous forme d'instantané, ou vide si elle est introuvable ou si sa chaîne est incomplète.
+     */
+    public Optional<VersionFichier> reconstruire(String racine, String chemin, int numero) {
+        Optional<VersionFichier> instantane = versionFichierRepository
+                .findFirstByRacineAndCheminRelatifAndInstantaneTrueAndNumeroLessThanEqualOrderByNumeroDesc(racine, chemin,
+                        numero);
+        if (instantane.isEmpty()) {
+            return Optional.empty();
+        }
+        VersionFichier version = instantane.get();
+        List<String> blocs = version.getBlocs();
+        if (version.getNumero() < numero) {
+            Query query = Query.query(Criteria.where("racine").is(racine).and("cheminRelatif").is(chemin)
+                            .and("numero").gt(version.getNumero()).lte(numero))
+                    .with(Sort.by("numero"));
+            for (VersionFichier suivante : mongoTemplate.find(query, VersionFichier.class)) {
+                if (suivante.getNumero() != version.getNumero() + 1) {
+                    System.out.println("Chaîne de versions incomplète pour le fichier : " + chemin);
+                    return Optional.empty();
+                }
+                blocs = suivante.isInstantane() ? suivante.getBlocs() : appliquerDelta(blocs, suivante.getDelta());
+                version = suivante;
+            }
+            if (version.getNumero() != numero) {
+                return Optional.empty();
+            }
+        }
+        version.setInstantane(true);
+        version.setBlocs(blocs);
+        version.setDelta(null);
+        return Optional.of(version);
+    }
+
+    /**
+     * Supprime toutes les versions d'un fichier et libère leurs blocs.
+     *
+     * @param racine Racine de synchronisation du fichier ({@code null} pour le répertoire principal).
+     * @param chemin Chemin relatif du fichier.
+     */
+    public void supprimerToutes(String racine, String chemin) {
+        List<VersionFichier> versions = versionFichierRepository.findByRacineAndCheminRelatifOrderByNumeroAsc(racine, chemin);
+        if (versions.isEmpty()) {
+            return;
+        }
+        List<String> blocsLiberes = new ArrayList<>();
+        List<String> blocs = null;
+        for (VersionFichier version : versions) {
+            blocs = listeComplete(version, blocs);
+            blocsLiberes.addAll(blocs);
+        }
+        versionFichierRepository.deleteByRacineAndCheminRelatif(racine, chemin);
+        stockageBlocsService.liberer(blocsLiberes);
+    }
+
+    /**
+     * Supprime les versions d'un fichier au-delà de {@code noobsave.versions.max} et libère leurs blocs. Si la
+     * plus ancienne version conservée est un delta, elle est réécrite sous forme d'instantané.
+     *
+     * @param racine         Racine de synchronisation du fichier.
+     * @param chemin         Chemin relatif du fichier.
+     * @param numeroCourant  Numéro de la dernière version.
+     */
+    private void elaguer(String racine, String chemin, int numeroCourant) {
+        int limite = numeroCourant - versionsMax;
+        List<String> blocsLiberes = new ArrayList<>();
+        List<String> aSupprimer = new ArrayList<>();
+        List<String> blocs = null;
+        try {
+            for (VersionFichier version : versionFichierRepository.findByRacineAndCheminRelatifOrderByNumeroAsc(racine,
+                    chemin)) {
+                blocs = listeComplete(version, blocs);
+                if (version.getNumero() <= limite) {
+                    aSupprimer.add(version.getId());
+                    blocsLiberes.addAll(blocs);
+                    continue;
+                }
+                if (!version.isInstantane()) {
+                    mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(version.getId())),
+                            new Update().set("instantane", true).set("blocs", blocs).unset("delta"),
+                            VersionFichier.class);
+                }
+                break;
+            }
+            if (!aSupprimer.isEmpty()) {
+                mongoTemplate.remove(Query.query(Criteria.where("_id").in(aSupprimer)), VersionFichier.class);
+                stockageBlocsService.liberer(blocsLiberes);
+            }
+        } catch (DataAccessException | IllegalStateException e) {
+            System.out.println("Erreur lors de la suppression des anciennes versions du fichier : "
+                    + chemin + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retourne la liste complète des blocs d'une version, à partir de celle de la version précédente.
+     *
+     * @param version    Version à reconstruire.
+     * @param precedente Liste complète des blocs de la version précédente (ignorée pour un instantané).
+     * @return La liste complète des blocs de la version.
+     */
+    private static List<String> listeComplete(VersionFichier version, List<String> precedente) {
+        if (version.isInstantane()) {
+            return version.getBlocs();
+        }
+        if (precedente == null) {
+            throw new IllegalStateException("Delta sans version précédente : version " + version.getNumero()
+                    + " de " + version.getCheminRelatif());
+        }
+        return appliquerDelta(precedente, version.getDelta());
+    }
+
+    /**
+     * Calcule le delta transformant une liste de blocs en une autre.
+     *
+     * <p>Comme rsync, chaque bloc de la cible est recherché dans la base (ici par son identifiant, qui est
+     * déjà une empreinte du contenu) ; les correspondances sont étendues autant que possible et émises sous
+     * forme de recopies, les blocs sans correspondance sous forme d'insertions.</p>
+     *
+     * @param base  Liste des blocs de la version précédente.
+     * @param cible Liste des blocs de la nouvelle version.
+     * @return Les instructions du delta.
+     */
+    static List<VersionFichier.Instruction> calculerDelta(List<String> base, List<String> cible) {
+        Map<String, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < base.size(); i++) {
+            positions.computeIfAbsent(base.get(i), id -> new ArrayList<>()).add(i);
+        }
+
+        List<VersionFichier.Instruction> delta = new ArrayList<>();
+        List<String> insertion = null;
+        int finPrecedente = -1;
+        int i = 0;
+        while (i < cible.size()) {
+            int meilleurDebut = -1;
+            int meilleureLongueur = 0;
+            List<Integer> candidats = positions.getOrDefault(cible.get(i), List.of());
+            if (finPrecedente >= 0 && finPrecedente < base.size() && base.get(finPrecedente).equals(cible.get(i))) {
+                // La plage précédente se prolonge : cas le plus fréquent
+                meilleurDebut = finPrecedente;
+                meilleureLongueur = longueurCommune(base, finPrecedente, cible, i);
+            } else {
+                for (int c = 0; c < Math.min(CANDIDATS_MAX, candidats.size()); c++) {
+                    int longueur = longueurCommune(base, candidats.get(c), cible, i);
+                    if (longueur > meilleureLongueur) {
+                        meilleurDebut = candidats.get(c);
+                        meilleureLongueur = longueur;
+                    }
+                }
+            }
+
+            if (meilleureLongueur == 0) {
+                if (insertion == null) {
+                    insertion = new ArrayList<>();
+                    delta.add(new VersionFichier.Instruction(0, 0, insertion));
+                }
+                insertion.add(cible.get(i));
+                finPrecedente = -1;
+                i++;
+            } else {
+                delta.add(new VersionFichier.Instruction(meilleurDebut, meilleureLongueur, null));
+                insertion = null;
+                finPrecedente = meilleurDebut + meilleureLongueur;
+                i += meilleureLongueur;
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Applique un delta à une liste de blocs.
+     *
+     * @param base  Liste des blocs de la version précédente.
+     * @param delta Instructions du delta.
+     * @return La liste des blocs de la nouvelle version.
+     * @throws IllegalStateException Si une recopie sort des bornes de la liste de base.
+     */
+    static List<String> appliquerDelta(List<String> base, List<VersionFichier.Instruction> delta) {
+        List<String> resultat = new ArrayList<>();
+        for (VersionFichier.Instruction instruction : delta) {
+            if (instruction.getBlocs() != null) {
+                resultat.addAll(instruction.getBlocs());
+            } else if (instruction.getDebut() < 0 || instruction.getDebut() + instruction.getLongueur() > base.size()) {
+                throw new IllegalStateException("Delta incohérent avec la version précédente.");
+            } else {
+                resultat.addAll(base.subList(instruction.getDebut(), instruction.getDebut() + instruction.getLongueur()));
+            }
+        }
+        return resultat;
+    }
+
+    /**
+     * Mesure la longueur de la plage commune à deux listes à partir de positions données.
+     *
+     * @param base   Première liste.
+     * @param debut  Position dans la première liste.
+     * @param cible  Seconde liste.
+     * @param i      Position dans la seconde liste.
+     * @return Le nombre d'éléments égaux consécutifs.
+     */
+    private static int longueurCommune(List<String> base, int debut, List<String> cible, int i) {
+        int longueur = 0;
+        while (debut + longueur < base.size() && i + longueur < cible.size()
+                && base.get(debut + longueur).equals(cible.get(i + longueur))) {
+            longueur++;
+        }
+        return longueur;
+    }
+}
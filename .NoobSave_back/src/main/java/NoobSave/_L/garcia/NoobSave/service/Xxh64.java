@@ -0,0 +1,121 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Calcul incrémental de l'empreinte non cryptographique xxHash64 (graine 0).
+ *
+ * <p>Sur 64 bits, la probabilité qu'une modification de contenu laisse l'empreinte inchangée est négligeable
+ * pour la détection des changements, contrairement à une somme de contrôle sur 32 bits ; le calcul reste
+ * limité par la vitesse de lecture des fichiers.</p>
+ *
+ * <p>Les octets sont consommés par bandes de 32 octets ; le reste d'une bande incomplète est conservé jusqu'à
+ * l'appel suivant.</p>
+ */
+final class Xxh64 {
+
+    private static final long P1 = 0x9E3779B185EBCA87L;
+    private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long P3 = 0x165667B19E3779F9L;
+    private static final long P4 = 0x85EBCA77C2B2AE63L;
+    private static final long P5 = 0x27D4EB2F165667C5L;
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private long v1 = P1 + P2;
+    private long v2 = P2;
+    private long v3 = 0;
+    private long v4 = -P1;
+
+    /**
+     * Octets en attente d'une bande complète.
+     */
+    private final byte[] reste = new byte[32];
+    private int tailleReste;
+    private long total;
+
+    /**
+     * Ajoute des octets au calcul.
+     *
+     * @param donnees  Tampon contenant les octets.
+     * @param debut    Position du premier octet.
+     * @param longueur Nombre d'octets.
+     */
+    void ajouter(byte[] donnees, int debut, int longueur) {
+        total += longueur;
+        int fin = debut + longueur;
+        if (tailleReste > 0) {
+            int complement = Math.min(32 - tailleReste, longueur);
+            System.arraycopy(donnees, debut, reste, tailleReste, complement);
+            tailleReste += complement;
+            debut += complement;
+            if (tailleReste < 32) {
+                return;
+            }
+            bande(reste, 0);
+            tailleReste = 0;
+        }
+        for (; debut + 32 <= fin; debut += 32) {
+            bande(donnees, debut);
+        }
+        System.arraycopy(donnees, debut, reste, 0, fin - debut);
+        tailleReste = fin - debut;
+    }
+
+    /**
+     * Termine le calcul.
+     *
+     * @return L'empreinte sur 64 bits.
+     */
+    long valeur() {
+        long h;
+        if (total >= 32) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = fusion(h, v1);
+            h = fusion(h, v2);
+            h = fusion(h, v3);
+            h = fusion(h, v4);
+        } else {
+            h = P5;
+        }
+        h += total;
+        int i = 0;
+        for (; i + 8 <= tailleReste; i += 8) {
+            h ^= tour(0, (long) LONG.get(reste, i));
+            h = Long.rotateLeft(h, 27) * P1 + P4;
+        }
+        if (i + 4 <= tailleReste) {
+            h ^= ((int) INT.get(reste, i) & 0xFFFFFFFFL) * P1;
+            h = Long.rotateLeft(h, 23) * P2 + P3;
+            i += 4;
+        }
+        for (; i < tailleReste; i++) {
+            h ^= (reste[i] & 0xFFL) * P5;
+            h = Long.rotateLeft(h, 11) * P1;
+        }
+        h ^= h >>> 33;
+        h *= P2;
+        h ^= h >>> 29;
+        h *= P3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private void bande(byte[] donnees, int debut) {
+        v1 = tour(v1, (long) LONG.get(donnees, debut));
+        v2 = tour(v2, (long) LONG.get(donnees, debut + 8));
+        v3 = tour(v3, (long) LONG.get(donnees, debut + 16));
+        v4 = tour(v4, (long) LONG.get(donnees, debut + 24));
+    }
+
+    private static long tour(long acc, long entree) {
+        return Long.rotateLeft(acc + entree * P2, 31) * P1;
+    }
+
+    private static long fusion(long acc, long v) {
+        return (acc ^ tour(0, v)) * P1 + P4;
+    }
+}
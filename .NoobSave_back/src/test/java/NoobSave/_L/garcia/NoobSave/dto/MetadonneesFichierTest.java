@@ -0,0 +1,41 @@
+package NoobSave._L.garcia.NoobSave.dto;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de la projection {@link MetadonneesFichier} sur des documents enregistrés avant l'introduction de la
+ * taille du contenu.
+ */
+class MetadonneesFichierTest {
+
+    private final ProjectionFactory projections = new SpelAwareProxyProjectionFactory();
+
+    @Test
+    void documentSansTailleEstConsidereCommeModifie() {
+        Document ancien = new Document("_id", "1").append("cheminRelatif", "a.txt").append("empreinte", "sha-256:00");
+
+        MetadonneesFichier metadonnees = projections.createProjection(MetadonneesFichier.class, ancien);
+
+        assertNull(metadonnees.getTaille());
+        assertFalse(metadonnees.memeTaille(0));
+        assertEquals("a.txt", metadonnees.getCheminRelatif());
+    }
+
+    @Test
+    void documentAvecTailleEstCompare() {
+        Document document = new Document("_id", "1").append("cheminRelatif", "a.txt").append("taille", 42L);
+
+        MetadonneesFichier metadonnees = projections.createProjection(MetadonneesFichier.class, document);
+
+        assertTrue(metadonnees.memeTaille(42));
+        assertFalse(metadonnees.memeTaille(43));
+    }
+}
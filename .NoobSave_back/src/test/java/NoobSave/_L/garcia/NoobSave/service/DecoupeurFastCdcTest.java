@@ -0,0 +1,105 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests du découpage FastCDC : reconstitution du contenu, bornes de taille des blocs et stabilité des
+ * frontières, condition de la déduplication.
+ */
+class DecoupeurFastCdcTest {
+
+    private static final int TAILLE_MOYENNE = 8 * 1024;
+
+    private final DecoupeurFastCdc decoupeur = new DecoupeurFastCdc(TAILLE_MOYENNE);
+
+    @Test
+    void lesBlocsReconstituentLeContenuEtRespectentLesBornes() throws IOException {
+        byte[] contenu = aleatoire(1, 1_000_000);
+        List<byte[]> blocs = decouper(new ByteArrayInputStream(contenu));
+
+        ByteArrayOutputStream reconstitue = new ByteArrayOutputStream();
+        for (int i = 0; i < blocs.size(); i++) {
+            byte[] bloc = blocs.get(i);
+            reconstitue.write(bloc);
+            assertTrue(bloc.length <= decoupeur.getTailleMax());
+            if (i < blocs.size() - 1) {
+                assertTrue(bloc.length >= decoupeur.getTailleMin());
+            }
+        }
+        assertArrayEquals(contenu, reconstitue.toByteArray());
+        int moyenne = contenu.length / blocs.size();
+        assertTrue(moyenne > TAILLE_MOYENNE / 2 && moyenne < TAILLE_MOYENNE * 2, "taille moyenne : " + moyenne);
+    }
+
+    @Test
+    void lesFrontieresNeDependentPasDesLecturesDuFlux() throws Exception {
+        byte[] contenu = aleatoire(2, 300_000);
+        InputStream parPetitesLectures = new ByteArrayInputStream(contenu) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        };
+
+        assertEquals(empreintes(decouper(new ByteArrayInputStream(contenu))), empreintes(decouper(parPetitesLectures)));
+    }
+
+    @Test
+    void uneInsertionNeDeplaceQueLesFrontieresVoisines() throws Exception {
+        byte[] contenu = aleatoire(3, 1_000_000);
+        byte[] insere = new byte[17];
+        Arrays.fill(insere, (byte) 7);
+        byte[] modifie = new byte[contenu.length + insere.length];
+        int position = contenu.length / 3;
+        System.arraycopy(contenu, 0, modifie, 0, position);
+        System.arraycopy(insere, 0, modifie, position, insere.length);
+        System.arraycopy(contenu, position, modifie, position + insere.length, contenu.length - position);
+
+        List<String> avant = empreintes(decouper(new ByteArrayInputStream(contenu)));
+        Set<String> apres = new HashSet<>(empreintes(decouper(new ByteArrayInputStream(modifie))));
+        long communs = avant.stream().filter(apres::contains).count();
+
+        // Seuls le bloc modifié et, au plus, ses voisins immédiats diffèrent
+        assertTrue(avant.size() - communs <= 3, (avant.size() - communs) + " bloc(s) différent(s) sur " + avant.size());
+    }
+
+    @Test
+    void unFluxVideNeProduitAucunBloc() throws IOException {
+        assertTrue(decouper(new ByteArrayInputStream(new byte[0])).isEmpty());
+    }
+
+    private List<byte[]> decouper(InputStream flux) throws IOException {
+        List<byte[]> blocs = new ArrayList<>();
+        decoupeur.decouper(flux, (tampon, debut, longueur) -> blocs.add(Arrays.copyOfRange(tampon, debut, debut + longueur)));
+        return blocs;
+    }
+
+    private static List<String> empreintes(List<byte[]> blocs) throws NoSuchAlgorithmException {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        return blocs.stream().map(bloc -> HexFormat.of().formatHex(sha256.digest(bloc))).toList();
+    }
+
+    private static byte[] aleatoire(long graine, int taille) {
+        byte[] donnees = new byte[taille];
+        new Random(graine).nextBytes(donnees);
+        return donnees;
+    }
+}
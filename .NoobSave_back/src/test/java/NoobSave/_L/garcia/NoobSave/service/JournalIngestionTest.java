@@ -0,0 +1,144 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.EntreeManifeste;
+import NoobSave._L.garcia.NoobSave.entities.Fichier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests du journal d'ingestion sans base de données : relevé des lots à reprendre, et tolérance aux entrées
+ * tronquées ou corrompues par un arrêt brutal (longueur et somme de contrôle CRC32 de chaque entrée).
+ */
+class JournalIngestionTest {
+
+    @TempDir
+    Path repertoire;
+
+    @Test
+    void lotsNonTerminesEtContenusOrphelinsSontRepris() {
+        JournalIngestion journal = ouvrir();
+        String orphelin = journal.prevoirContenu();
+        String enregistre = journal.prevoirContenu();
+        long termine = journal.prevoir(List.of(operation("a.txt", enregistre, List.of())), Set.of(), Set.of());
+        journal.terminer(termine);
+        long interrompu = journal.prevoir(List.of(operation("b.txt", null, List.of("b1", "b2"))), Set.of("b1", "b2"), Set.of());
+        long blocsEcrits = journal.prevoir(List.of(operation("c.txt", null, List.of("c1", "c2"))), Set.of("c1", "c2"), Set.of());
+        journal.blocsEcrits(blocsEcrits, Set.of("c2"));
+        journal.liberer(blocsEcrits, true);
+
+        JournalIngestion.Reprise reprise = reprise(ouvrir());
+
+        assertEquals(Set.of(orphelin), reprise.contenus());
+        assertEquals(2, reprise.lots().size());
+        JournalIngestion.LotIncomplet premier = reprise.lots().get(0);
+        assertEquals(interrompu, premier.lot());
+        assertEquals(Set.of("b1", "b2"), premier.blocsNonReferences());
+        assertEquals(List.of("b1", "b2"), premier.operations().get(0).fichier().getBlocs());
+        JournalIngestion.LotIncomplet second = reprise.lots().get(1);
+        assertEquals(blocsEcrits, second.lot());
+        assertEquals(Set.of("c2"), second.blocsNonReferences());
+        assertTrue(second.liberation());
+    }
+
+    @Test
+    void finTronqueeEstIgnoreeEtRetiree() throws IOException {
+        JournalIngestion journal = ouvrir();
+        long lot = journal.prevoir(List.of(operation("a.txt", null, List.of("a1"))), Set.of("a1"), Set.of());
+        long tailleValide = Files.size(fichier());
+        // Entrée dont l'en-tête annonce plus d'octets que le journal n'en contient
+        Files.write(fichier(), new byte[]{0, 0, 1, 0, 1, 2, 3, 4, '{', '"'}, StandardOpenOption.APPEND);
+
+        JournalIngestion rouvert = ouvrir();
+
+        assertEquals(tailleValide, Files.size(fichier()));
+        JournalIngestion.Reprise reprise = reprise(rouvert);
+        assertEquals(1, reprise.lots().size());
+        assertEquals(lot, reprise.lots().get(0).lot());
+    }
+
+    @Test
+    void entreeCorrompueEtSuiteSontIgnorees() throws IOException {
+        JournalIngestion journal = ouvrir();
+        long lot = journal.prevoir(List.of(operation("a.txt", null, List.of("a1"))), Set.of("a1"), Set.of());
+        long tailleValide = Files.size(fichier());
+        journal.terminer(lot);
+        journal.prevoirContenu();
+        // Un octet de l'entrée TERMINE modifié : la somme de contrôle ne correspond plus
+        byte[] octets = Files.readAllBytes(fichier());
+        octets[(int) tailleValide + 12] ^= 0x20;
+        Files.write(fichier(), octets);
+
+        JournalIngestion rouvert = ouvrir();
+
+        assertEquals(tailleValide, Files.size(fichier()));
+        JournalIngestion.Reprise reprise = reprise(rouvert);
+        assertEquals(1, reprise.lots().size());
+        assertTrue(reprise.contenus().isEmpty());
+    }
+
+    @Test
+    void journalRepareAccepteDeNouvellesEntrees() throws IOException {
+        JournalIngestion journal = ouvrir();
+        journal.prevoir(List.of(operation("a.txt", null, List.of("a1"))), Set.of("a1"), Set.of());
+        Files.write(fichier(), new byte[]{0, 0, 0, 42}, StandardOpenOption.APPEND);
+
+        JournalIngestion repare = ouvrir();
+        long suivant = repare.prevoir(List.of(operation("b.txt", null, List.of("b1"))), Set.of("b1"), Set.of());
+
+        JournalIngestion.Reprise reprise = reprise(ouvrir());
+        assertEquals(2, reprise.lots().size());
+        assertEquals(suivant, reprise.lots().get(1).lot());
+        assertEquals(List.of("b1"), reprise.lots().get(1).operations().get(0).fichier().getBlocs());
+    }
+
+    @Test
+    void journalVideNeDonneAucuneReprise() {
+        assertNull(reprise(ouvrir()));
+    }
+
+    /**
+     * Ouvre le journal du répertoire temporaire, comme au démarrage de l'application.
+     */
+    private JournalIngestion ouvrir() {
+        JournalIngestion journal = new JournalIngestion(Jackson2ObjectMapperBuilder.json().build());
+        ReflectionTestUtils.setField(journal, "actif", true);
+        ReflectionTestUtils.setField(journal, "repertoire", repertoire.toString());
+        ReflectionTestUtils.setField(journal, "fsync", false);
+        ReflectionTestUtils.setField(journal, "tailleMax", Long.MAX_VALUE);
+        journal.ouvrir();
+        return journal;
+    }
+
+    private static JournalIngestion.Reprise reprise(JournalIngestion journal) {
+        AtomicReference<JournalIngestion.Reprise> trouvee = new AtomicReference<>();
+        journal.reprendre(trouvee::set);
+        return trouvee.get();
+    }
+
+    private Path fichier() {
+        return repertoire.resolve("ingestion.journal");
+    }
+
+    private static JournalIngestion.OperationPrevue operation(String nom, String contenuId, List<String> blocs) {
+        Fichier fichier = new Fichier();
+        fichier.setNom(nom);
+        fichier.setCheminRelatif(nom);
+        fichier.setContenuId(contenuId);
+        fichier.setBlocs(blocs.isEmpty() ? null : blocs);
+        return new JournalIngestion.OperationPrevue(fichier, null, null, new EntreeManifeste());
+    }
+}
@@ -0,0 +1,146 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Mesure du coût des appels système lors du parcours d'une arborescence : un seul {@code stat} par entrée
+ * (parcours actuel de {@link FichierService}) contre trois par fichier (ancien parcours :
+ * {@code File.isDirectory()}, {@code File.isFile()}, puis {@code Files.readAttributes}).
+ *
+ * <p>Désactivée par défaut ; lancement :</p>
+ * <pre>
+ * mvn test -Dtest=ParcoursRepertoireBenchmarkTest -Dnoobsave.benchmark=true
+ * </pre>
+ *
+ * <p>Paramètres (propriétés système) : {@code noobsave.benchmark.repertoires} et
+ * {@code noobsave.benchmark.fichiers} (1000 x 999 par défaut, soit environ un million d'entrées),
+ * {@code noobsave.benchmark.iterations} (5 par défaut) et {@code noobsave.benchmark.repertoire}, répertoire
+ * de l'arborescence conservé d'une exécution à l'autre (sinon un répertoire temporaire, supprimé en fin de
+ * mesure). Les deux parcours sont alternés après un premier parcours de chauffe ; les durées minimale et
+ * médiane de chacun sont affichées.</p>
+ */
+@EnabledIfSystemProperty(named = "noobsave.benchmark", matches = "true")
+class ParcoursRepertoireBenchmarkTest {
+
+    private static final int REPERTOIRES = Integer.getInteger("noobsave.benchmark.repertoires", 1000);
+    private static final int FICHIERS = Integer.getInteger("noobsave.benchmark.fichiers", 999);
+    private static final int ITERATIONS = Integer.getInteger("noobsave.benchmark.iterations", 5);
+
+    @Test
+    void unStatParEntreeContreAncienParcours() throws IOException {
+        String conserve = System.getProperty("noobsave.benchmark.repertoire");
+        Path racine = conserve != null ? Paths.get(conserve) : Files.createTempDirectory("noobsave-benchmark");
+        try {
+            creerArborescence(racine);
+            long attendu = (long) REPERTOIRES * FICHIERS;
+            assertEquals(attendu, parcoursActuel(racine));
+
+            long[] ancien = new long[ITERATIONS];
+            long[] actuel = new long[ITERATIONS];
+            for (int i = 0; i < ITERATIONS; i++) {
+                long debut = System.nanoTime();
+                assertEquals(attendu, ancienParcours(racine));
+                ancien[i] = System.nanoTime() - debut;
+                debut = System.nanoTime();
+                assertEquals(attendu, parcoursActuel(racine));
+                actuel[i] = System.nanoTime() - debut;
+            }
+            System.out.println("Parcours de " + attendu + " fichiers dans " + REPERTOIRES + " répertoires, "
+                    + ITERATIONS + " itérations :");
+            System.out.println("  ancien parcours (3 stat par fichier) : " + resume(ancien));
+            System.out.println("  parcours actuel (1 stat par entrée)  : " + resume(actuel));
+        } finally {
+            if (conserve == null) {
+                supprimer(racine);
+            }
+        }
+    }
+
+    /**
+     * Crée l'arborescence (fichiers vides) si elle n'existe pas déjà.
+     */
+    private static void creerArborescence(Path racine) throws IOException {
+        for (int r = 0; r < REPERTOIRES; r++) {
+            Path repertoire = racine.resolve("rep" + r);
+            if (Files.isDirectory(repertoire)) {
+                continue;
+            }
+            Files.createDirectories(repertoire);
+            for (int f = 0; f < FICHIERS; f++) {
+                Files.createFile(repertoire.resolve("fichier" + f + ".txt"));
+            }
+        }
+    }
+
+    /**
+     * Parcours antérieur : type de l'entrée par {@link File}, puis lecture des attributs des fichiers.
+     */
+    private static long ancienParcours(Path repertoire) throws IOException {
+        long fichiers = 0;
+        try (DirectoryStream<Path> flux = Files.newDirectoryStream(repertoire)) {
+            for (Path chemin : flux) {
+                File fichier = chemin.toFile();
+                if (fichier.isDirectory()) {
+                    fichiers += ancienParcours(chemin);
+                } else if (fichier.isFile()) {
+                    BasicFileAttributes attributs = Files.readAttributes(chemin, BasicFileAttributes.class);
+                    if (attributs.size() >= 0) {
+                        fichiers++;
+                    }
+                }
+            }
+        }
+        return fichiers;
+    }
+
+    /**
+     * Parcours actuel : une seule lecture des attributs par entrée.
+     */
+    private static long parcoursActuel(Path repertoire) throws IOException {
+        long fichiers = 0;
+        try (DirectoryStream<Path> flux = Files.newDirectoryStream(repertoire)) {
+            for (Path chemin : flux) {
+                BasicFileAttributes attributs;
+                try {
+                    attributs = Files.readAttributes(chemin, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (attributs.isDirectory()) {
+                    fichiers += parcoursActuel(chemin);
+                } else if (attributs.isRegularFile() && attributs.size() >= 0) {
+                    fichiers++;
+                }
+            }
+        }
+        return fichiers;
+    }
+
+    private static String resume(long[] durees) {
+        long[] triees = durees.clone();
+        Arrays.sort(triees);
+        return String.format("min %d ms, médiane %d ms", triees[0] / 1_000_000, triees[triees.length / 2] / 1_000_000);
+    }
+
+    private static void supprimer(Path racine) throws IOException {
+        try (Stream<Path> chemins = Files.walk(racine)) {
+            for (Path chemin : (Iterable<Path>) chemins.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(chemin);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests de l'évaluation des fichiers {@code .noobsaveignore} : négation, ancrage, motifs réservés aux
+ * répertoires, {@code **} et priorité des fichiers les plus profonds.
+ */
+class ReglesIgnoreesTest {
+
+    @TempDir
+    Path racine;
+
+    private ReglesIgnorees regles;
+
+    @BeforeEach
+    void ecrireRegles() throws IOException {
+        Files.writeString(racine.resolve(ReglesIgnorees.NOM_FICHIER), String.join("\n",
+                "# commentaire",
+                "",
+                "*.log",
+                "!garder.log",
+                "/build",
+                "tmp/",
+                "docs/**/*.pdf",
+                "\\#note"));
+        regles = ReglesIgnorees.AUCUNE.pour(racine, "");
+    }
+
+    @Test
+    void motifSansSlashCorrespondAuNomAToutesProfondeurs() {
+        assertTrue(ignore("erreur.log", false));
+        assertTrue(ignore("a/b/erreur.log", false));
+        assertFalse(ignore("erreur.txt", false));
+    }
+
+    @Test
+    void negationReintegreUnCheminExclu() {
+        assertFalse(ignore("garder.log", false));
+        assertFalse(ignore("a/garder.log", false));
+    }
+
+    @Test
+    void motifAncreNeCorrespondQuALaRacineDuFichierDeRegles() {
+        assertTrue(ignore("build", true));
+        assertFalse(ignore("module/build", true));
+    }
+
+    @Test
+    void motifTermineParSlashNeDesigneQueDesRepertoires() {
+        assertTrue(ignore("tmp", true));
+        assertTrue(ignore("a/tmp", true));
+        assertFalse(ignore("tmp", false));
+    }
+
+    @Test
+    void doubleEtoileCorrespondAZeroOuPlusieursRepertoires() {
+        assertTrue(ignore("docs/guide.pdf", false));
+        assertTrue(ignore("docs/a/b/guide.pdf", false));
+        assertFalse(ignore("autres/docs/guide.pdf", false));
+        assertFalse(ignore("docs/a/guide.txt", false));
+    }
+
+    @Test
+    void commentairesEtEchappements() {
+        assertFalse(ignore("# commentaire", false));
+        assertTrue(ignore("#note", false));
+    }
+
+    @Test
+    void fichierPlusProfondPrioritaireEtAncreASonRepertoire() throws IOException {
+        Path sous = Files.createDirectories(racine.resolve("sous"));
+        Files.writeString(sous.resolve(ReglesIgnorees.NOM_FICHIER), "!important.log\n/sortie\n");
+        ReglesIgnorees chaine = regles.pour(sous, "sous");
+
+        assertFalse(chaine.ignore(racine.resolve("sous/important.log"), racine, false));
+        assertTrue(chaine.ignore(racine.resolve("sous/autre.log"), racine, false));
+        assertTrue(chaine.ignore(racine.resolve("sous/sortie"), racine, false));
+        assertFalse(chaine.ignore(racine.resolve("sous/a/sortie"), racine, false));
+        // Les règles du sous-répertoire ne s'appliquent pas ailleurs
+        assertTrue(regles.ignore(racine.resolve("important.log"), racine, false));
+    }
+
+    @Test
+    void repertoireSansFichierDeReglesConserveLaChaine() {
+        assertSame(ReglesIgnorees.AUCUNE, ReglesIgnorees.AUCUNE.pour(racine.resolve("absent"), "absent"));
+        assertFalse(ReglesIgnorees.AUCUNE.ignore(racine.resolve("erreur.log"), racine, false));
+    }
+
+    private boolean ignore(String cheminRelatif, boolean repertoire) {
+        return regles.ignore(racine.resolve(cheminRelatif), racine, repertoire);
+    }
+}
@@ -0,0 +1,97 @@
+package NoobSave._L.garcia.NoobSave.service;
+
+import NoobSave._L.garcia.NoobSave.entities.VersionFichier;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests du delta entre listes de blocs de deux versions ({@link VersionService#calculerDelta} et
+ * {@link VersionService#appliquerDelta}), sans base de données.
+ */
+class VersionServiceDeltaTest {
+
+    @Test
+    void listeInchangeeDonneUneSeuleRecopie() {
+        List<String> base = blocs(0, 50);
+
+        List<VersionFichier.Instruction> delta = VersionService.calculerDelta(base, base);
+
+        assertEquals(1, delta.size());
+        assertEquals(0, delta.get(0).getDebut());
+        assertEquals(50, delta.get(0).getLongueur());
+        assertNull(delta.get(0).getBlocs());
+        assertEquals(base, VersionService.appliquerDelta(base, delta));
+    }
+
+    @Test
+    void baseVideDonneUneSeuleInsertion() {
+        List<String> cible = blocs(0, 10);
+
+        List<VersionFichier.Instruction> delta = VersionService.calculerDelta(List.of(), cible);
+
+        assertEquals(1, delta.size());
+        assertEquals(cible, delta.get(0).getBlocs());
+        assertEquals(cible, VersionService.appliquerDelta(List.of(), delta));
+    }
+
+    @Test
+    void insertionSuppressionEtDeplacement() {
+        List<String> base = blocs(0, 100);
+        List<String> cible = new ArrayList<>(base.subList(60, 100));
+        cible.addAll(blocs(1000, 3));
+        cible.addAll(base.subList(0, 20));
+        cible.addAll(base.subList(30, 60));
+        cible.add(base.get(5));
+
+        assertEquals(cible, VersionService.appliquerDelta(base, VersionService.calculerDelta(base, cible)));
+    }
+
+    @Test
+    void allerRetourSurDesModificationsAleatoires() {
+        Random aleatoire = new Random(42);
+        for (int essai = 0; essai < 200; essai++) {
+            List<String> base = new ArrayList<>();
+            int taille = aleatoire.nextInt(60);
+            for (int i = 0; i < taille; i++) {
+                // Peu d'identifiants distincts : blocs répétés dans la liste
+                base.add("b" + aleatoire.nextInt(25));
+            }
+            List<String> cible = new ArrayList<>(base);
+            for (int m = aleatoire.nextInt(6); m > 0; m--) {
+                int position = cible.isEmpty() ? 0 : aleatoire.nextInt(cible.size());
+                switch (aleatoire.nextInt(3)) {
+                    case 0 -> cible.add(position, "n" + aleatoire.nextInt(1000));
+                    case 1 -> {
+                        if (!cible.isEmpty()) {
+                            cible.remove(position);
+                        }
+                    }
+                    default -> cible.add(position, "b" + aleatoire.nextInt(25));
+                }
+            }
+
+            List<VersionFichier.Instruction> delta = VersionService.calculerDelta(base, cible);
+
+            assertEquals(cible, VersionService.appliquerDelta(base, delta), "essai " + essai);
+        }
+    }
+
+    @Test
+    void deltaIncoherentAvecLaBaseEstRefuse() {
+        List<VersionFichier.Instruction> delta = List.of(new VersionFichier.Instruction(5, 10, null));
+
+        assertThrows(IllegalStateException.class, () -> VersionService.appliquerDelta(blocs(0, 8), delta));
+    }
+
+    private static List<String> blocs(int premier, int nombre) {
+        return IntStream.range(premier, premier + nombre).mapToObj(i -> "bloc" + i).toList();
+    }
+}